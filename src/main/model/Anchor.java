@@ -0,0 +1,61 @@
+package model;
+
+/**
+ * Represents the point of a map that stays fixed when the map is resized. The existing terrain keeps its position
+ * relative to this point, and rows and columns are added or removed on the opposite sides.
+ */
+public enum Anchor {
+    NORTH_WEST("North West", 0, 0),
+    NORTH("North", 1, 0),
+    NORTH_EAST("North East", 2, 0),
+    WEST("West", 0, 1),
+    CENTER("Center", 1, 1),
+    EAST("East", 2, 1),
+    SOUTH_WEST("South West", 0, 2),
+    SOUTH("South", 1, 2),
+    SOUTH_EAST("South East", 2, 2);
+
+    private String name;
+    private int column;
+    private int row;
+
+    /**
+     * Constructs an Anchor where the toString() method will return the given name
+     *
+     * @param name   the colloquial name of the anchor
+     * @param column 0 for the west edge, 1 for the middle, 2 for the east edge
+     * @param row    0 for the north edge, 1 for the middle, 2 for the south edge
+     */
+    Anchor(String name, int column, int row) {
+        this.name = name;
+        this.column = column;
+        this.row = row;
+    }
+
+    /**
+     * Returns how far right the old terrain moves when a map is resized from oldWidth to newWidth
+     *
+     * @param oldWidth width before resizing
+     * @param newWidth width after resizing
+     * @return x offset of the old terrain within the resized map
+     */
+    public int offsetX(int oldWidth, int newWidth) {
+        return (newWidth - oldWidth) * column / 2;
+    }
+
+    /**
+     * Returns how far down the old terrain moves when a map is resized from oldHeight to newHeight
+     *
+     * @param oldHeight height before resizing
+     * @param newHeight height after resizing
+     * @return y offset of the old terrain within the resized map
+     */
+    public int offsetY(int oldHeight, int newHeight) {
+        return (newHeight - oldHeight) * row / 2;
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+}
@@ -0,0 +1,281 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Represents a tile grid split into square chunks of CHUNK_SIZE x CHUNK_SIZE cells. A chunk where every cell holds
+ * the same tile is stored as that single value, and its cell array is only allocated the first time one of its
+ * cells is set to a different tile. Creating or resizing a blank grid therefore costs one byte per chunk.
+ * After a snapshot, the chunk tables are shared until the first write, which copies them; the cell arrays of the
+ * chunks are then copied one at a time, the first time each is written to.
+ */
+final class ChunkedTileGrid extends TileGrid {
+
+    private static final int CHUNK_SHIFT = 5;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final int chunksY;
+    private byte[][] chunks;
+    private byte[] uniform;
+    private boolean shared;
+    private boolean[] sharedCells;
+
+    /**
+     * Constructs a grid of the given size where every tile is plain.
+     *
+     * @param width  width of the grid
+     * @param height height of the grid
+     */
+    ChunkedTileGrid(int width, int height) {
+        super(width, height);
+        int chunksX = (width + CHUNK_MASK) >> CHUNK_SHIFT;
+        this.chunksY = (height + CHUNK_MASK) >> CHUNK_SHIFT;
+        this.chunks = new byte[chunksX * chunksY][];
+        this.uniform = new byte[chunksX * chunksY];
+        this.sharedCells = new boolean[chunksX * chunksY];
+        fill(TerrainTile.PLAIN);
+    }
+
+    /**
+     * Constructs a snapshot of the given grid, sharing its chunk tables.
+     *
+     * @param source the grid to copy
+     */
+    private ChunkedTileGrid(ChunkedTileGrid source) {
+        super(source.width, source.height);
+        this.chunksY = source.chunksY;
+        this.chunks = source.chunks;
+        this.uniform = source.uniform;
+        this.shared = true;
+    }
+
+    /**
+     * Returns the number of chunks whose cells have been allocated.
+     */
+    int getAllocatedChunkCount() {
+        int result = 0;
+        for (byte[] chunk : chunks) {
+            if (chunk != null) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    int getOrdinal(int x, int y) {
+        int chunk = chunkIndex(x, y);
+        byte[] cells = chunks[chunk];
+        return cells == null ? uniform[chunk] : cells[cellIndex(x, y)];
+    }
+
+    @Override
+    void setOrdinal(byte ordinal, int x, int y) {
+        if (shared) {
+            unshare();
+        }
+        int chunk = chunkIndex(x, y);
+        byte[] cells = chunks[chunk];
+        if (cells == null) {
+            if (uniform[chunk] == ordinal) {
+                return;
+            }
+            cells = new byte[CHUNK_SIZE * CHUNK_SIZE];
+            Arrays.fill(cells, uniform[chunk]);
+            chunks[chunk] = cells;
+        } else if (sharedCells[chunk]) {
+            cells = cells.clone();
+            chunks[chunk] = cells;
+            sharedCells[chunk] = false;
+        }
+        cells[cellIndex(x, y)] = ordinal;
+    }
+
+    @Override
+    void fill(TerrainTile tile) {
+        if (shared) {
+            unshare();
+        }
+        Arrays.fill(chunks, null);
+        Arrays.fill(uniform, (byte) tile.ordinal());
+    }
+
+    /**
+     * Fills the rectangle chunk by chunk. Chunks whose in-bounds cells are all covered become uniform and release
+     * their cell arrays; the others are filled one cell at a time.
+     */
+    @Override
+    void fillRect(byte ordinal, int x, int y, int w, int h) {
+        if (shared) {
+            unshare();
+        }
+        for (int cx = x >> CHUNK_SHIFT; cx <= (x + w - 1) >> CHUNK_SHIFT; cx++) {
+            for (int cy = y >> CHUNK_SHIFT; cy <= (y + h - 1) >> CHUNK_SHIFT; cy++) {
+                int startX = cx << CHUNK_SHIFT;
+                int startY = cy << CHUNK_SHIFT;
+                int endX = Math.min(startX + CHUNK_SIZE, width);
+                int endY = Math.min(startY + CHUNK_SIZE, height);
+                if (x <= startX && y <= startY && endX <= x + w && endY <= y + h) {
+                    chunks[cx * chunksY + cy] = null;
+                    uniform[cx * chunksY + cy] = ordinal;
+                } else {
+                    super.fillRect(ordinal, Math.max(x, startX), Math.max(y, startY),
+                            Math.min(endX, x + w) - Math.max(x, startX), Math.min(endY, y + h) - Math.max(y, startY));
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts tiles chunk by chunk. A uniform chunk adds its in-bounds area to its tile's count without visiting its
+     * cells.
+     */
+    @Override
+    int[] countTiles() {
+        int[] counts = new int[TILES.length];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            int startX = (chunk / chunksY) << CHUNK_SHIFT;
+            int startY = (chunk % chunksY) << CHUNK_SHIFT;
+            int endX = Math.min(startX + CHUNK_SIZE, width);
+            int endY = Math.min(startY + CHUNK_SIZE, height);
+            if (chunks[chunk] == null) {
+                counts[uniform[chunk]] += (endX - startX) * (endY - startY);
+            } else {
+                for (int i = startX; i < endX; i++) {
+                    for (int j = startY; j < endY; j++) {
+                        counts[chunks[chunk][cellIndex(i, j)]]++;
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Computes the fingerprint chunk by chunk, skipping uniform plain chunks since plain tiles have key 0.
+     */
+    @Override
+    long fingerprint() {
+        long result = 0;
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            if (chunks[chunk] == null && uniform[chunk] == TerrainTile.PLAIN.ordinal()) {
+                continue;
+            }
+            int startX = (chunk / chunksY) << CHUNK_SHIFT;
+            int startY = (chunk % chunksY) << CHUNK_SHIFT;
+            int endX = Math.min(startX + CHUNK_SIZE, width);
+            int endY = Math.min(startY + CHUNK_SIZE, height);
+            for (int i = startX; i < endX; i++) {
+                for (int j = startY; j < endY; j++) {
+                    result ^= ZobristHash.tile(i, j, getOrdinal(i, j));
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    TileStorage getStorage() {
+        return TileStorage.CHUNKED;
+    }
+
+    /**
+     * Returns a resized grid. When the offsets are multiples of CHUNK_SIZE, chunks that land entirely inside the new
+     * grid are carried over whole, keeping uniform chunks unallocated. Uniform plain chunks are skipped, since the
+     * new grid starts out plain. Any other kept cells are copied one at a time.
+     */
+    @Override
+    TileGrid resized(int newWidth, int newHeight, int offsetX, int offsetY) {
+        ChunkedTileGrid result = new ChunkedTileGrid(newWidth, newHeight);
+        boolean aligned = ((offsetX | offsetY) & CHUNK_MASK) == 0;
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            if (aligned && result.copyWholeChunk(this, chunk, offsetX, offsetY)) {
+                continue;
+            }
+            if (chunks[chunk] != null || uniform[chunk] != TerrainTile.PLAIN.ordinal()) {
+                result.copyChunkCells(this, chunk, offsetX, offsetY);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Copies a chunk of the source grid into this grid as a whole, if it is full-sized and lands exactly on a chunk
+     * of this grid.
+     *
+     * @param source  the grid to copy from
+     * @param chunk   index of the chunk in the source grid
+     * @param offsetX x offset of the source grid within this grid, a multiple of CHUNK_SIZE
+     * @param offsetY y offset of the source grid within this grid, a multiple of CHUNK_SIZE
+     * @return true if the chunk was copied, false if its cells must be copied individually
+     */
+    private boolean copyWholeChunk(ChunkedTileGrid source, int chunk, int offsetX, int offsetY) {
+        int sourceX = (chunk / source.chunksY) << CHUNK_SHIFT;
+        int sourceY = (chunk % source.chunksY) << CHUNK_SHIFT;
+        int x = sourceX + offsetX;
+        int y = sourceY + offsetY;
+        if (sourceX + CHUNK_SIZE > source.width || sourceY + CHUNK_SIZE > source.height
+                || x < 0 || y < 0 || x + CHUNK_SIZE > width || y + CHUNK_SIZE > height) {
+            return false;
+        }
+        int to = chunkIndex(x, y);
+        byte[] cells = source.chunks[chunk];
+        chunks[to] = cells == null ? null : cells.clone();
+        uniform[to] = source.uniform[chunk];
+        return true;
+    }
+
+    /**
+     * Copies the in-bounds cells of a chunk of the source grid into this grid, one at a time.
+     *
+     * @param source  the grid to copy from
+     * @param chunk   index of the chunk in the source grid
+     * @param offsetX x offset of the source grid within this grid
+     * @param offsetY y offset of the source grid within this grid
+     */
+    private void copyChunkCells(ChunkedTileGrid source, int chunk, int offsetX, int offsetY) {
+        int startX = (chunk / source.chunksY) << CHUNK_SHIFT;
+        int startY = (chunk % source.chunksY) << CHUNK_SHIFT;
+        int endX = Math.min(Math.min(startX + CHUNK_SIZE, source.width), width - offsetX);
+        int endY = Math.min(Math.min(startY + CHUNK_SIZE, source.height), height - offsetY);
+        for (int i = Math.max(startX, -offsetX); i < endX; i++) {
+            for (int j = Math.max(startY, -offsetY); j < endY; j++) {
+                setOrdinal((byte) source.getOrdinal(i, j), i + offsetX, j + offsetY);
+            }
+        }
+    }
+
+    @Override
+    TileGrid snapshot() {
+        shared = true;
+        return new ChunkedTileGrid(this);
+    }
+
+    /**
+     * Gives this grid its own chunk tables, marking every allocated chunk's cells as still shared with a snapshot.
+     */
+    private void unshare() {
+        chunks = chunks.clone();
+        uniform = uniform.clone();
+        sharedCells = new boolean[chunks.length];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            sharedCells[chunk] = chunks[chunk] != null;
+        }
+        shared = false;
+    }
+
+    /**
+     * Returns the index of the chunk holding the given cell.
+     */
+    private int chunkIndex(int x, int y) {
+        return (x >> CHUNK_SHIFT) * chunksY + (y >> CHUNK_SHIFT);
+    }
+
+    /**
+     * Returns the index of the given cell within its chunk's cell array.
+     */
+    private static int cellIndex(int x, int y) {
+        return (x & CHUNK_MASK) << CHUNK_SHIFT | (y & CHUNK_MASK);
+    }
+}
@@ -0,0 +1,166 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Records edit events from the model layer. An event is only captured when a sink wants it: either the given logger
+ * accepts FINE messages, or recording into the in-memory ring buffer has been started. Recorded events are kept as
+ * primitive fields, and are only turned into messages when the buffer is drained.
+ */
+public final class EventLog {
+
+    private static volatile EventLog recorder;
+
+    private final byte[] types;
+    private final int[] xs;
+    private final int[] ys;
+    private final int[] widths;
+    private final int[] heights;
+    private final int[] args;
+    private final Object[] details;
+    private int next;
+    private int count;
+
+    /**
+     * Constructs a ring buffer holding up to the given number of events.
+     *
+     * @param capacity maximum number of events kept; older events are overwritten
+     */
+    private EventLog(int capacity) {
+        types = new byte[capacity];
+        xs = new int[capacity];
+        ys = new int[capacity];
+        widths = new int[capacity];
+        heights = new int[capacity];
+        args = new int[capacity];
+        details = new Object[capacity];
+    }
+
+    /**
+     * Starts recording events into a new ring buffer, discarding any events recorded so far.
+     *
+     * @param capacity maximum number of events kept; older events are overwritten
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public static void startRecording(int capacity) throws IllegalArgumentException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        recorder = new EventLog(capacity);
+    }
+
+    /**
+     * Stops recording events and discards any events recorded so far.
+     */
+    public static void stopRecording() {
+        recorder = null;
+    }
+
+    /**
+     * Returns true if events are being recorded into the ring buffer.
+     */
+    public static boolean isRecording() {
+        return recorder != null;
+    }
+
+    /**
+     * Returns the messages of all recorded events, oldest first, and empties the ring buffer.
+     *
+     * @return the recorded messages, or an empty list if recording has not been started
+     */
+    public static List<String> drain() {
+        EventLog current = recorder;
+        return current == null ? new ArrayList<>() : current.drainMessages();
+    }
+
+    /**
+     * Records an event if the logger accepts FINE messages or the ring buffer is recording. Does nothing otherwise.
+     *
+     * @param log    logger of the class producing the event
+     * @param type   kind of event
+     * @param x      x coordinate, or first number, of the event
+     * @param y      y coordinate, or second number, of the event
+     * @param arg    ordinal or other number describing the event
+     * @param detail name or other object describing the event, may be null
+     */
+    static void record(Logger log, EventType type, int x, int y, int arg, Object detail) {
+        record(log, type, x, y, 0, 0, arg, detail);
+    }
+
+    /**
+     * Records an event covering a rectangle of cells.
+     *
+     * @param log    logger of the class producing the event
+     * @param type   kind of event
+     * @param x      x coordinate of the rectangle's left column
+     * @param y      y coordinate of the rectangle's top row
+     * @param width  width of the rectangle
+     * @param height height of the rectangle
+     * @param arg    ordinal or other number describing the event
+     */
+    static void record(Logger log, EventType type, int x, int y, int width, int height, int arg) {
+        record(log, type, x, y, width, height, arg, null);
+    }
+
+    /**
+     * Records an event if the logger accepts FINE messages or the ring buffer is recording.
+     */
+    private static void record(Logger log, EventType type, int x, int y, int width, int height, int arg,
+                               Object detail) {
+        EventLog current = recorder;
+        if (current != null) {
+            current.add(type, x, y, width, height, arg, detail);
+        }
+        if (log.isLoggable(Level.FINE)) {
+            log.fine(EventUtility.getMessage(type, x, y, width, height, arg, detail));
+        }
+    }
+
+    /**
+     * Records an event that has no detail object.
+     *
+     * @param log  logger of the class producing the event
+     * @param type kind of event
+     * @param x    x coordinate, or first number, of the event
+     * @param y    y coordinate, or second number, of the event
+     * @param arg  ordinal or other number describing the event
+     */
+    static void record(Logger log, EventType type, int x, int y, int arg) {
+        record(log, type, x, y, arg, null);
+    }
+
+    /**
+     * Adds an event to the ring buffer, overwriting the oldest event if the buffer is full.
+     */
+    private synchronized void add(EventType type, int x, int y, int width, int height, int arg, Object detail) {
+        types[next] = (byte) type.ordinal();
+        xs[next] = x;
+        ys[next] = y;
+        widths[next] = width;
+        heights[next] = height;
+        args[next] = arg;
+        details[next] = detail;
+        next = (next + 1) % types.length;
+        count = Math.min(count + 1, types.length);
+    }
+
+    /**
+     * Formats and removes every event in the ring buffer, oldest first.
+     */
+    private synchronized List<String> drainMessages() {
+        EventType[] eventTypes = EventType.values();
+        List<String> result = new ArrayList<>(count);
+        int first = (next - count + types.length) % types.length;
+        for (int i = 0; i < count; i++) {
+            int slot = (first + i) % types.length;
+            result.add(EventUtility.getMessage(eventTypes[types[slot]], xs[slot], ys[slot], widths[slot],
+                    heights[slot], args[slot], details[slot]));
+            details[slot] = null;
+        }
+        count = 0;
+        return result;
+    }
+}
@@ -0,0 +1,23 @@
+package model;
+
+/**
+ * Represents the kind of an event recorded by the EventLog.
+ */
+public enum EventType {
+    TERRAIN_CREATED,
+    TERRAIN_LOADED,
+    TERRAIN_SAVED,
+    SET_ALL_TO_PLAIN,
+    SET_TILE,
+    FILL_RECT,
+    PASTE_REGION,
+    CLEAR_UNITS,
+    RESIZE,
+    RENAME,
+    ADD_UNIT,
+    REMOVE_UNIT,
+    MOVE_UNIT,
+    UNIT_CREATED,
+    FACTION_CHANGE,
+    BATTLE_CLASS_CHANGE
+}
@@ -27,22 +27,34 @@ public abstract class EventUtility {
     /**
      * Returns the log message for instantiating terrain from width and height
      *
-     * @param t Terrain in question
+     * @param width width of the new terrain
+     * @param height height of the new terrain
+     * @param name name of the new terrain
      * @return message
      */
-    public static String getTerrainInstantiationFromWidthAndHeightMessage(Terrain t) {
-        return "Instantiated new terrain with a width of " + t.getWidth()
-                + ", a height of " + t.getHeight() + ", and name " + t.getName();
+    public static String getTerrainInstantiationFromWidthAndHeightMessage(int width, int height, String name) {
+        return "Instantiated new terrain with a width of " + width
+                + ", a height of " + height + ", and name " + name;
     }
 
     /**
      * Returns the log message for instantiating terrain from pre-existing parameters
      *
-     * @param t Terrain in question
+     * @param name name of the new terrain
      * @return message
      */
-    public static String getTerrainInstantiationFromExistingTerrainMessage(Terrain t) {
-        return "Instantiated terrain " + t.getName() + " with given parameters";
+    public static String getTerrainInstantiationFromExistingTerrainMessage(String name) {
+        return "Instantiated terrain " + name + " with given parameters";
+    }
+
+    /**
+     * Returns the log message for saving a terrain to JSON
+     *
+     * @param name name of the saved terrain
+     * @return message
+     */
+    public static String getSaveMessage(String name) {
+        return "Saved terrain " + name + " to JSON";
     }
 
     /**
@@ -101,38 +113,87 @@ public abstract class EventUtility {
         return "Set terrain at " + positionToString(x, y) + " to " + newTerrainTypeTile.toString();
     }
 
+    /**
+     * Returns the log message for filling a rectangle of a Terrain with one TerrainTile
+     *
+     * @param tile the TerrainTile that was set
+     * @param x x coordinate of the filled rectangle
+     * @param y y coordinate of the filled rectangle
+     * @param width width of the filled rectangle
+     * @param height height of the filled rectangle
+     * @return message
+     */
+    public static String getFillRectMessage(TerrainTile tile, int x, int y, int width, int height) {
+        return "Filled " + width + " x " + height + " tiles at " + positionToString(x, y) + " with "
+                + tile.toString();
+    }
+
+    /**
+     * Returns the log message for pasting a TileRegion into a Terrain
+     *
+     * @param x x coordinate of the rectangle the region was pasted into
+     * @param y y coordinate of the rectangle the region was pasted into
+     * @param width width of the rectangle the region was pasted into
+     * @param height height of the rectangle the region was pasted into
+     * @return message
+     */
+    public static String getPasteRegionMessage(int x, int y, int width, int height) {
+        return "Pasted " + width + " x " + height + " tiles at " + positionToString(x, y);
+    }
+
+    /**
+     * Returns the log message for removing the units in a rectangle of a Terrain
+     *
+     * @param count number of units removed
+     * @param x x coordinate of the cleared rectangle
+     * @param y y coordinate of the cleared rectangle
+     * @param width width of the cleared rectangle
+     * @param height height of the cleared rectangle
+     * @return message
+     */
+    public static String getClearUnitsMessage(int count, int x, int y, int width, int height) {
+        return "Removed " + count + " units from " + width + " x " + height + " tiles at " + positionToString(x, y);
+    }
+
     /**
      * Returns the log message for instantiating a Unit
      *
-     * @param unit the unit in question
+     * @param faction the unit's Faction
+     * @param battleClass the unit's BattleClass
+     * @param x unit x coordinate
+     * @param y unit y coordinate
      * @return message
      */
-    public static String getUnitInstantiationMessage(Unit unit) {
-        return "Instantiated a new unit of faction " + unit.getFaction().toString()
-                + ", battle class " + unit.getBattleClass().toString() + ", and position "
-                + EventUtility.positionToString(unit.getX(), unit.getY());
+    public static String getUnitInstantiationMessage(Faction faction, BattleClass battleClass, int x, int y) {
+        return "Instantiated a new unit of faction " + faction.toString()
+                + ", battle class " + battleClass.toString() + ", and position "
+                + EventUtility.positionToString(x, y);
     }
 
     /**
      * Returns the log message for changing a Unit's Faction
      *
-     * @param unit the unit in question
+     * @param faction the unit's new Faction
+     * @param x unit x coordinate
+     * @param y unit y coordinate
      * @return message
      */
-    public static String getFactionChangeMessage(Unit unit) {
-        return "Changed faction of unit at " + EventUtility.positionToString(unit.getX(), unit.getY())
-                + " to " + unit.getFaction().toString();
+    public static String getFactionChangeMessage(Faction faction, int x, int y) {
+        return "Changed faction of unit at " + EventUtility.positionToString(x, y)
+                + " to " + faction.toString();
     }
 
     /**
      * Returns the log message for changing a Unit's BattleClass
      *
-     * @param unit the unit in question
+     * @param battleClass the unit's new BattleClass
+     * @param x unit x coordinate
+     * @param y unit y coordinate
      * @return message
      */
-    public static String getBattleClassChangeMessage(Unit unit) {
-        return "Changed battle class of unit at " + EventUtility.positionToString(unit.getX(), unit.getY())
-                + " to " + unit.getBattleClass().toString();
+    public static String getBattleClassChangeMessage(BattleClass battleClass, int x, int y) {
+        return "Changed battle class of unit at " + EventUtility.positionToString(x, y)
+                + " to " + battleClass.toString();
     }
 
     /**
@@ -145,4 +206,39 @@ public abstract class EventUtility {
         return "Renamed terrain to " + newName;
     }
 
+    /**
+     * Returns the log message for an event recorded by the EventLog. The switch has no default, so adding an
+     * EventType without a message here is a compile error
+     *
+     * @param type kind of event
+     * @param x x coordinate, or first number, of the event
+     * @param y y coordinate, or second number, of the event
+     * @param width width of the rectangle the event covers, if it covers one
+     * @param height height of the rectangle the event covers, if it covers one
+     * @param arg ordinal or other number describing the event
+     * @param detail name or other object describing the event
+     * @return message
+     */
+    public static String getMessage(EventType type, int x, int y, int width, int height, int arg, Object detail) {
+        return switch (type) {
+            case TERRAIN_CREATED -> getTerrainInstantiationFromWidthAndHeightMessage(x, y, String.valueOf(detail));
+            case TERRAIN_LOADED -> getTerrainInstantiationFromExistingTerrainMessage(String.valueOf(detail));
+            case TERRAIN_SAVED -> getSaveMessage(String.valueOf(detail));
+            case SET_ALL_TO_PLAIN -> getSetAllToPlainMessage();
+            case SET_TILE -> getSetTileMessage(TerrainTile.values()[arg], x, y);
+            case FILL_RECT -> getFillRectMessage(TerrainTile.values()[arg], x, y, width, height);
+            case PASTE_REGION -> getPasteRegionMessage(x, y, width, height);
+            case CLEAR_UNITS -> getClearUnitsMessage(arg, x, y, width, height);
+            case RESIZE -> getResizeMessage(x, y);
+            case RENAME -> getRenameMessage(String.valueOf(detail));
+            case ADD_UNIT -> getAddUnitMessage(x, y);
+            case REMOVE_UNIT -> getRemoveUnitMessage(x, y);
+            case MOVE_UNIT -> getMoveUnitMessage(x, y);
+            case UNIT_CREATED -> getUnitInstantiationMessage(Faction.values()[arg >> 8],
+                    BattleClass.values()[arg & 0xFF], x, y);
+            case FACTION_CHANGE -> getFactionChangeMessage(Faction.values()[arg], x, y);
+            case BATTLE_CLASS_CHANGE -> getBattleClassChangeMessage(BattleClass.values()[arg], x, y);
+        };
+    }
+
 }
@@ -0,0 +1,180 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Represents a tile grid stored as one byte per cell, laid out column by column in one contiguous array. After a
+ * snapshot, the array is shared until the first write, which copies it.
+ */
+final class FlatTileGrid extends TileGrid {
+
+    private byte[] cells;
+    private boolean shared;
+
+    /**
+     * Constructs a grid of the given size where every tile is plain.
+     *
+     * @param width  width of the grid
+     * @param height height of the grid
+     */
+    FlatTileGrid(int width, int height) {
+        super(width, height);
+        this.cells = new byte[width * height];
+        fill(TerrainTile.PLAIN);
+    }
+
+    /**
+     * Constructs a grid holding the same tiles as the given 2D array, indexed [x][y].
+     *
+     * @param terrainTile the tiles to copy into the grid
+     */
+    FlatTileGrid(TerrainTile[][] terrainTile) {
+        super(terrainTile.length, terrainTile[0].length);
+        this.cells = new byte[width * height];
+        for (int i = 0; i < width; i++) {
+            int offset = i * height;
+            for (int j = 0; j < height; j++) {
+                cells[offset + j] = (byte) terrainTile[i][j].ordinal();
+            }
+        }
+    }
+
+    /**
+     * Constructs a grid that takes ownership of the given cells, laid out column by column.
+     *
+     * @param width  width of the grid
+     * @param height height of the grid
+     * @param cells  the tile ordinals of the grid, of length width * height
+     */
+    FlatTileGrid(int width, int height, byte[] cells) {
+        super(width, height);
+        this.cells = cells;
+    }
+
+    @Override
+    int getOrdinal(int x, int y) {
+        return cells[x * height + y];
+    }
+
+    @Override
+    void setOrdinal(byte ordinal, int x, int y) {
+        if (shared) {
+            unshare();
+        }
+        cells[x * height + y] = ordinal;
+    }
+
+    @Override
+    void fill(TerrainTile tile) {
+        if (shared) {
+            cells = new byte[cells.length];
+            shared = false;
+        }
+        Arrays.fill(cells, (byte) tile.ordinal());
+    }
+
+    /**
+     * Fills the rectangle one column at a time, since each column's cells are contiguous.
+     */
+    @Override
+    void fillRect(byte ordinal, int x, int y, int w, int h) {
+        if (shared) {
+            unshare();
+        }
+        for (int i = x; i < x + w; i++) {
+            int start = i * height + y;
+            Arrays.fill(cells, start, start + h, ordinal);
+        }
+    }
+
+    @Override
+    void getColumn(int x, int y, byte[] dest, int offset, int length) {
+        System.arraycopy(cells, x * height + y, dest, offset, length);
+    }
+
+    @Override
+    void setColumn(int x, int y, byte[] src, int offset, int length, int transparent) {
+        if (transparent < 0) {
+            if (shared) {
+                unshare();
+            }
+            System.arraycopy(src, offset, cells, x * height + y, length);
+        } else {
+            super.setColumn(x, y, src, offset, length, transparent);
+        }
+    }
+
+    @Override
+    TileGrid snapshot() {
+        FlatTileGrid copy = new FlatTileGrid(width, height, cells);
+        copy.shared = true;
+        shared = true;
+        return copy;
+    }
+
+    /**
+     * Gives this grid its own copy of the cells it shares with a snapshot.
+     */
+    private void unshare() {
+        cells = cells.clone();
+        shared = false;
+    }
+
+    @Override
+    int[] countTiles() {
+        int[] counts = new int[TILES.length];
+        for (byte cell : cells) {
+            counts[cell]++;
+        }
+        return counts;
+    }
+
+    @Override
+    long tallyRect(int x, int y, int w, int h, int[] counts) {
+        long result = 0;
+        for (int i = x; i < x + w; i++) {
+            int start = i * height;
+            for (int j = y; j < y + h; j++) {
+                byte ordinal = cells[start + j];
+                counts[ordinal]++;
+                result ^= ZobristHash.tile(i, j, ordinal);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    TileStorage getStorage() {
+        return TileStorage.FLAT;
+    }
+
+    /**
+     * Returns a resized grid, copying the kept part of each column with a single array copy.
+     */
+    @Override
+    TileGrid resized(int newWidth, int newHeight, int offsetX, int offsetY) {
+        FlatTileGrid result = new FlatTileGrid(newWidth, newHeight);
+        int firstRow = Math.max(0, -offsetY);
+        int endRow = Math.min(height, newHeight - offsetY);
+        int endColumn = Math.min(width, newWidth - offsetX);
+        for (int i = Math.max(0, -offsetX); i < endColumn && firstRow < endRow; i++) {
+            System.arraycopy(cells, i * height + firstRow,
+                    result.cells, (i + offsetX) * newHeight + firstRow + offsetY, endRow - firstRow);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof FlatTileGrid) {
+            FlatTileGrid other = (FlatTileGrid) o;
+            return width == other.width && height == other.height && Arrays.equals(cells, other.cells);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * width + height) + Arrays.hashCode(cells);
+    }
+}
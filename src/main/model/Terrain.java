@@ -4,9 +4,12 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 import persistence.Writable;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.logging.Logger;
 
 /**
@@ -18,14 +21,24 @@ public class Terrain implements Writable {
     private static final Logger log = Logger.getLogger(Terrain.class.getName());
 
     private String name;
-    private TerrainTile[][] terrainTile;
+    private TileGrid tiles;
+    private int[] tileCounts;
+    private long fingerprint;
 
     public static final int MIN_WIDTH = 15;
     public static final int MIN_HEIGHT = 10;
+    public static final long MAX_CELLS = Integer.MAX_VALUE;
+    public static final int JSON_VERSION = 2;
 
     private final UnitList units;
+    private final UnitIndex unitIndex;
+    private final List<TerrainListener> listeners = new ArrayList<>();
 
     private static final String BELOW_MIN_MSG = "Insufficient width or height";
+    private static final String ABOVE_MAX_MSG = "Width times height must not exceed " + MAX_CELLS;
+    private static final String INVALID_UNITS_MSG =
+            "Units must be in bounds, on distinct tiles and not on another Terrain";
+    private static final String REGION_OUT_OF_BOUNDS_MSG = "Region must be non-empty and lie on the map";
 
 
     /**
@@ -34,73 +47,205 @@ public class Terrain implements Writable {
      * @param name   name of the Terrain
      * @param width  width of Terrain. Must be greater than MIN_WIDTH
      * @param height height of Terrain. Must be greater than MIN_HEIGHT
-     * @throws IllegalArgumentException if width or height are insufficient
+     * @throws IllegalArgumentException if width or height are insufficient, or the map would have more than
+     *                                  MAX_CELLS tiles
      */
     public Terrain(String name, int width, int height) throws IllegalArgumentException {
-        if (width < MIN_WIDTH || height < MIN_HEIGHT) {
-            throw new IllegalArgumentException(BELOW_MIN_MSG);
-        }
+        this(name, width, height, TileStorage.FLAT);
+    }
+
+    /**
+     * Constructs a new map, entirely of plain tiles, with the given height and width specifications, storing its
+     * tiles in the given way.
+     *
+     * @param name    name of the Terrain
+     * @param width   width of Terrain. Must be greater than MIN_WIDTH
+     * @param height  height of Terrain. Must be greater than MIN_HEIGHT
+     * @param storage how the Terrain stores its tiles. CHUNKED suits very large maps of mostly one tile type
+     * @throws IllegalArgumentException if width or height are insufficient, or the map would have more than
+     *                                  MAX_CELLS tiles
+     */
+    public Terrain(String name, int width, int height, TileStorage storage) throws IllegalArgumentException {
+        checkSize(width, height);
         this.name = name;
-        this.terrainTile = new TerrainTile[width][height];
-        setAllTerrainToPlain(terrainTile);
+        this.tiles = TileGrid.create(width, height, storage);
+        this.tileCounts = new int[TileGrid.TILES.length];
+        this.tileCounts[TerrainTile.PLAIN.ordinal()] = width * height;
+        EventLog.record(log, EventType.SET_ALL_TO_PLAIN, 0, 0, 0);
         this.units = new UnitList();
-        log.fine(EventUtility.getTerrainInstantiationFromWidthAndHeightMessage(this));
+        this.unitIndex = new UnitIndex();
+        this.fingerprint = ZobristHash.size(width, height) ^ ZobristHash.name(name);
+        EventLog.record(log, EventType.TERRAIN_CREATED, width, height, 0, name);
     }
 
     /**
-     * Constructs a new map with the given specifications.
+     * Constructs a new map with the given specifications. The tiles are copied into the Terrain's own storage.
      *
      * @param name        name for new Terrain
-     * @param terrainTile 2D TerrainTile array of new Terrain. Width and Height of map must exceed
+     * @param terrainTile 2D TerrainTile array of new Terrain, indexed [x][y]. Width and Height of map must exceed
      *                    MIN_WIDTH and MIN_HEIGHT, respectively
      * @param units       list of units on the terrain
-     * @throws IllegalArgumentException if either width or height are insufficient
+     * @throws IllegalArgumentException if either width or height are insufficient, or if a unit is out of bounds,
+     *                                  shares its tile with another unit or is on another Terrain
      */
     public Terrain(String name, TerrainTile[][] terrainTile, UnitList units) {
-        if (terrainTile.length < MIN_WIDTH || terrainTile[0].length < MIN_HEIGHT) {
-            throw new IllegalArgumentException(BELOW_MIN_MSG);
-        }
+        this(name, new FlatTileGrid(terrainTile), units);
+    }
+
+    /**
+     * Constructs a new map that takes ownership of the given tile grid and unit list.
+     *
+     * @param name  name for new Terrain
+     * @param tiles tiles of new Terrain. Width and Height must exceed MIN_WIDTH and MIN_HEIGHT, respectively
+     * @param units list of units on the terrain
+     * @throws IllegalArgumentException if either width or height are insufficient, or if a unit is out of bounds,
+     *                                  shares its tile with another unit or is on another Terrain
+     */
+    Terrain(String name, TileGrid tiles, UnitList units) {
+        checkSize(tiles.getWidth(), tiles.getHeight());
         this.name = name;
-        this.terrainTile = terrainTile;
+        this.tiles = tiles;
+        this.tileCounts = tiles.countTiles();
         this.units = units;
-        log.fine(EventUtility.getTerrainInstantiationFromExistingTerrainMessage(this));
+        this.unitIndex = new UnitIndex();
+        if (!indexUnits()) {
+            throw new IllegalArgumentException(INVALID_UNITS_MSG);
+        }
+        recomputeFingerprint();
+        EventLog.record(log, EventType.TERRAIN_LOADED, 0, 0, 0, name);
     }
 
     /**
-     * Sets all tiles in the terrain array to plain.
+     * Constructs a copy of the given map, with its own tiles and units. Listeners are not copied.
      *
-     * @param map the TerrainTile array in question
+     * @param other the map to copy
      */
-    private static void setAllTerrainToPlain(TerrainTile[][] map) {
-        int width = map.length;
-        int height = map[0].length;
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
-                map[i][j] = TerrainTile.PLAIN;
-            }
+    public Terrain(Terrain other) {
+        this.name = other.name;
+        this.tiles = other.tiles.snapshot();
+        this.tileCounts = other.tileCounts.clone();
+        this.units = new UnitList();
+        for (Unit unit : other.units) {
+            units.add(new Unit(unit));
+        }
+        this.unitIndex = new UnitIndex();
+        indexUnits();
+        this.fingerprint = other.fingerprint;
+    }
+
+    /**
+     * Registers a listener to be told about every later edit to the map.
+     *
+     * @param listener the listener
+     */
+    public void addListener(TerrainListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops telling the given listener about edits to the map.
+     *
+     * @param listener the listener
+     */
+    public void removeListener(TerrainListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Tells every listener that tiles in the given rectangle may have changed.
+     */
+    private void fireTilesChanged(int x, int y, int w, int h) {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).tilesChanged(this, x, y, w, h);
         }
-        log.fine(EventUtility.getSetAllToPlainMessage());
     }
 
     /**
      * Returns the width of the map.
      */
     public int getWidth() {
-        return terrainTile.length;
+        return tiles.getWidth();
     }
 
     /**
      * Returns the height of the map.
      */
     public int getHeight() {
-        return terrainTile[0].length;
+        return tiles.getHeight();
+    }
+
+    /**
+     * Returns the number of tiles of the given type on the map. Counts are kept up to date as the map is edited, so
+     * this takes constant time.
+     *
+     * @param tile the tile type to count
+     * @return the number of tiles of that type
+     */
+    public int getTileCount(TerrainTile tile) {
+        return tileCounts[tile.ordinal()];
+    }
+
+    /**
+     * Returns the number of tiles of every type on the map.
+     *
+     * @return a map from each tile type to its number of tiles
+     */
+    public Map<TerrainTile, Integer> getTileCounts() {
+        Map<TerrainTile, Integer> result = new EnumMap<>(TerrainTile.class);
+        for (TerrainTile tile : TileGrid.TILES) {
+            result.put(tile, tileCounts[tile.ordinal()]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a 64-bit fingerprint of the map's name, dimensions, tiles and units. Maps with equal content always
+     * have equal fingerprints, whatever order they were edited in, and different maps almost never do. The
+     * fingerprint is kept up to date as the map is edited, so this takes constant time.
+     *
+     * @return the content fingerprint
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Recomputes the fingerprint from the full contents of the map.
+     */
+    private void recomputeFingerprint() {
+        long result = ZobristHash.size(getWidth(), getHeight()) ^ ZobristHash.name(name) ^ tiles.fingerprint();
+        for (Unit unit : units) {
+            result ^= ZobristHash.unit(unit);
+        }
+        fingerprint = result;
+    }
+
+    /**
+     * Updates the fingerprint after a unit on this map changed faction or battle class.
+     *
+     * @param unit           the edited unit
+     * @param oldFaction     the unit's faction before the edit
+     * @param oldBattleClass the unit's battle class before the edit
+     */
+    void unitEdited(Unit unit, Faction oldFaction, BattleClass oldBattleClass) {
+        fingerprint ^= ZobristHash.unit(unit.getX(), unit.getY(), oldFaction, oldBattleClass) ^ ZobristHash.unit(unit);
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).unitEdited(this, unit);
+        }
+    }
+
+    /**
+     * Returns the way the map stores its tiles.
+     */
+    public TileStorage getStorage() {
+        return tiles.getStorage();
     }
 
     /**
      * Returns the tile type.
      */
     public TerrainTile getTileType(int x, int y) {
-        return terrainTile[x][y];
+        return tiles.get(x, y);
     }
 
     /**
@@ -110,6 +255,45 @@ public class Terrain implements Writable {
         return name;
     }
 
+    /**
+     * Checks if the given position lies on the map.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return true if the position is in bounds, false otherwise.
+     */
+    private boolean isInBounds(int x, int y) {
+        return 0 <= x && x < getWidth() && 0 <= y && y < getHeight();
+    }
+
+    /**
+     * Throws if a map of the given size would be too small, or would have more tiles than MAX_CELLS. Keeping the
+     * number of tiles within an int lets cell numbers and tile counts be ints.
+     *
+     * @param width  width of the map
+     * @param height height of the map
+     * @throws IllegalArgumentException if the size is out of range
+     */
+    private static void checkSize(int width, int height) throws IllegalArgumentException {
+        if (width < MIN_WIDTH || height < MIN_HEIGHT) {
+            throw new IllegalArgumentException(BELOW_MIN_MSG);
+        }
+        if ((long) width * height > MAX_CELLS) {
+            throw new IllegalArgumentException(ABOVE_MAX_MSG);
+        }
+    }
+
+    /**
+     * Returns the key under which a unit at the given in-bounds position is indexed.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the cell number of the position
+     */
+    private int cellKey(int x, int y) {
+        return x * getHeight() + y;
+    }
+
     /**
      * Checks if there is a unit at the given position.
      *
@@ -118,49 +302,113 @@ public class Terrain implements Writable {
      * @return true if the position is unoccupied, false otherwise.
      */
     private boolean isPositionUnoccupied(int x, int y) {
-        for (Unit unit : units) {
-            if (unit.getX() == x && unit.getY() == y) {
+        return !unitIndex.contains(cellKey(x, y));
+    }
+
+    /**
+     * Rebuilds the unit index from the unit list.
+     *
+     * @return true if every unit is in bounds, on its own tile and not on another Terrain, false otherwise
+     */
+    private boolean indexUnits() {
+        unitIndex.clear();
+        for (int i = 0; i < units.size(); i++) {
+            Unit unit = units.get(i);
+            if (!isInBounds(unit.getX(), unit.getY()) || !isPositionUnoccupied(unit.getX(), unit.getY())
+                    || (unit.getOwner() != null && unit.getOwner() != this)) {
                 return false;
             }
+            unitIndex.put(cellKey(unit.getX(), unit.getY()), i);
+            unit.setOwner(this);
         }
         return true;
     }
 
     /**
-     * Adds unit to unit list and returns true if its tile is unoccupied, returns false otherwise.
+     * Adds unit to unit list and returns true if its tile is unoccupied, returns false otherwise. A unit already on
+     * a Terrain, this one or another, is not added; it must be deleted from that Terrain first.
      *
      * @param unit the unit to be added
      */
     public boolean addUnit(Unit unit) {
         int unitX = unit.getX();
         int unitY = unit.getY();
-        if (unitX < 0 || unitX >= getWidth() || unitY < 0 || unitY >= getHeight() || !isPositionUnoccupied(unit.getX(), unit.getY())) {
+        if (unit.getOwner() != null || !isInBounds(unitX, unitY) || !isPositionUnoccupied(unitX, unitY)) {
             return false;
         } else {
+            unitIndex.put(cellKey(unitX, unitY), units.size());
             units.add(unit);
-            log.fine(EventUtility.getAddUnitMessage(unitX, unitY));
+            unit.setOwner(this);
+            fingerprint ^= ZobristHash.unit(unit);
+            EventLog.record(log, EventType.ADD_UNIT, unitX, unitY, 0);
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).unitAdded(this, unit);
+            }
             return true;
         }
     }
 
     /**
-     * If there is a unit at (x, y), removes them.
+     * If there is a unit at (x, y), removes them in constant time by moving the last unit into their place in the
+     * unit list. This changes the order of getUnits, which equals ignores.
      *
      * @param x x coordinate
      * @param y y coordinate
      * @return true there was a unit at the given position, false otherwise
      */
     public boolean deleteUnit(int x, int y) {
-        for (Unit unit : units) {
-            if (unit.getX() == x && unit.getY() == y) {
-                units.remove(unit);
-                log.fine(EventUtility.getRemoveUnitMessage(x, y));
-                return true;
-            }
+        if (!isInBounds(x, y)) {
+            return false;
+        }
+        int index = unitIndex.remove(cellKey(x, y));
+        if (index == UnitIndex.EMPTY) {
+            return false;
+        }
+        Unit removed = units.swapRemove(index);
+        removed.setOwner(null);
+        fingerprint ^= ZobristHash.unit(removed);
+        if (index < units.size()) {
+            Unit moved = units.get(index);
+            unitIndex.put(cellKey(moved.getX(), moved.getY()), index);
         }
-        return false;
+        EventLog.record(log, EventType.REMOVE_UNIT, x, y, 0);
+        fireUnitRemoved(removed);
+        return true;
+    }
+
+    /**
+     * Moves the unit at (fromX, fromY) to (toX, toY) if there is a unit to move and the destination is an
+     * unoccupied tile on the map.
+     *
+     * @param fromX x coordinate of the unit
+     * @param fromY y coordinate of the unit
+     * @param toX   x coordinate of the destination
+     * @param toY   y coordinate of the destination
+     * @return true if the unit was moved, false otherwise
+     */
+    public boolean moveUnit(int fromX, int fromY, int toX, int toY) {
+        if (!isInBounds(fromX, fromY) || !isInBounds(toX, toY) || !isPositionUnoccupied(toX, toY)) {
+            return false;
+        }
+        int index = unitIndex.remove(cellKey(fromX, fromY));
+        if (index == UnitIndex.EMPTY) {
+            return false;
+        }
+        Unit unit = units.get(index);
+        fingerprint ^= ZobristHash.unit(unit);
+        unit.moveTo(toX, toY);
+        fingerprint ^= ZobristHash.unit(unit);
+        unitIndex.put(cellKey(toX, toY), index);
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).unitMoved(this, unit, fromX, fromY);
+        }
+        return true;
     }
 
+    /**
+     * Returns true if the given object is a Terrain with the same name, tiles and units. Units are compared by
+     * position, so the order in which they were added or removed does not matter.
+     */
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -170,12 +418,33 @@ public class Terrain implements Writable {
             return false;
         }
         Terrain terrain = (Terrain) o;
-        return name.equals(terrain.name) && Arrays.deepEquals(terrainTile, terrain.terrainTile) && units.equals(terrain.units);
+        if (fingerprint != terrain.fingerprint) {
+            return false;
+        }
+        return name.equals(terrain.name) && tiles.equals(terrain.tiles) && hasSameUnits(terrain);
     }
 
+    /**
+     * Returns true if the other map holds an equal unit on every cell that this map has a unit on, and no others.
+     */
+    private boolean hasSameUnits(Terrain other) {
+        if (units.size() != other.units.size()) {
+            return false;
+        }
+        for (Unit unit : units) {
+            if (!unit.equals(other.getUnit(unit.getX(), unit.getY()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a hash of the map's content fingerprint. Like the fingerprint, it changes whenever the map is edited.
+     */
     @Override
     public int hashCode() {
-        return Objects.hash(name);
+        return Long.hashCode(fingerprint);
     }
 
     /**
@@ -186,12 +455,56 @@ public class Terrain implements Writable {
      * @return the unit at the given coordinates, or null if no such unit exists
      */
     public Unit getUnit(int x, int y) {
-        for (Unit unit : units) {
-            if (x == unit.getX() && y == unit.getY()) {
-                return unit;
+        int index = isInBounds(x, y) ? unitIndex.get(cellKey(x, y)) : UnitIndex.EMPTY;
+        return index == UnitIndex.EMPTY ? null : units.get(index);
+    }
+
+    /**
+     * Returns the units in the given rectangle, ordered by column and then row. Parts of the rectangle off the map
+     * are ignored. A rectangle with fewer cells than there are units is looked up cell by cell in the unit index,
+     * so the cost depends on the size of the rectangle rather than the map or the number of units.
+     *
+     * @param x x coordinate of the rectangle's left column
+     * @param y y coordinate of the rectangle's top row
+     * @param w width of the rectangle
+     * @param h height of the rectangle
+     * @return the units in the rectangle
+     */
+    public List<Unit> getUnitsInRect(int x, int y, int w, int h) {
+        int x0 = Math.max(0, x);
+        int y0 = Math.max(0, y);
+        int x1 = clipEnd(x, w, getWidth());
+        int y1 = clipEnd(y, h, getHeight());
+        List<Unit> found = new ArrayList<>();
+        if (x0 >= x1 || y0 >= y1) {
+            return found;
+        }
+        if ((long) (x1 - x0) * (y1 - y0) > units.size()) {
+            for (Unit unit : units) {
+                if (isInside(unit, x0, y0, x1, y1)) {
+                    found.add(unit);
+                }
+            }
+            found.sort(Comparator.comparingInt(Unit::getX).thenComparingInt(Unit::getY));
+        } else {
+            lookUpUnits(x0, y0, x1, y1, found);
+        }
+        return found;
+    }
+
+    /**
+     * Adds the unit on each cell of the given in-bounds rectangle, from (x0, y0) inclusive to (x1, y1) exclusive, to
+     * the list, looking each cell up in the index.
+     */
+    private void lookUpUnits(int x0, int y0, int x1, int y1, List<Unit> found) {
+        for (int i = x0; i < x1; i++) {
+            for (int j = y0; j < y1; j++) {
+                int index = unitIndex.get(cellKey(i, j));
+                if (index != UnitIndex.EMPTY) {
+                    found.add(units.get(index));
+                }
             }
         }
-        return null;
     }
 
     /**
@@ -200,48 +513,77 @@ public class Terrain implements Writable {
      * @param newName the new name for this
      */
     public void rename(String newName) {
+        fingerprint ^= ZobristHash.name(name) ^ ZobristHash.name(newName);
         this.name = newName;
-        log.fine(EventUtility.getRenameMessage(newName));
+        EventLog.record(log, EventType.RENAME, 0, 0, 0, newName);
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).renamed(this);
+        }
     }
 
     /**
-     * Resizes the map to match the given parameters
+     * Resizes the map to match the given parameters, keeping the top-left corner fixed
      *
      * @param width  new width of Terrain. Must be greater than MIN_WIDTH
      * @param height new height of Terrain. Must be greater than MIN_HEIGHT
      * @throws IllegalArgumentException if width or height is too small
      */
-    public void resize(int width, int height) throws IllegalArgumentException{
-        if (width < MIN_WIDTH || height < MIN_HEIGHT) {
-            throw new IllegalArgumentException(BELOW_MIN_MSG);
-        }
-        TerrainTile[][] newTerrainTile = new TerrainTile[width][height];
-        TerrainTile[][] oldTerrainTile = this.terrainTile;
-        setAllTerrainToPlain(newTerrainTile);
-        int minWidth = Math.min(this.getWidth(), width);
-        int minHeight = Math.min(this.getHeight(), height);
-        for (int i = 0; i < minWidth; i++) {
-            if (minHeight >= 0)
-                System.arraycopy(oldTerrainTile[i], 0, newTerrainTile[i], 0, minHeight);
+    public void resize(int width, int height) throws IllegalArgumentException {
+        resize(width, height, 0, 0);
+    }
+
+    /**
+     * Resizes the map to match the given parameters, keeping the given anchor point fixed
+     *
+     * @param width  new width of Terrain. Must be greater than MIN_WIDTH
+     * @param height new height of Terrain. Must be greater than MIN_HEIGHT
+     * @param anchor the point of the map that stays in place
+     * @throws IllegalArgumentException if width or height is too small
+     */
+    public void resize(int width, int height, Anchor anchor) throws IllegalArgumentException {
+        resize(width, height, anchor.offsetX(getWidth(), width), anchor.offsetY(getHeight(), height));
+    }
+
+    /**
+     * Resizes the map to match the given parameters, moving the existing terrain and units by the given offsets.
+     * Terrain and units that end up outside the new bounds are removed, and uncovered tiles are plain.
+     *
+     * @param width   new width of Terrain. Must be greater than MIN_WIDTH
+     * @param height  new height of Terrain. Must be greater than MIN_HEIGHT
+     * @param offsetX how far right the existing terrain moves; negative values move it left
+     * @param offsetY how far down the existing terrain moves; negative values move it up
+     * @throws IllegalArgumentException if width or height is too small, or the map would have more than MAX_CELLS
+     *                                  tiles
+     */
+    public void resize(int width, int height, int offsetX, int offsetY) throws IllegalArgumentException {
+        checkSize(width, height);
+        this.tiles = tiles.resized(width, height, offsetX, offsetY);
+        this.tileCounts = tiles.countTiles();
+        handleUnits(offsetX, offsetY);
+        recomputeFingerprint();
+        EventLog.record(log, EventType.RESIZE, width, height, 0);
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).resized(this, offsetX, offsetY);
         }
-        this.terrainTile = newTerrainTile;
-        handleUnits();
-        log.fine(EventUtility.getResizeMessage(width, height));
     }
 
     /**
-     * Removes units outside the bounds of the map
+     * Moves units by the given offsets, removes units that end up outside the bounds of the map, and re-indexes the
+     * remaining units for the new dimensions
+     *
+     * @param offsetX how far right units move
+     * @param offsetY how far down units move
      */
-    private void handleUnits() {
-        int i = 0;
-        while (i < units.size()) {
-            Unit unit = units.get(i);
-            if (unit.getX() >= this.getWidth() || unit.getY() >= this.getHeight()) {
-                this.units.remove(unit);
-            } else {
-                i++;
+    private void handleUnits(int offsetX, int offsetY) {
+        units.removeIf(unit -> {
+            if (isInBounds(unit.getX() + offsetX, unit.getY() + offsetY)) {
+                unit.translate(offsetX, offsetY);
+                return false;
             }
-        }
+            unit.setOwner(null);
+            return true;
+        });
+        indexUnits();
     }
 
     /**
@@ -253,9 +595,15 @@ public class Terrain implements Writable {
      * @param y                  y coordinate
      */
     public boolean setTile(TerrainTile newTerrainTypeTile, int x, int y) {
-        if (0 <= x && x < getWidth() && 0 <= y && y < getHeight() && terrainTile[x][y] != newTerrainTypeTile) {
-            terrainTile[x][y] = newTerrainTypeTile;
-            log.fine(EventUtility.getSetTileMessage(newTerrainTypeTile, x, y));
+        TerrainTile oldTerrainTypeTile = isInBounds(x, y) ? tiles.get(x, y) : newTerrainTypeTile;
+        if (oldTerrainTypeTile != newTerrainTypeTile) {
+            tiles.set(newTerrainTypeTile, x, y);
+            tileCounts[oldTerrainTypeTile.ordinal()]--;
+            tileCounts[newTerrainTypeTile.ordinal()]++;
+            fingerprint ^= ZobristHash.tile(x, y, oldTerrainTypeTile.ordinal())
+                    ^ ZobristHash.tile(x, y, newTerrainTypeTile.ordinal());
+            EventLog.record(log, EventType.SET_TILE, x, y, newTerrainTypeTile.ordinal());
+            fireTilesChanged(x, y, 1, 1);
             return true;
 
         } else {
@@ -264,62 +612,243 @@ public class Terrain implements Writable {
     }
 
     /**
-     * Returns all units on the terrain
+     * Sets every tile in the given rectangle to the new type. Parts of the rectangle off the map are ignored.
+     *
+     * @param tile the new terrain tile type
+     * @param x    x coordinate of the rectangle's left column
+     * @param y    y coordinate of the rectangle's top row
+     * @param w    width of the rectangle
+     * @param h    height of the rectangle
+     * @return true if the rectangle overlaps the map, false otherwise
+     */
+    public boolean fillRect(TerrainTile tile, int x, int y, int w, int h) {
+        int x0 = Math.max(0, x);
+        int y0 = Math.max(0, y);
+        int width = clipEnd(x, w, getWidth()) - x0;
+        int height = clipEnd(y, h, getHeight()) - y0;
+        if (width <= 0 || height <= 0) {
+            return false;
+        }
+        editRect(x0, y0, width, height, () -> tiles.fillRect((byte) tile.ordinal(), x0, y0, width, height));
+        EventLog.record(log, EventType.FILL_RECT, x0, y0, width, height, tile.ordinal());
+        fireTilesChanged(x0, y0, width, height);
+        return true;
+    }
+
+    /**
+     * Copies the tiles in the given rectangle into a new region.
+     *
+     * @param x x coordinate of the rectangle's left column
+     * @param y y coordinate of the rectangle's top row
+     * @param w width of the rectangle
+     * @param h height of the rectangle
+     * @return a region holding a copy of the tiles
+     * @throws IllegalArgumentException if the rectangle is empty or does not lie entirely on the map
+     */
+    public TileRegion copyRegion(int x, int y, int w, int h) throws IllegalArgumentException {
+        if (w <= 0 || h <= 0 || !isInBounds(x, y) || !isInBounds(x + w - 1, y + h - 1)) {
+            throw new IllegalArgumentException(REGION_OUT_OF_BOUNDS_MSG);
+        }
+        TileRegion result = new TileRegion(w, h);
+        for (int i = 0; i < w; i++) {
+            tiles.getColumn(x + i, y, result.cells, i * h, h);
+        }
+        return result;
+    }
+
+    /**
+     * Pastes the tiles of the region into the map with the region's top-left corner at (x, y). Parts of the region
+     * off the map are ignored.
+     *
+     * @param region      the tiles to paste
+     * @param x           x coordinate of the region's left column on the map
+     * @param y           y coordinate of the region's top row on the map
+     * @param transparent tile type in the region that leaves the map's tile unchanged, or null to paste every tile
+     * @return true if the region overlaps the map, false otherwise
+     */
+    public boolean pasteRegion(TileRegion region, int x, int y, TerrainTile transparent) {
+        int x0 = Math.max(0, x);
+        int y0 = Math.max(0, y);
+        int width = clipEnd(x, region.getWidth(), getWidth()) - x0;
+        int height = clipEnd(y, region.getHeight(), getHeight()) - y0;
+        if (width <= 0 || height <= 0) {
+            return false;
+        }
+        int skip = transparent == null ? -1 : transparent.ordinal();
+        editRect(x0, y0, width, height, () -> {
+            for (int i = 0; i < width; i++) {
+                int offset = (x0 - x + i) * region.getHeight() + y0 - y;
+                tiles.setColumn(x0 + i, y0, region.cells, offset, height, skip);
+            }
+        });
+        EventLog.record(log, EventType.PASTE_REGION, x0, y0, width, height, 0);
+        fireTilesChanged(x0, y0, width, height);
+        return true;
+    }
+
+    /**
+     * Removes every unit in the given rectangle. Parts of the rectangle off the map are ignored.
+     *
+     * @param x x coordinate of the rectangle's left column
+     * @param y y coordinate of the rectangle's top row
+     * @param w width of the rectangle
+     * @param h height of the rectangle
+     * @return the number of units removed
+     */
+    public int clearUnitsInRect(int x, int y, int w, int h) {
+        int x0 = Math.max(0, x);
+        int y0 = Math.max(0, y);
+        int x1 = clipEnd(x, w, getWidth());
+        int y1 = clipEnd(y, h, getHeight());
+        List<Unit> removed = new ArrayList<>();
+        units.removeIf(unit -> {
+            if (!isInside(unit, x0, y0, x1, y1)) {
+                return false;
+            }
+            unit.setOwner(null);
+            fingerprint ^= ZobristHash.unit(unit);
+            removed.add(unit);
+            return true;
+        });
+        if (!removed.isEmpty()) {
+            indexUnits();
+            EventLog.record(log, EventType.CLEAR_UNITS, x0, y0, x1 - x0, y1 - y0, removed.size());
+            removed.forEach(this::fireUnitRemoved);
+        }
+        return removed.size();
+    }
+
+    /**
+     * Tells every listener that the given unit was removed.
+     */
+    private void fireUnitRemoved(Unit unit) {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).unitRemoved(this, unit);
+        }
+    }
+
+    /**
+     * Returns the end, exclusive, of a span of the given length starting at start, clipped to the given limit.
+     */
+    private static int clipEnd(int start, int length, int limit) {
+        return (int) Math.min(limit, (long) start + length);
+    }
+
+    /**
+     * Returns true if the unit lies in the rectangle from (x0, y0) inclusive to (x1, y1) exclusive.
+     */
+    private static boolean isInside(Unit unit, int x0, int y0, int x1, int y1) {
+        return unit.getX() >= x0 && unit.getX() < x1 && unit.getY() >= y0 && unit.getY() < y1;
+    }
+
+    /**
+     * Applies an edit confined to the given in-bounds rectangle, updating the tile counts and fingerprint from the
+     * rectangle's contents before and after the edit.
+     *
+     * @param x    x coordinate of the rectangle's left column
+     * @param y    y coordinate of the rectangle's top row
+     * @param w    width of the rectangle
+     * @param h    height of the rectangle
+     * @param edit the edit to apply to the tile grid
+     */
+    private void editRect(int x, int y, int w, int h, Runnable edit) {
+        int[] removed = new int[TileGrid.TILES.length];
+        int[] added = new int[TileGrid.TILES.length];
+        long before = tiles.tallyRect(x, y, w, h, removed);
+        edit.run();
+        long after = tiles.tallyRect(x, y, w, h, added);
+        for (int i = 0; i < tileCounts.length; i++) {
+            tileCounts[i] += added[i] - removed[i];
+        }
+        fingerprint ^= before ^ after;
+    }
+
+    /**
+     * Returns a read-only view of all units on the terrain. Units must be added and removed through the Terrain so
+     * that its index stays consistent.
      *
      * @return the list of all units
      */
     public List<Unit> getUnits() {
-        return units;
+        return Collections.unmodifiableList(units);
     }
 
 
     //All methods beyond this point were modeled after methods from the Workroom class
     //https://github.students.cs.ubc.ca/CPSC210/JsonSerializationDemo
+
+    /**
+     * Transforms the map into a JSON object in the version 2 schema: a legend from tile symbols to tile names, and
+     * one string per row of tiles, in which each run of identical tiles is written as the tile's symbol followed by
+     * the length of the run, if longer than one.
+     *
+     * @return the JSON representation of the map
+     */
     @Override
     public JSONObject toJson() {
         JSONObject mapJson = new JSONObject();
+        mapJson.put("version", JSON_VERSION);
         mapJson.put("name", this.name);
-        mapJson.put("terrainFull", columnsToJson());
+        mapJson.put("width", getWidth());
+        mapJson.put("height", getHeight());
+        mapJson.put("legend", legendToJson());
+        mapJson.put("rows", rowsToJson());
         mapJson.put("units", units.toJson());
-        log.fine("Saved terrain " + name + " to JSON");
+        EventLog.record(log, EventType.TERRAIN_SAVED, 0, 0, 0, name);
         return mapJson;
     }
 
     /**
-     * Transforms all columns of a map into a JSON array
+     * Transforms the tile symbols into a JSON object mapping each symbol to its tile, as it is stored in the version
+     * 2 JSON schema. JsonWriter streams the same legend.
      *
-     * @return the JSON array of columns
+     * @return the JSON object of tile symbols
      */
-    private JSONArray columnsToJson() {
-        JSONArray result = new JSONArray();
-        for (TerrainTile[] terrainTileList : this.terrainTile) {
-            result.put(columnToJson(terrainTileList));
+    public static JSONObject legendToJson() {
+        JSONObject result = new JSONObject();
+        for (TerrainTile tile : TileGrid.TILES) {
+            result.put(String.valueOf(tile.getSymbol()), tile);
         }
         return result;
     }
 
     /**
-     * Transforms an individual column into a JSON array
+     * Transforms all rows of a map into a JSON array of run-length encoded strings
      *
-     * @return a JSON array representing one column of terrain
+     * @return the JSON array of rows
      */
-    private static JSONArray columnToJson(TerrainTile[] terrainTileList) {
+    private JSONArray rowsToJson() {
         JSONArray result = new JSONArray();
-        for (TerrainTile terrainTile : terrainTileList) {
-            result.put(terrainToJson(terrainTile));
+        int height = getHeight();
+        for (int j = 0; j < height; j++) {
+            result.put(encodeRow(j));
         }
         return result;
     }
 
     /**
-     * Transforms a tile into a JSON object
+     * Run-length encodes an individual row, as it is stored in the version 2 JSON schema: each run of identical
+     * tiles is written as the tile's symbol, followed by the length of the run if it is longer than one.
      *
-     * @return a JSON object representing a terrain tile
+     * @param y y coordinate of the row
+     * @return the encoded row
      */
-    private static JSONObject terrainToJson(TerrainTile terrainTile) {
-        JSONObject result = new JSONObject();
-        result.put("terrain", terrainTile);
-        return result;
+    public String encodeRow(int y) {
+        StringBuilder row = new StringBuilder();
+        int width = getWidth();
+        int x = 0;
+        while (x < width) {
+            int ordinal = tiles.getOrdinal(x, y);
+            int end = x + 1;
+            while (end < width && tiles.getOrdinal(end, y) == ordinal) {
+                end++;
+            }
+            row.append(TileGrid.TILES[ordinal].getSymbol());
+            if (end - x > 1) {
+                row.append(end - x);
+            }
+            x = end;
+        }
+        return row.toString();
     }
-
 }
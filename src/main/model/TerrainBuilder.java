@@ -0,0 +1,193 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Builds a Terrain from tiles supplied one at a time, column by column, for readers that decode a map as it streams
+ * in. Tiles are packed into a single growable byte array that becomes the Terrain's storage, so no intermediate
+ * TerrainTile[][] is needed.
+ */
+public final class TerrainBuilder {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private String name;
+    private byte[] cells;
+    private int size;
+    private int columns;
+    private int height = -1;
+    private final UnitList units;
+
+    /**
+     * Constructs a builder with no name, tiles or units.
+     */
+    public TerrainBuilder() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs a builder with no name, tiles or units, with room for the given number of tiles. When the number
+     * of tiles is known in advance, this avoids growing and trimming the tile array.
+     *
+     * @param capacity expected number of tiles
+     */
+    public TerrainBuilder(int capacity) {
+        this.cells = new byte[Math.max(capacity, 1)];
+        this.units = new UnitList();
+    }
+
+    /**
+     * Sets the name of the Terrain.
+     *
+     * @param name the name
+     * @return this builder
+     */
+    public TerrainBuilder setName(String name) {
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * Adds a tile to the bottom of the current column.
+     *
+     * @param tile the tile
+     * @return this builder
+     */
+    public TerrainBuilder addTile(TerrainTile tile) {
+        ensureCapacity(size + 1);
+        cells[size++] = (byte) tile.ordinal();
+        return this;
+    }
+
+    /**
+     * Fixes the dimensions of the map up front, filling it with plain tiles that can then be replaced with setRun.
+     * This is for sources that list tiles row by row; addTile and addTiles must not be used afterwards.
+     *
+     * @param width  width of the map
+     * @param height height of the map
+     * @return this builder
+     * @throws IllegalArgumentException if either dimension is negative, or the map would have more than
+     *                                  Terrain.MAX_CELLS tiles
+     * @throws IllegalStateException if tiles have already been added
+     */
+    public TerrainBuilder setSize(int width, int height) throws IllegalArgumentException, IllegalStateException {
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Dimensions must not be negative");
+        }
+        if ((long) width * height > Terrain.MAX_CELLS) {
+            throw new IllegalArgumentException("Width times height must not exceed " + Terrain.MAX_CELLS);
+        }
+        if (size > 0) {
+            throw new IllegalStateException("Tiles have already been added");
+        }
+        cells = new byte[width * height];
+        Arrays.fill(cells, (byte) TerrainTile.PLAIN.ordinal());
+        size = cells.length;
+        columns = width;
+        this.height = height;
+        return this;
+    }
+
+    /**
+     * Sets a horizontal run of tiles, after the dimensions have been fixed with setSize.
+     *
+     * @param tile   the tile
+     * @param x      x coordinate of the first tile of the run
+     * @param y      y coordinate of the run
+     * @param length number of tiles in the run
+     * @return this builder
+     * @throws IllegalArgumentException if the run does not lie within the dimensions set with setSize
+     */
+    public TerrainBuilder setRun(TerrainTile tile, int x, int y, int length) throws IllegalArgumentException {
+        if (x < 0 || y < 0 || y >= height || length < 0 || length > columns - x) {
+            throw new IllegalArgumentException("Run at (" + x + ", " + y + ") does not fit in the map");
+        }
+        byte ordinal = (byte) tile.ordinal();
+        for (int i = x; i < x + length; i++) {
+            cells[i * height + y] = ordinal;
+        }
+        return this;
+    }
+
+    /**
+     * Adds tiles, given as TerrainTile ordinals, to the bottom of the current column with a single bulk copy.
+     *
+     * @param ordinals buffer holding one ordinal per byte, read from its current position
+     * @param count    number of tiles to add
+     * @return this builder
+     * @throws IllegalArgumentException if a byte is not the ordinal of a TerrainTile
+     * @throws java.nio.BufferUnderflowException if the buffer holds fewer than count bytes
+     */
+    public TerrainBuilder addTiles(ByteBuffer ordinals, int count) throws IllegalArgumentException {
+        ensureCapacity(size + count);
+        ordinals.get(cells, size, count);
+        for (int i = size; i < size + count; i++) {
+            if (cells[i] < 0 || cells[i] >= TileGrid.TILES.length) {
+                throw new IllegalArgumentException("Unknown tile ordinal " + cells[i]);
+            }
+        }
+        size += count;
+        return this;
+    }
+
+    /**
+     * Grows the tile array so that it can hold at least the given number of tiles.
+     *
+     * @param capacity the required capacity
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > cells.length) {
+            cells = Arrays.copyOf(cells, Math.max(capacity, cells.length + (cells.length >> 1)));
+        }
+    }
+
+    /**
+     * Ends the current column. The first column fixes the height of the map.
+     *
+     * @return this builder
+     * @throws IllegalArgumentException if the column's height differs from the first column's
+     */
+    public TerrainBuilder endColumn() throws IllegalArgumentException {
+        int columnHeight = size - columns * Math.max(height, 0);
+        if (height < 0) {
+            height = columnHeight;
+        } else if (columnHeight != height) {
+            throw new IllegalArgumentException("Column " + columns + " has height " + columnHeight
+                    + " but the map has height " + height);
+        }
+        columns++;
+        return this;
+    }
+
+    /**
+     * Adds a unit to the Terrain.
+     *
+     * @param unit the unit
+     * @return this builder
+     */
+    public TerrainBuilder addUnit(Unit unit) {
+        units.add(unit);
+        return this;
+    }
+
+    /**
+     * Builds the Terrain. The builder must not be used afterwards.
+     *
+     * @return the new Terrain
+     * @throws IllegalArgumentException if no name was set, if a column was left unfinished, if either width or
+     *                                  height are insufficient, or if a unit is out of bounds or shares its tile
+     *                                  with another unit
+     */
+    public Terrain build() throws IllegalArgumentException {
+        if (name == null) {
+            throw new IllegalArgumentException("Terrain must have a name");
+        }
+        if (size != columns * Math.max(height, 0)) {
+            throw new IllegalArgumentException("Last column was not ended");
+        }
+        byte[] packed = size == cells.length ? cells : Arrays.copyOf(cells, size);
+        cells = null;
+        return new Terrain(name, new FlatTileGrid(columns, Math.max(height, 0), packed), units);
+    }
+}
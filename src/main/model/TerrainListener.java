@@ -0,0 +1,77 @@
+package model;
+
+/**
+ * Represents an observer of the edits made to a Terrain. Each method is called once the edit is complete, on the
+ * thread that made it. Methods do nothing by default, so listeners only implement the edits they care about.
+ */
+public interface TerrainListener {
+
+    /**
+     * Called when tiles in the given in-bounds rectangle may have changed.
+     *
+     * @param terrain the edited Terrain
+     * @param x       x coordinate of the rectangle's left column
+     * @param y       y coordinate of the rectangle's top row
+     * @param width   width of the rectangle
+     * @param height  height of the rectangle
+     */
+    default void tilesChanged(Terrain terrain, int x, int y, int width, int height) {
+    }
+
+    /**
+     * Called when a unit has been added.
+     *
+     * @param terrain the edited Terrain
+     * @param unit    the added unit
+     */
+    default void unitAdded(Terrain terrain, Unit unit) {
+    }
+
+    /**
+     * Called when a unit has been removed. The unit keeps the position it had on the map.
+     *
+     * @param terrain the edited Terrain
+     * @param unit    the removed unit
+     */
+    default void unitRemoved(Terrain terrain, Unit unit) {
+    }
+
+    /**
+     * Called when a unit has moved to another tile.
+     *
+     * @param terrain the edited Terrain
+     * @param unit    the moved unit, at its new position
+     * @param fromX   x coordinate the unit moved from
+     * @param fromY   y coordinate the unit moved from
+     */
+    default void unitMoved(Terrain terrain, Unit unit, int fromX, int fromY) {
+    }
+
+    /**
+     * Called when a unit on the map has changed faction or battle class.
+     *
+     * @param terrain the edited Terrain
+     * @param unit    the edited unit
+     */
+    default void unitEdited(Terrain terrain, Unit unit) {
+    }
+
+    /**
+     * Called when the Terrain has been renamed.
+     *
+     * @param terrain the renamed Terrain
+     */
+    default void renamed(Terrain terrain) {
+    }
+
+    /**
+     * Called when the Terrain has been resized. Tiles and units moved by the given offsets, and any that ended up
+     * off the map were removed.
+     *
+     * @param terrain the resized Terrain
+     * @param offsetX how far right the existing tiles and units moved
+     * @param offsetY how far down the existing tiles and units moved
+     */
+    default void resized(Terrain terrain, int offsetX, int offsetY) {
+    }
+}
@@ -4,12 +4,25 @@ package model;
  * Represents a tile of terrain on a map.
  */
 public enum TerrainTile {
-    PLAIN,
-    MOUNTAIN,
-    WATER,
-    FOREST,
-    WALL,
-    CHEST,
-    GATE,
-    THRONE
+    PLAIN('P'),
+    MOUNTAIN('M'),
+    WATER('W'),
+    FOREST('F'),
+    WALL('X'),
+    CHEST('C'),
+    GATE('G'),
+    THRONE('T');
+
+    private final char symbol;
+
+    TerrainTile(char symbol) {
+        this.symbol = symbol;
+    }
+
+    /**
+     * Returns the letter that stands for this tile in the rows of a saved map.
+     */
+    public char getSymbol() {
+        return symbol;
+    }
 }
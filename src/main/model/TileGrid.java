@@ -0,0 +1,259 @@
+package model;
+
+/**
+ * Represents a rectangular grid of terrain tiles. Each cell holds the ordinal of its TerrainTile, and subclasses
+ * decide how the cells are stored.
+ */
+abstract class TileGrid {
+
+    static final TerrainTile[] TILES = TerrainTile.values();
+
+    protected final int width;
+    protected final int height;
+
+    /**
+     * Constructs a grid of the given size.
+     *
+     * @param width  width of the grid
+     * @param height height of the grid
+     * @throws IllegalArgumentException if the grid would have more than Terrain.MAX_CELLS tiles
+     */
+    protected TileGrid(int width, int height) throws IllegalArgumentException {
+        if ((long) width * height > Terrain.MAX_CELLS) {
+            throw new IllegalArgumentException("Width times height must not exceed " + Terrain.MAX_CELLS);
+        }
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Returns a new grid of the given size and storage where every tile is plain.
+     *
+     * @param width   width of the grid
+     * @param height  height of the grid
+     * @param storage how the grid stores its tiles
+     * @return the new grid
+     */
+    static TileGrid create(int width, int height, TileStorage storage) {
+        return storage == TileStorage.CHUNKED ? new ChunkedTileGrid(width, height) : new FlatTileGrid(width, height);
+    }
+
+    /**
+     * Returns the width of the grid.
+     */
+    int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the grid.
+     */
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the tile at the given position. The position must be in bounds.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the tile at (x, y)
+     */
+    TerrainTile get(int x, int y) {
+        return TILES[getOrdinal(x, y)];
+    }
+
+    /**
+     * Sets the tile at the given position. The position must be in bounds.
+     *
+     * @param tile the new tile
+     * @param x    x coordinate
+     * @param y    y coordinate
+     */
+    void set(TerrainTile tile, int x, int y) {
+        setOrdinal((byte) tile.ordinal(), x, y);
+    }
+
+    /**
+     * Returns the ordinal of the tile at the given position. The position must be in bounds.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the ordinal of the tile at (x, y)
+     */
+    abstract int getOrdinal(int x, int y);
+
+    /**
+     * Sets the ordinal of the tile at the given position. The position must be in bounds.
+     *
+     * @param ordinal the ordinal of the new tile
+     * @param x       x coordinate
+     * @param y       y coordinate
+     */
+    abstract void setOrdinal(byte ordinal, int x, int y);
+
+    /**
+     * Sets every tile in the grid to the given tile.
+     *
+     * @param tile the new tile
+     */
+    abstract void fill(TerrainTile tile);
+
+    /**
+     * Sets every tile in the given rectangle to the tile with the given ordinal. The rectangle must be in bounds.
+     *
+     * @param ordinal the ordinal of the new tile
+     * @param x       x coordinate of the rectangle's left column
+     * @param y       y coordinate of the rectangle's top row
+     * @param w       width of the rectangle
+     * @param h       height of the rectangle
+     */
+    void fillRect(byte ordinal, int x, int y, int w, int h) {
+        for (int i = x; i < x + w; i++) {
+            for (int j = y; j < y + h; j++) {
+                setOrdinal(ordinal, i, j);
+            }
+        }
+    }
+
+    /**
+     * Copies the ordinals of a run of cells in one column into the given array. The run must be in bounds.
+     *
+     * @param x      x coordinate of the column
+     * @param y      y coordinate of the first cell of the run
+     * @param dest   array to copy into
+     * @param offset position in dest of the first cell
+     * @param length number of cells in the run
+     */
+    void getColumn(int x, int y, byte[] dest, int offset, int length) {
+        for (int j = 0; j < length; j++) {
+            dest[offset + j] = (byte) getOrdinal(x, y + j);
+        }
+    }
+
+    /**
+     * Sets a run of cells in one column to the ordinals in the given array. The run must be in bounds.
+     *
+     * @param x           x coordinate of the column
+     * @param y           y coordinate of the first cell of the run
+     * @param src         array holding the new ordinals
+     * @param offset      position in src of the first cell
+     * @param length      number of cells in the run
+     * @param transparent ordinal that leaves the cell unchanged, or a negative number to set every cell
+     */
+    void setColumn(int x, int y, byte[] src, int offset, int length, int transparent) {
+        for (int j = 0; j < length; j++) {
+            byte ordinal = src[offset + j];
+            if (ordinal != transparent) {
+                setOrdinal(ordinal, x, y + j);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of cells holding each tile, indexed by the tile's ordinal.
+     */
+    abstract int[] countTiles();
+
+    /**
+     * Adds the number of cells holding each tile in the given rectangle to counts, and returns the XOR of the
+     * Zobrist keys of those cells. The rectangle must be in bounds.
+     *
+     * @param x      x coordinate of the rectangle's left column
+     * @param y      y coordinate of the rectangle's top row
+     * @param w      width of the rectangle
+     * @param h      height of the rectangle
+     * @param counts tile counts indexed by ordinal, added to by this method
+     * @return the fingerprint of the rectangle
+     */
+    long tallyRect(int x, int y, int w, int h, int[] counts) {
+        long result = 0;
+        for (int i = x; i < x + w; i++) {
+            for (int j = y; j < y + h; j++) {
+                int ordinal = getOrdinal(i, j);
+                counts[ordinal]++;
+                result ^= ZobristHash.tile(i, j, ordinal);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the XOR of the Zobrist keys of every cell in the grid.
+     */
+    long fingerprint() {
+        long result = 0;
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                result ^= ZobristHash.tile(i, j, getOrdinal(i, j));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns how this grid stores its tiles.
+     */
+    abstract TileStorage getStorage();
+
+    /**
+     * Returns a new grid with the same storage and the given size. The tiles of this grid are placed with their
+     * top-left corner at (offsetX, offsetY) in the new grid; tiles falling outside it are dropped, and cells not
+     * covered by this grid are plain.
+     *
+     * @param newWidth  width of the new grid
+     * @param newHeight height of the new grid
+     * @param offsetX   x coordinate in the new grid of this grid's left column; may be negative
+     * @param offsetY   y coordinate in the new grid of this grid's top row; may be negative
+     * @return the resized grid
+     */
+    abstract TileGrid resized(int newWidth, int newHeight, int offsetX, int offsetY);
+
+    /**
+     * Returns a copy of this grid in constant time. The copy shares this grid's storage until either of them is
+     * next written to, which then copies what it writes to first. A grid that is never written to after being
+     * copied, such as one being saved in the background, can be read from another thread while this one is edited.
+     *
+     * @return the copy
+     */
+    abstract TileGrid snapshot();
+
+    /**
+     * Two grids are equal if they have the same size and the same tile in every cell, however they are stored.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TileGrid)) {
+            return false;
+        }
+        TileGrid other = (TileGrid) o;
+        if (width != other.width || height != other.height) {
+            return false;
+        }
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                if (getOrdinal(i, j) != other.getOrdinal(i, j)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hashes the size and every cell in column-major order, the same way Arrays.hashCode hashes a byte array.
+     */
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                result = 31 * result + getOrdinal(i, j);
+            }
+        }
+        return 31 * (31 * width + height) + result;
+    }
+}
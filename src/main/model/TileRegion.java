@@ -0,0 +1,98 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Represents a rectangular block of terrain tiles that is not attached to a map, such as a region copied from a
+ * Terrain or one built up to be pasted into it. Tiles are stored as one byte per cell, column by column.
+ */
+public final class TileRegion {
+
+    private final int width;
+    private final int height;
+    final byte[] cells;
+
+    /**
+     * Constructs a region of the given size where every tile is plain.
+     *
+     * @param width  width of the region. Must be positive
+     * @param height height of the region. Must be positive
+     * @throws IllegalArgumentException if width or height is not positive, or the region would have more than
+     *                                  Terrain.MAX_CELLS tiles
+     */
+    public TileRegion(int width, int height) throws IllegalArgumentException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Region must have a positive width and height");
+        }
+        if ((long) width * height > Terrain.MAX_CELLS) {
+            throw new IllegalArgumentException("Width times height must not exceed " + Terrain.MAX_CELLS);
+        }
+        this.width = width;
+        this.height = height;
+        this.cells = new byte[width * height];
+        Arrays.fill(cells, (byte) TerrainTile.PLAIN.ordinal());
+    }
+
+    /**
+     * Returns the width of the region.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the region.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the tile at the given position in the region.
+     *
+     * @param x x coordinate within the region
+     * @param y y coordinate within the region
+     * @return the tile at (x, y)
+     * @throws IndexOutOfBoundsException if the position is outside the region
+     */
+    public TerrainTile getTileType(int x, int y) {
+        return TileGrid.TILES[cells[index(x, y)]];
+    }
+
+    /**
+     * Sets the tile at the given position in the region.
+     *
+     * @param tile the new tile
+     * @param x    x coordinate within the region
+     * @param y    y coordinate within the region
+     * @throws IndexOutOfBoundsException if the position is outside the region
+     */
+    public void setTile(TerrainTile tile, int x, int y) {
+        cells[index(x, y)] = (byte) tile.ordinal();
+    }
+
+    /**
+     * Returns the index of the given cell in the cell array.
+     */
+    private int index(int x, int y) {
+        return Objects.checkIndex(x, width) * height + Objects.checkIndex(y, height);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        TileRegion other = (TileRegion) o;
+        return width == other.width && height == other.height && Arrays.equals(cells, other.cells);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * width + height) + Arrays.hashCode(cells);
+    }
+}
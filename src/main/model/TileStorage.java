@@ -0,0 +1,16 @@
+package model;
+
+/**
+ * Represents the way a Terrain stores its tiles.
+ */
+public enum TileStorage {
+    /**
+     * One byte per tile in a single array. Fastest for maps that are mostly edited by hand.
+     */
+    FLAT,
+    /**
+     * Square chunks of tiles that are only allocated once they stop being uniform. Suited to very large maps that
+     * are mostly one kind of tile.
+     */
+    CHUNKED
+}
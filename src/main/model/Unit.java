@@ -3,7 +3,6 @@ package model;
 import org.json.JSONObject;
 import persistence.Writable;
 
-import java.awt.*;
 import java.util.Objects;
 import java.util.logging.Logger;
 
@@ -15,7 +14,9 @@ public class Unit implements Writable {
     private static final Logger log = Logger.getGlobal();
     private Faction faction;
     private BattleClass battleClass;
-    private Point position;
+    private int x;
+    private int y;
+    private Terrain owner;
 
     /**
      * Constructs a unit with the given specifications
@@ -28,8 +29,21 @@ public class Unit implements Writable {
     public Unit(Faction faction, BattleClass battleClass, int x, int y) {
         this.faction = faction;
         this.battleClass = battleClass;
-        this.position = new Point(x, y);
-        log.fine(EventUtility.getUnitInstantiationMessage(this));
+        this.x = x;
+        this.y = y;
+        EventLog.record(log, EventType.UNIT_CREATED, x, y, faction.ordinal() << 8 | battleClass.ordinal());
+    }
+
+    /**
+     * Constructs a copy of the given unit, without an owner, and without recording an event
+     *
+     * @param other the unit to copy
+     */
+    Unit(Unit other) {
+        this.faction = other.faction;
+        this.battleClass = other.battleClass;
+        this.x = other.x;
+        this.y = other.y;
     }
 
     /**
@@ -38,8 +52,12 @@ public class Unit implements Writable {
      * @param faction the unit's new Faction
      */
     public void setFaction(Faction faction) {
+        Faction oldFaction = this.faction;
         this.faction = faction;
-        log.fine(EventUtility.getFactionChangeMessage(this));
+        if (owner != null) {
+            owner.unitEdited(this, oldFaction, battleClass);
+        }
+        EventLog.record(log, EventType.FACTION_CHANGE, x, y, faction.ordinal());
     }
 
     /**
@@ -48,8 +66,12 @@ public class Unit implements Writable {
      * @param battleClass the unit's new BattleClass
      */
     public void setBattleClass(BattleClass battleClass) {
+        BattleClass oldBattleClass = this.battleClass;
         this.battleClass = battleClass;
-        log.fine(EventUtility.getBattleClassChangeMessage(this));
+        if (owner != null) {
+            owner.unitEdited(this, faction, oldBattleClass);
+        }
+        EventLog.record(log, EventType.BATTLE_CLASS_CHANGE, x, y, battleClass.ordinal());
     }
 
     /**
@@ -76,7 +98,7 @@ public class Unit implements Writable {
      * @return the unit's x coordinate
      */
     public int getX() {
-        return position.x;
+        return x;
     }
 
     /**
@@ -85,7 +107,48 @@ public class Unit implements Writable {
      * @return the unit's y coordinate
      */
     public int getY() {
-        return position.y;
+        return y;
+    }
+
+    /**
+     * Returns the Terrain the unit stands on, or null if it is not on one.
+     */
+    Terrain getOwner() {
+        return owner;
+    }
+
+    /**
+     * Sets the Terrain the unit stands on, which is told about changes to the unit's faction and battle class.
+     *
+     * @param owner the Terrain holding the unit, or null if the unit has been removed from its Terrain
+     */
+    void setOwner(Terrain owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Moves the unit to the given position. Only the Terrain holding the unit may move it, so that its index of
+     * unit positions stays up to date.
+     *
+     * @param x the unit's new x coordinate
+     * @param y the unit's new y coordinate
+     */
+    void moveTo(int x, int y) {
+        this.x = x;
+        this.y = y;
+        EventLog.record(log, EventType.MOVE_UNIT, x, y, 0);
+    }
+
+    /**
+     * Moves the unit by the given offsets without recording an event, for when its Terrain shifts all of its units
+     * at once.
+     *
+     * @param dx how far right the unit moves
+     * @param dy how far down the unit moves
+     */
+    void translate(int dx, int dy) {
+        this.x += dx;
+        this.y += dy;
     }
 
     @Override
@@ -97,12 +160,29 @@ public class Unit implements Writable {
             return false;
         }
         Unit unit = (Unit) o;
-        return faction == unit.faction && battleClass == unit.battleClass && position.equals(unit.position);
+        return faction == unit.faction && battleClass == unit.battleClass && x == unit.x && y == unit.y;
     }
 
+    /**
+     * Returns the same hash code as Objects.hash(faction, battleClass, new java.awt.Point(x, y)), which is how units
+     * were hashed when positions were stored as Points, without allocating.
+     */
     @Override
     public int hashCode() {
-        return Objects.hash(faction, battleClass, position);
+        return 31 * (31 * (31 + Objects.hashCode(faction)) + Objects.hashCode(battleClass)) + positionHash(x, y);
+    }
+
+    /**
+     * Returns the hash code java.awt.Point gives the given position.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the hash code of the position
+     */
+    private static int positionHash(int x, int y) {
+        long bits = Double.doubleToLongBits(x);
+        bits ^= Double.doubleToLongBits(y) * 31;
+        return (int) bits ^ (int) (bits >> 32);
     }
 
     @Override
@@ -110,8 +190,8 @@ public class Unit implements Writable {
         JSONObject unitJson = new JSONObject();
         unitJson.put("faction", faction);
         unitJson.put("class", battleClass);
-        unitJson.put("x", position.x);
-        unitJson.put("y", position.y);
+        unitJson.put("x", x);
+        unitJson.put("y", y);
         return unitJson;
     }
 }
\ No newline at end of file
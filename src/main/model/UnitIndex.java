@@ -0,0 +1,175 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Represents an index from the cell a unit occupies to the unit's position in its UnitList. Keys are non-negative
+ * cell numbers, and lookups, insertions and removals take constant time on average. The index uses open addressing
+ * with linear probing over primitive arrays.
+ */
+final class UnitIndex {
+
+    static final int EMPTY = -1;
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    /**
+     * Constructs an empty index.
+     */
+    UnitIndex() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Returns the number of units in the index.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the list position stored under the given key.
+     *
+     * @param key cell number
+     * @return the list position, or EMPTY if there is no unit under the key
+     */
+    int get(int key) {
+        int slot = find(key);
+        return slot == EMPTY ? EMPTY : values[slot];
+    }
+
+    /**
+     * Returns true if there is a unit stored under the given key.
+     *
+     * @param key cell number
+     */
+    boolean contains(int key) {
+        return find(key) != EMPTY;
+    }
+
+    /**
+     * Stores the list position under the given key, replacing any position already stored there.
+     *
+     * @param key   cell number
+     * @param index the unit's position in its list
+     */
+    void put(int key, int index) {
+        if (2 * (size + 1) > keys.length) {
+            rehash(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = index;
+    }
+
+    /**
+     * Removes the list position stored under the given key.
+     *
+     * @param key cell number
+     * @return the removed list position, or EMPTY if there was no unit under the key
+     */
+    int remove(int key) {
+        int slot = find(key);
+        if (slot == EMPTY) {
+            return EMPTY;
+        }
+        int removed = values[slot];
+        closeGap(slot);
+        size--;
+        return removed;
+    }
+
+    /**
+     * Removes every unit from the index.
+     */
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Returns the slot holding the given key, or EMPTY if the key is absent.
+     *
+     * @param key cell number
+     */
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Empties the given slot and shifts later entries of the same probe run back, so that no lookup is cut short
+     * by the hole.
+     *
+     * @param gap the slot being emptied
+     */
+    private void closeGap(int gap) {
+        int mask = keys.length - 1;
+        int slot = (gap + 1) & mask;
+        while (keys[slot] != EMPTY) {
+            int home = mix(keys[slot]) & mask;
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+    }
+
+    /**
+     * Moves every entry into freshly allocated tables of the given capacity.
+     *
+     * @param capacity new table capacity, a power of two
+     */
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     * Allocates empty tables of the given capacity.
+     *
+     * @param capacity table capacity, a power of two
+     */
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Spreads the bits of a key so that neighbouring cells land in different slots.
+     *
+     * @param key cell number
+     */
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
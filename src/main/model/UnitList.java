@@ -3,12 +3,133 @@ package model;
 import org.json.JSONArray;
 
 
-import java.util.LinkedList;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
 
 /**
- * Represents a list of units
+ * Represents a list of units, stored in a single growable array. Besides the usual List operations, it supports
+ * removing a unit in constant time by moving the last unit into its place, and removing every unit that matches a
+ * predicate in one linear pass.
  */
-public class UnitList extends LinkedList<Unit> {
+public class UnitList extends AbstractList<Unit> implements RandomAccess {
+
+    private static final int DEFAULT_CAPACITY = 10;
+
+    private Unit[] elements;
+    private int size;
+
+    /**
+     * Constructs an empty unit list.
+     */
+    public UnitList() {
+        elements = new Unit[DEFAULT_CAPACITY];
+    }
+
+    @Override
+    public Unit get(int index) {
+        Objects.checkIndex(index, size);
+        return elements[index];
+    }
+
+    @Override
+    public Unit set(int index, Unit unit) {
+        Objects.checkIndex(index, size);
+        Unit old = elements[index];
+        elements[index] = unit;
+        return old;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(Unit unit) {
+        ensureCapacity(size + 1);
+        elements[size++] = unit;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, Unit unit) {
+        Objects.checkIndex(index, size + 1);
+        ensureCapacity(size + 1);
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = unit;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Unit remove(int index) {
+        Objects.checkIndex(index, size);
+        Unit removed = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        elements[--size] = null;
+        modCount++;
+        return removed;
+    }
+
+    /**
+     * Removes the unit at the given index by moving the last unit of the list into its place. This does not preserve
+     * the order of the list, but takes constant time.
+     *
+     * @param index index of the unit to remove
+     * @return the removed unit
+     */
+    public Unit swapRemove(int index) {
+        Objects.checkIndex(index, size);
+        Unit removed = elements[index];
+        elements[index] = elements[--size];
+        elements[size] = null;
+        modCount++;
+        return removed;
+    }
+
+    /**
+     * Removes every unit matching the filter in a single pass, keeping the remaining units in order.
+     *
+     * @param filter returns true for units to be removed
+     * @return true if any units were removed
+     */
+    @Override
+    public boolean removeIf(Predicate<? super Unit> filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            Unit unit = elements[i];
+            if (!filter.test(unit)) {
+                elements[kept++] = unit;
+            }
+        }
+        boolean removed = kept < size;
+        Arrays.fill(elements, kept, size, null);
+        size = kept;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Grows the backing array so that it can hold at least the given number of units.
+     *
+     * @param capacity the required capacity
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(capacity, elements.length + (elements.length >> 1)));
+        }
+    }
 
     /**
      * Transforms the unit list into a JSONArray
@@ -0,0 +1,98 @@
+package model;
+
+/**
+ * A utility class producing the 64-bit keys that make up a Terrain's content fingerprint. A fingerprint is the XOR
+ * of one key per non-plain tile, one key per unit, and one key each for the name and the dimensions, so any single
+ * edit can be applied to it in constant time by XOR-ing out the old key and XOR-ing in the new one.
+ * Keys are derived by hashing their inputs rather than looked up in a random table, so they need no storage and
+ * work for maps of any size.
+ */
+final class ZobristHash {
+
+    private static final long TILE_SEED = 0x5DEECE66DL;
+    private static final long UNIT_SEED = 0x2545F4914F6CDD1DL;
+    private static final long NAME_SEED = 0x27BB2EE687B0B0FDL;
+    private static final long SIZE_SEED = 0x7FB5D329728EA185L;
+
+    private ZobristHash() {
+    }
+
+    /**
+     * Returns the key of a tile. Plain tiles have key 0, so blank areas contribute nothing.
+     *
+     * @param x       x coordinate of the tile
+     * @param y       y coordinate of the tile
+     * @param ordinal ordinal of the tile's TerrainTile
+     * @return the key of the tile
+     */
+    static long tile(int x, int y, int ordinal) {
+        if (ordinal == TerrainTile.PLAIN.ordinal()) {
+            return 0;
+        }
+        return mix(TILE_SEED + position(x, y) * 0x9E3779B97F4A7C15L + ordinal);
+    }
+
+    /**
+     * Returns the key of a unit with the given attributes.
+     *
+     * @param x           x coordinate of the unit
+     * @param y           y coordinate of the unit
+     * @param faction     the unit's Faction
+     * @param battleClass the unit's BattleClass
+     * @return the key of the unit
+     */
+    static long unit(int x, int y, Faction faction, BattleClass battleClass) {
+        return mix(UNIT_SEED + position(x, y) * 0xC2B2AE3D27D4EB4FL + (faction.ordinal() << 8 | battleClass.ordinal()));
+    }
+
+    /**
+     * Returns the key of the given unit.
+     *
+     * @param unit the unit
+     * @return the key of the unit
+     */
+    static long unit(Unit unit) {
+        return unit(unit.getX(), unit.getY(), unit.getFaction(), unit.getBattleClass());
+    }
+
+    /**
+     * Returns the key of a map name.
+     *
+     * @param name the name
+     * @return the key of the name
+     */
+    static long name(String name) {
+        long h = NAME_SEED;
+        for (int i = 0; i < name.length(); i++) {
+            h = (h ^ name.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    /**
+     * Returns the key of a pair of map dimensions.
+     *
+     * @param width  map width
+     * @param height map height
+     * @return the key of the dimensions
+     */
+    static long size(int width, int height) {
+        return mix(SIZE_SEED + position(width, height));
+    }
+
+    /**
+     * Packs two coordinates into one long.
+     */
+    private static long position(int x, int y) {
+        return (long) x << 32 | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Scrambles the bits of the input so that similar inputs give unrelated keys (the SplitMix64 finalizer).
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
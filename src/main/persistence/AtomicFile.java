@@ -0,0 +1,98 @@
+package persistence;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Represents a file that is written in full before it replaces its destination. Data goes to a temporary file in
+ * the destination's directory, which on commit is forced to disk and then renamed over the destination in one
+ * step. A crash or error part way through leaves the destination untouched.
+ */
+final class AtomicFile {
+
+    private final Path destination;
+    private final Path temp;
+    private final FileChannel channel;
+
+    /**
+     * Creates the temporary file for the given destination and opens it for writing.
+     *
+     * @param destination the file that will be replaced on commit
+     * @throws IOException if the temporary file cannot be created
+     */
+    AtomicFile(Path destination) throws IOException {
+        this.destination = destination.toAbsolutePath();
+        this.temp = tempPath(destination);
+        this.channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Returns the channel writing to the temporary file.
+     */
+    FileChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Forces the temporary file to disk, closes it, and renames it over the destination.
+     *
+     * @return the number of bytes in the file
+     * @throws IOException if the file cannot be written or renamed; the temporary file is then deleted
+     */
+    long commit() throws IOException {
+        try {
+            long size = channel.size();
+            channel.force(true);
+            channel.close();
+            replace(temp, destination);
+            return size;
+        } catch (IOException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes and deletes the temporary file, leaving the destination untouched.
+     */
+    void abort() {
+        try {
+            channel.close();
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            // the temporary file is left behind, but the destination is intact
+        }
+    }
+
+    /**
+     * Returns a path for a temporary file next to the given destination, hidden and named after it.
+     *
+     * @param destination the file the temporary file will replace
+     * @return a path in the destination's directory
+     */
+    static Path tempPath(Path destination) {
+        Path absolute = destination.toAbsolutePath();
+        String tempName = "." + absolute.getFileName() + "." + Long.toHexString(System.nanoTime()) + ".tmp";
+        return absolute.resolveSibling(tempName);
+    }
+
+    /**
+     * Renames the source file over the destination, atomically where the file system supports it.
+     *
+     * @param source      the file to rename
+     * @param destination the file to replace
+     * @throws IOException if the file cannot be renamed
+     */
+    static void replace(Path source, Path destination) throws IOException {
+        try {
+            Files.move(source, destination, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, destination, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Constants describing the binary map format read by BinaryReader and written by BinaryWriter.
+ * A file holds, in order:
+ * <ul>
+ *     <li>the magic bytes "TMAP" and a one-byte format version</li>
+ *     <li>the map name as a varint byte length followed by UTF-8 bytes</li>
+ *     <li>the width and height as varints</li>
+ *     <li>one byte per tile holding its TerrainTile ordinal, column by column</li>
+ *     <li>the number of units as a varint, then for each unit its x and y as varints and one byte each for its
+ *     Faction and BattleClass ordinals</li>
+ *     <li>a big-endian CRC32 of everything before it</li>
+ * </ul>
+ * Varints store seven bits per byte, least significant group first, with the high bit set on every byte but the
+ * last.
+ */
+final class BinaryFormat {
+
+    static final byte[] MAGIC = "TMAP".getBytes(StandardCharsets.US_ASCII);
+    static final byte VERSION = 1;
+    static final int CHECKSUM_SIZE = Integer.BYTES;
+    static final int MAX_VARINT_SIZE = 5;
+
+    private BinaryFormat() {
+    }
+
+    /**
+     * Writes a non-negative int as a varint. The buffer must have MAX_VARINT_SIZE bytes free.
+     *
+     * @param buffer the buffer to write to
+     * @param value  the value to write
+     */
+    static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Reads a non-negative int stored as a varint.
+     *
+     * @param buffer the buffer to read from
+     * @return the value read
+     * @throws IOException if the varint is malformed or does not fit in a non-negative int
+     * @throws java.nio.BufferUnderflowException if the buffer ends part way through the varint
+     */
+    static int getVarint(ByteBuffer buffer) throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 7 * MAX_VARINT_SIZE; shift += 7) {
+            byte b = buffer.get();
+            result |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (result < 0) {
+                    break;
+                }
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,190 @@
+package persistence;
+
+import model.BattleClass;
+import model.Faction;
+import model.Terrain;
+import model.TerrainBuilder;
+import model.Unit;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Reader that interprets maps stored in the binary map format described by BinaryFormat. The file is read into a
+ * single heap buffer in one pass, and its tiles are copied straight into the Terrain's storage. The file is not
+ * memory-mapped, because a live mapping would stop the file from being replaced on some platforms until the
+ * mapping is garbage collected, and a map that has just been opened is often saved over straight away.
+ */
+public class BinaryReader {
+    private static final Logger log = Logger.getLogger(BinaryReader.class.getName());
+    private static final int PROGRESS_COLUMNS = 64;
+    private final String source;
+
+    /**
+     * Constructs reader to read from source file
+     *
+     * @param source the path where the file to be read is located, including the filename and extension.
+     */
+    public BinaryReader(String source) {
+        this.source = source;
+    }
+
+    /**
+     * Parses Terrain from source
+     *
+     * @return parsed Terrain
+     * @throws IOException if there is a read error, or the file is not a valid binary map
+     * @throws IllegalArgumentException if the file holds an invalid map
+     */
+    public Terrain readTerrain() throws IOException {
+        return readTerrain(ProgressListener.NONE);
+    }
+
+    /**
+     * Parses Terrain from source as readTerrain() does, reporting the number of bytes read to the listener.
+     *
+     * @param listener listener told how many bytes of the file have been read
+     * @return parsed Terrain
+     * @throws IOException if there is a read error, or the file is not a valid binary map
+     * @throws java.io.InterruptedIOException if the thread is interrupted while reading
+     * @throws IllegalArgumentException if the file holds an invalid map
+     */
+    public Terrain readTerrain(ProgressListener listener) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(source), StandardOpenOption.READ)) {
+            buffer = readFully(channel);
+        }
+        Terrain terrain = parseTerrain(buffer, listener);
+        log.fine(() -> "Loaded terrain " + terrain.getName() + " from " + source);
+        return terrain;
+    }
+
+    /**
+     * Reads the whole of the channel into a new heap buffer, positioned at its start.
+     */
+    private static ByteBuffer readFully(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Map file is too large");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Map file was truncated while reading");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Parses Terrain from the bytes between the buffer's position and its limit.
+     *
+     * @param buffer bytes of a binary map
+     * @return parsed Terrain
+     * @throws IOException if the bytes are not a valid binary map
+     * @throws IllegalArgumentException if the bytes hold an invalid map
+     */
+    public static Terrain parseTerrain(ByteBuffer buffer) throws IOException {
+        return parseTerrain(buffer, ProgressListener.NONE);
+    }
+
+    /**
+     * Parses Terrain from the bytes between the buffer's position and its limit, reporting the number of bytes
+     * parsed to the listener.
+     *
+     * @param buffer   bytes of a binary map
+     * @param listener listener told how many bytes have been parsed
+     * @return parsed Terrain
+     * @throws IOException if the bytes are not a valid binary map
+     * @throws java.io.InterruptedIOException if the thread is interrupted while parsing
+     * @throws IllegalArgumentException if the bytes hold an invalid map
+     */
+    public static Terrain parseTerrain(ByteBuffer buffer, ProgressListener listener) throws IOException {
+        checkHeader(buffer);
+        ByteBuffer content = buffer.slice().limit(buffer.remaining() - BinaryFormat.CHECKSUM_SIZE);
+        try {
+            Terrain terrain = parseContent(content, listener);
+            if (content.hasRemaining()) {
+                throw new IOException("Unexpected data after units");
+            }
+            return terrain;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated map file", e);
+        }
+    }
+
+    /**
+     * Checks the magic bytes, version and checksum, leaving the buffer positioned after the version.
+     */
+    private static void checkHeader(ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        if (buffer.remaining() < BinaryFormat.MAGIC.length + 1 + BinaryFormat.CHECKSUM_SIZE) {
+            throw new IOException("Truncated map file");
+        }
+        for (byte b : BinaryFormat.MAGIC) {
+            if (buffer.get() != b) {
+                throw new IOException("Not a binary map file");
+            }
+        }
+        byte version = buffer.get();
+        if (version != BinaryFormat.VERSION) {
+            throw new IOException("Unsupported binary map version " + version);
+        }
+        int end = buffer.limit() - BinaryFormat.CHECKSUM_SIZE;
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.duplicate().position(start).limit(end));
+        if ((int) checksum.getValue() != buffer.getInt(end)) {
+            throw new IOException("Map file is corrupt: checksum mismatch");
+        }
+    }
+
+    /**
+     * Parses the name, dimensions, tiles and units.
+     */
+    private static Terrain parseContent(ByteBuffer buffer, ProgressListener listener) throws IOException {
+        byte[] name = new byte[BinaryFormat.getVarint(buffer)];
+        buffer.get(name);
+        int width = BinaryFormat.getVarint(buffer);
+        int height = BinaryFormat.getVarint(buffer);
+        if ((long) width * height > buffer.remaining()) {
+            throw new IOException("Truncated map file");
+        }
+        TerrainBuilder builder = new TerrainBuilder(width * height);
+        builder.setName(new String(name, StandardCharsets.UTF_8));
+        for (int i = 0; i < width; i++) {
+            builder.addTiles(buffer, height).endColumn();
+            if (i % PROGRESS_COLUMNS == 0) {
+                ProgressListener.checkCancelled();
+                listener.progress(buffer.position(), buffer.limit());
+            }
+        }
+        int units = BinaryFormat.getVarint(buffer);
+        for (int i = 0; i < units; i++) {
+            builder.addUnit(parseUnit(buffer));
+        }
+        listener.progress(buffer.limit(), buffer.limit());
+        return builder.build();
+    }
+
+    /**
+     * Parses a unit's position, faction and battle class.
+     */
+    private static Unit parseUnit(ByteBuffer buffer) throws IOException {
+        int x = BinaryFormat.getVarint(buffer);
+        int y = BinaryFormat.getVarint(buffer);
+        int faction = buffer.get();
+        int battleClass = buffer.get();
+        if (faction < 0 || faction >= Faction.values().length
+                || battleClass < 0 || battleClass >= BattleClass.values().length) {
+            throw new IOException("Unknown faction or battle class");
+        }
+        return new Unit(Faction.values()[faction], BattleClass.values()[battleClass], x, y);
+    }
+}
@@ -0,0 +1,154 @@
+package persistence;
+
+import model.Terrain;
+import model.Unit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Represents a writer that writes a Terrain to file in the compact binary map format described by BinaryFormat.
+ * The file is written through a fixed-size buffer, so writing takes little memory however large the map is. Like
+ * JsonWriter, it writes to a temporary file that only replaces the destination once complete.
+ */
+public class BinaryWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final String destination;
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private CRC32 checksum;
+
+    /**
+     * Constructs a writer that writes to the given destination
+     *
+     * @param destination path where the terrain is being written, including filename and extension
+     */
+    public BinaryWriter(String destination) {
+        this.destination = destination;
+    }
+
+    /**
+     * Writes Terrain to file, replacing any existing file at the destination
+     *
+     * @param terrain Terrain to be written to file
+     * @throws IOException if the destination cannot be opened or written
+     */
+    public void write(Terrain terrain) throws IOException {
+        write(terrain, ProgressListener.NONE);
+    }
+
+    /**
+     * Writes Terrain to file as write(Terrain) does, reporting the number of columns written to the listener
+     *
+     * @param terrain  Terrain to be written to file
+     * @param listener listener told how many columns of tiles have been written
+     * @throws IOException if the destination cannot be opened or written
+     * @throws java.io.InterruptedIOException if the thread is interrupted while writing; the destination is then
+     *                                        left untouched
+     */
+    public void write(Terrain terrain, ProgressListener listener) throws IOException {
+        AtomicFile file = new AtomicFile(Paths.get(destination));
+        try {
+            channel = file.getChannel();
+            buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            checksum = new CRC32();
+            writeHeader(terrain);
+            writeTiles(terrain, listener);
+            writeUnits(terrain.getUnits());
+            flush();
+            buffer.putInt((int) checksum.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            file.commit();
+        } catch (IOException | RuntimeException e) {
+            file.abort();
+            throw e;
+        } finally {
+            channel = null;
+            buffer = null;
+        }
+    }
+
+    /**
+     * Writes the magic bytes, version, name and dimensions.
+     */
+    private void writeHeader(Terrain terrain) throws IOException {
+        buffer.put(BinaryFormat.MAGIC);
+        buffer.put(BinaryFormat.VERSION);
+        byte[] name = terrain.getName().getBytes(StandardCharsets.UTF_8);
+        putVarint(name.length);
+        for (int offset = 0; offset < name.length; offset += BUFFER_SIZE) {
+            ensureRoom(Math.min(BUFFER_SIZE, name.length - offset));
+            buffer.put(name, offset, Math.min(BUFFER_SIZE, name.length - offset));
+        }
+        putVarint(terrain.getWidth());
+        putVarint(terrain.getHeight());
+    }
+
+    /**
+     * Writes one byte per tile, column by column.
+     */
+    private void writeTiles(Terrain terrain, ProgressListener listener) throws IOException {
+        int width = terrain.getWidth();
+        int height = terrain.getHeight();
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                ensureRoom(1);
+                buffer.put((byte) terrain.getTileType(i, j).ordinal());
+            }
+            ProgressListener.checkCancelled();
+            listener.progress(i + 1, width);
+        }
+    }
+
+    /**
+     * Writes the number of units, then each unit's position, faction and battle class.
+     */
+    private void writeUnits(List<Unit> units) throws IOException {
+        putVarint(units.size());
+        for (Unit unit : units) {
+            putVarint(unit.getX());
+            putVarint(unit.getY());
+            ensureRoom(2);
+            buffer.put((byte) unit.getFaction().ordinal());
+            buffer.put((byte) unit.getBattleClass().ordinal());
+        }
+    }
+
+    /**
+     * Writes a non-negative int as a varint.
+     */
+    private void putVarint(int value) throws IOException {
+        ensureRoom(BinaryFormat.MAX_VARINT_SIZE);
+        BinaryFormat.putVarint(buffer, value);
+    }
+
+    /**
+     * Flushes the buffer if it has fewer than the given number of bytes free.
+     */
+    private void ensureRoom(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Adds the buffered bytes to the checksum and writes them to the file.
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        checksum.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
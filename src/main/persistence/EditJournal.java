@@ -0,0 +1,665 @@
+package persistence;
+
+import model.BattleClass;
+import model.Faction;
+import model.Terrain;
+import model.TerrainListener;
+import model.TerrainTile;
+import model.TileRegion;
+import model.Unit;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Represents an append-only journal of the edits made to a map since it was last written to its base file. The
+ * journal sits next to the base file, with ".journal" added to its name, and records each edit as a compact binary
+ * record. Records are buffered and appended to the journal in checksummed batches about once a second, so a crash
+ * loses at most the last second of edits, and a batch torn by a crash is dropped when the journal is next opened.
+ * Once the journal grows past a size threshold, a snapshot of the map is written to the base file in the background
+ * and the journal is cut back to the edits made since the snapshot.
+ * The journal starts with the magic bytes "TJNL", a version byte, and the fingerprint of the map it applies to. Each
+ * batch is its length and CRC32 as ints, followed by its records. Each record is an opcode followed by its operands,
+ * with coordinates and sizes stored as varints.
+ */
+public final class EditJournal implements TerrainListener {
+    public static final String EXTENSION = ".journal";
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 1L << 20;
+
+    static final byte[] MAGIC = "TJNL".getBytes(StandardCharsets.US_ASCII);
+    static final byte VERSION = 1;
+    static final int HEADER_SIZE = MAGIC.length + 1 + Long.BYTES;
+
+    private static final Logger log = Logger.getLogger(EditJournal.class.getName());
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+    private static final int FRAME_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int INITIAL_BUFFER_SIZE = 1 << 12;
+
+    private static final byte SET_TILE = 1;
+    private static final byte FILL = 2;
+    private static final byte TILES = 3;
+    private static final byte ADD_UNIT = 4;
+    private static final byte REMOVE_UNIT = 5;
+    private static final byte MOVE_UNIT = 6;
+    private static final byte EDIT_UNIT = 7;
+    private static final byte RENAME = 8;
+    private static final byte RESIZE = 9;
+    private static final byte CHECKPOINT = 10;
+
+    private final Terrain terrain;
+    private final Path path;
+    private final String basePath;
+    private final MapFormat format;
+    private final long compactionThreshold;
+    private final ScheduledExecutorService executor;
+    private FileChannel channel;
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private long size;
+    private long nextCompaction;
+    private Future<?> compaction;
+    private int replayedCount;
+
+    /**
+     * Constructs a journal for the given map, without opening its file.
+     */
+    private EditJournal(Terrain terrain, String basePath, MapFormat format, long compactionThreshold) {
+        this.terrain = terrain;
+        this.path = Paths.get(basePath + EXTENSION);
+        this.basePath = basePath;
+        this.format = format;
+        this.compactionThreshold = compactionThreshold;
+        this.nextCompaction = compactionThreshold;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "EditJournal " + path.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens the journal of a map that has just been read from its base file. Edits recorded in an existing journal
+     * are replayed onto the map first, and every later edit is recorded. A journal that does not belong to the base
+     * file is replaced.
+     *
+     * @param terrain  the map, as read from its base file
+     * @param basePath path of the base file
+     * @param format   format of the base file, used when compacting
+     * @return the open journal
+     * @throws IOException if the journal cannot be read or created
+     */
+    public static EditJournal open(Terrain terrain, String basePath, MapFormat format) throws IOException {
+        return open(terrain, basePath, format, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Opens the journal of a map as open does, compacting whenever it grows past the given number of bytes.
+     *
+     * @param terrain             the map, as read from its base file
+     * @param basePath            path of the base file
+     * @param format              format of the base file, used when compacting
+     * @param compactionThreshold size in bytes past which the journal is compacted
+     * @return the open journal
+     * @throws IOException if the journal cannot be read or created
+     */
+    public static EditJournal open(Terrain terrain, String basePath, MapFormat format, long compactionThreshold)
+            throws IOException {
+        EditJournal journal = new EditJournal(terrain, basePath, format, compactionThreshold);
+        try {
+            journal.start();
+        } catch (IOException | RuntimeException e) {
+            journal.executor.shutdownNow();
+            throw e;
+        }
+        return journal;
+    }
+
+    /**
+     * Deletes the journal of the given base file, if it has one. Called once the base file has been saved over, as
+     * the journal's edits are then part of it.
+     *
+     * @param basePath path of the base file
+     * @throws IOException if the journal exists but cannot be deleted
+     */
+    public static void delete(String basePath) throws IOException {
+        Files.deleteIfExists(Paths.get(basePath + EXTENSION));
+    }
+
+    /**
+     * Returns the number of edits replayed from the journal when it was opened.
+     */
+    public int getReplayedCount() {
+        return replayedCount;
+    }
+
+    /**
+     * Returns the number of bytes in the journal file, not counting edits that have yet to be flushed.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Appends the edits recorded since the last flush to the journal file.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    public synchronized void flush() throws IOException {
+        if (pending.position() == 0) {
+            return;
+        }
+        pending.flip();
+        CRC32 checksum = new CRC32();
+        checksum.update(pending.duplicate());
+        ByteBuffer frameHeader = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+        frameHeader.putInt(pending.remaining()).putInt((int) checksum.getValue()).flip();
+        try {
+            long position = writeFully(channel, frameHeader, size);
+            position = writeFully(channel, pending, position);
+            channel.force(false);
+            size = position;
+            pending.clear();
+        } catch (IOException e) {
+            pending.position(pending.limit()).limit(pending.capacity());
+            throw e;
+        }
+    }
+
+    /**
+     * Stops recording edits, waits for any compaction in progress to finish, and flushes and closes the journal.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    public void close() throws IOException {
+        terrain.removeListener(this);
+        Future<?> running;
+        synchronized (this) {
+            running = compaction;
+        }
+        try {
+            if (running != null) {
+                running.get();
+            }
+            executor.shutdown();
+            executor.awaitTermination(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.log(Level.WARNING, "Compaction of " + path + " failed", e.getCause());
+        }
+        synchronized (this) {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void tilesChanged(Terrain terrain, int x, int y, int width, int height) {
+        if (width == 1 && height == 1) {
+            putOpcode(SET_TILE, 3 * BinaryFormat.MAX_VARINT_SIZE);
+            putVarints(x, y, terrain.getTileType(x, y).ordinal());
+        } else {
+            TileRegion region = terrain.copyRegion(x, y, width, height);
+            TerrainTile uniform = uniformTile(region);
+            int tilesSize = uniform == null ? width * height : BinaryFormat.MAX_VARINT_SIZE;
+            putOpcode(uniform == null ? TILES : FILL, 4 * BinaryFormat.MAX_VARINT_SIZE + tilesSize);
+            putVarints(x, y, width, height);
+            if (uniform != null) {
+                putVarints(uniform.ordinal());
+            } else {
+                putTiles(region);
+            }
+        }
+        recorded();
+    }
+
+    @Override
+    public synchronized void unitAdded(Terrain terrain, Unit unit) {
+        putOpcode(ADD_UNIT, 4 * BinaryFormat.MAX_VARINT_SIZE);
+        putVarints(unit.getX(), unit.getY(), unit.getFaction().ordinal(), unit.getBattleClass().ordinal());
+        recorded();
+    }
+
+    @Override
+    public synchronized void unitRemoved(Terrain terrain, Unit unit) {
+        putOpcode(REMOVE_UNIT, 2 * BinaryFormat.MAX_VARINT_SIZE);
+        putVarints(unit.getX(), unit.getY());
+        recorded();
+    }
+
+    @Override
+    public synchronized void unitMoved(Terrain terrain, Unit unit, int fromX, int fromY) {
+        putOpcode(MOVE_UNIT, 4 * BinaryFormat.MAX_VARINT_SIZE);
+        putVarints(fromX, fromY, unit.getX(), unit.getY());
+        recorded();
+    }
+
+    @Override
+    public synchronized void unitEdited(Terrain terrain, Unit unit) {
+        putOpcode(EDIT_UNIT, 4 * BinaryFormat.MAX_VARINT_SIZE);
+        putVarints(unit.getX(), unit.getY(), unit.getFaction().ordinal(), unit.getBattleClass().ordinal());
+        recorded();
+    }
+
+    @Override
+    public synchronized void renamed(Terrain terrain) {
+        byte[] name = terrain.getName().getBytes(StandardCharsets.UTF_8);
+        putOpcode(RENAME, BinaryFormat.MAX_VARINT_SIZE + name.length);
+        putVarints(name.length);
+        pending.put(name);
+        recorded();
+    }
+
+    @Override
+    public synchronized void resized(Terrain terrain, int offsetX, int offsetY) {
+        putOpcode(RESIZE, 4 * BinaryFormat.MAX_VARINT_SIZE);
+        putVarints(terrain.getWidth(), terrain.getHeight(), zigzag(offsetX), zigzag(offsetY));
+        recorded();
+    }
+
+
+    /**
+     * Replays the existing journal if there is one that applies to the map, replacing it otherwise, then starts
+     * recording edits and flushing them periodically.
+     */
+    private void start() throws IOException {
+        long baseFingerprint = terrain.getFingerprint();
+        long validSize = Files.exists(path) ? replay(ByteBuffer.wrap(Files.readAllBytes(path)), baseFingerprint) : -1;
+        if (validSize < 0) {
+            if (Files.exists(path)) {
+                log.warning(() -> "Replacing journal " + path + ", which does not match its base file");
+            }
+            writeNewJournal(baseFingerprint, ByteBuffer.allocate(0));
+        } else {
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.truncate(validSize);
+            size = validSize;
+        }
+        terrain.addListener(this);
+        executor.scheduleWithFixedDelay(this::flushQuietly, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Replays the edits in the journal that were made after the map was in the state it was read in. These are
+     * all its edits if the journal's header has the map's fingerprint, or the edits after a checkpoint with the
+     * map's fingerprint otherwise. Replay stops at the first torn or corrupt batch.
+     *
+     * @param journal         the journal's bytes
+     * @param baseFingerprint fingerprint of the map as read from its base file
+     * @return the number of bytes up to the end of the last batch replayed, or -1 if the journal does not apply
+     */
+    private long replay(ByteBuffer journal, long baseFingerprint) {
+        if (journal.remaining() < HEADER_SIZE || !journal.slice(0, MAGIC.length).equals(ByteBuffer.wrap(MAGIC))
+                || journal.get(MAGIC.length) != VERSION) {
+            return -1;
+        }
+        boolean applying = journal.getLong(MAGIC.length + 1) == baseFingerprint;
+        int frameStart = HEADER_SIZE;
+        journal.position(frameStart);
+        for (ByteBuffer frame = nextFrame(journal); frame != null; frame = nextFrame(journal)) {
+            try {
+                applying = replayFrame(frame, applying, baseFingerprint);
+            } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+                log.warning(() -> "Stopped replaying journal " + path + " at a corrupt record: " + e);
+                journal.position(frameStart);
+                break;
+            }
+            frameStart = journal.position();
+        }
+        return applying ? journal.position() : -1;
+    }
+
+    /**
+     * Returns the records of the next batch and moves past it, or returns null if the batch is torn or corrupt.
+     */
+    private static ByteBuffer nextFrame(ByteBuffer journal) {
+        if (journal.remaining() < FRAME_HEADER_SIZE) {
+            return null;
+        }
+        int length = journal.getInt(journal.position());
+        int expected = journal.getInt(journal.position() + Integer.BYTES);
+        if (length < 0 || length > journal.remaining() - FRAME_HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer frame = journal.slice(journal.position() + FRAME_HEADER_SIZE, length);
+        CRC32 checksum = new CRC32();
+        checksum.update(frame.duplicate());
+        if ((int) checksum.getValue() != expected) {
+            return null;
+        }
+        journal.position(journal.position() + FRAME_HEADER_SIZE + length);
+        return frame;
+    }
+
+    /**
+     * Reads the records of one batch, applying them to the map only once it is in the state the journal
+     * continues from.
+     *
+     * @return whether the records after the batch should be applied
+     */
+    private boolean replayFrame(ByteBuffer frame, boolean applying, long baseFingerprint) throws IOException {
+        while (frame.hasRemaining()) {
+            byte opcode = frame.get();
+            if (opcode == CHECKPOINT) {
+                applying |= frame.getLong() == baseFingerprint;
+            } else {
+                replayRecord(opcode, frame, applying);
+                replayedCount += applying ? 1 : 0;
+            }
+        }
+        return applying;
+    }
+
+    /**
+     * Reads the operands of a record, applying it to the map if apply is true.
+     */
+    private void replayRecord(byte opcode, ByteBuffer record, boolean apply) throws IOException {
+        switch (opcode) {
+            case SET_TILE -> {
+                int[] operands = getVarints(record, 3);
+                if (apply) {
+                    terrain.setTile(toTile(operands[2]), operands[0], operands[1]);
+                }
+            }
+            case FILL -> {
+                int[] operands = getVarints(record, 5);
+                if (apply) {
+                    terrain.fillRect(toTile(operands[4]), operands[0], operands[1], operands[2], operands[3]);
+                }
+            }
+            case TILES -> replayTiles(record, apply);
+            default -> replayUnitOrMapRecord(opcode, record, apply);
+        }
+    }
+
+    /**
+     * Reads a record holding a rectangle of tiles, pasting it onto the map if apply is true.
+     */
+    private void replayTiles(ByteBuffer record, boolean apply) throws IOException {
+        int[] operands = getVarints(record, 4);
+        if ((long) operands[2] * operands[3] > record.remaining()) {
+            throw new IOException("Truncated tiles record");
+        }
+        TileRegion region = new TileRegion(operands[2], operands[3]);
+        for (int i = 0; i < region.getWidth(); i++) {
+            for (int j = 0; j < region.getHeight(); j++) {
+                region.setTile(toTile(record.get()), i, j);
+            }
+        }
+        if (apply) {
+            terrain.pasteRegion(region, operands[0], operands[1], null);
+        }
+    }
+
+    /**
+     * Reads a unit, rename or resize record, applying it to the map if apply is true.
+     */
+    private void replayUnitOrMapRecord(byte opcode, ByteBuffer record, boolean apply) throws IOException {
+        switch (opcode) {
+            case ADD_UNIT, EDIT_UNIT -> replayUnit(opcode, record, apply);
+            case REMOVE_UNIT -> {
+                int[] operands = getVarints(record, 2);
+                if (apply) {
+                    terrain.deleteUnit(operands[0], operands[1]);
+                }
+            }
+            case MOVE_UNIT -> {
+                int[] operands = getVarints(record, 4);
+                if (apply) {
+                    terrain.moveUnit(operands[0], operands[1], operands[2], operands[3]);
+                }
+            }
+            case RENAME -> replayRename(record, apply);
+            case RESIZE -> replayResize(record, apply);
+            default -> throw new IOException("Unknown journal record " + opcode);
+        }
+    }
+
+    /**
+     * Reads a record that adds a unit or changes its faction and battle class, applying it if apply is true.
+     */
+    private void replayUnit(byte opcode, ByteBuffer record, boolean apply) throws IOException {
+        int[] operands = getVarints(record, 4);
+        if (operands[2] >= Faction.values().length || operands[3] >= BattleClass.values().length) {
+            throw new IOException("Unknown faction or battle class");
+        }
+        Faction faction = Faction.values()[operands[2]];
+        BattleClass battleClass = BattleClass.values()[operands[3]];
+        if (!apply) {
+            return;
+        }
+        Unit unit = terrain.getUnit(operands[0], operands[1]);
+        if (opcode == ADD_UNIT) {
+            terrain.addUnit(new Unit(faction, battleClass, operands[0], operands[1]));
+        } else if (unit != null) {
+            unit.setFaction(faction);
+            unit.setBattleClass(battleClass);
+        }
+    }
+
+    /**
+     * Reads a rename record, applying it if apply is true.
+     */
+    private void replayRename(ByteBuffer record, boolean apply) throws IOException {
+        byte[] name = new byte[BinaryFormat.getVarint(record)];
+        record.get(name);
+        if (apply) {
+            terrain.rename(new String(name, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Reads a resize record, applying it if apply is true.
+     */
+    private void replayResize(ByteBuffer record, boolean apply) throws IOException {
+        int[] operands = getVarints(record, 4);
+        if (apply) {
+            terrain.resize(operands[0], operands[1], unzigzag(operands[2]), unzigzag(operands[3]));
+        }
+    }
+
+    /**
+     * Flushes the journal, logging rather than throwing any failure.
+     */
+    private synchronized void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to flush journal " + path, e);
+        }
+    }
+
+    /**
+     * Starts a compaction if the journal has grown past the threshold and none is running.
+     */
+    private void recorded() {
+        if (compaction != null || size + pending.position() <= nextCompaction) {
+            return;
+        }
+        Terrain snapshot = new Terrain(terrain);
+        putOpcode(CHECKPOINT, Long.BYTES);
+        pending.putLong(snapshot.getFingerprint());
+        try {
+            flush();
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to flush journal " + path, e);
+            nextCompaction = size + pending.position() + compactionThreshold;
+            return;
+        }
+        long mark = size;
+        compaction = executor.submit(() -> compact(snapshot, mark));
+    }
+
+    /**
+     * Writes the snapshot to the base file, then cuts the journal back to the records after the given offset,
+     * which were made after the snapshot was taken.
+     */
+    private void compact(Terrain snapshot, long mark) {
+        boolean compacted = false;
+        try {
+            format.write(snapshot, basePath);
+            cutBack(snapshot.getFingerprint(), mark);
+            compacted = true;
+            log.fine(() -> "Compacted journal " + path + " into " + basePath);
+        } catch (IOException | RuntimeException e) {
+            log.log(Level.WARNING, "Failed to compact journal " + path, e);
+        } finally {
+            synchronized (this) {
+                nextCompaction = compacted ? compactionThreshold : size + compactionThreshold;
+                compaction = null;
+            }
+        }
+    }
+
+    /**
+     * Replaces the journal with one that applies to the map with the given fingerprint and holds the records after
+     * the given offset.
+     */
+    private synchronized void cutBack(long fingerprint, long mark) throws IOException {
+        flush();
+        ByteBuffer tail = ByteBuffer.allocate(Math.toIntExact(size - mark));
+        while (tail.hasRemaining()) {
+            if (channel.read(tail, mark + tail.position()) < 0) {
+                throw new IOException("Journal " + path + " is shorter than expected");
+            }
+        }
+        writeNewJournal(fingerprint, tail.flip());
+    }
+
+    /**
+     * Atomically replaces the journal file with one holding a header with the given fingerprint and the given
+     * records, and opens it for appending.
+     */
+    private void writeNewJournal(long fingerprint, ByteBuffer records) throws IOException {
+        AtomicFile file = new AtomicFile(path);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).put(MAGIC).put(VERSION).putLong(fingerprint);
+            FileChannel out = file.getChannel();
+            writeFully(out, records, writeFully(out, header.flip(), 0));
+            if (channel != null) {
+                channel.close();
+            }
+            size = file.commit();
+        } catch (IOException | RuntimeException e) {
+            file.abort();
+            throw e;
+        } finally {
+            if (channel == null || !channel.isOpen()) {
+                channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+        }
+    }
+
+    /**
+     * Makes room in the pending buffer for a record with operands of at most the given size, and starts the record.
+     */
+    private void putOpcode(byte opcode, int maxOperandSize) {
+        if (pending.remaining() < 1 + maxOperandSize) {
+            int capacity = Math.max(2 * pending.capacity(), pending.position() + 1 + maxOperandSize);
+            pending = ByteBuffer.allocate(capacity).put(pending.flip());
+        }
+        pending.put(opcode);
+    }
+
+    /**
+     * Adds the given non-negative operands to the pending record as varints.
+     */
+    private void putVarints(int... values) {
+        for (int value : values) {
+            BinaryFormat.putVarint(pending, value);
+        }
+    }
+
+    /**
+     * Adds the tiles of the region to the pending record, one byte per tile, column by column.
+     */
+    private void putTiles(TileRegion region) {
+        for (int i = 0; i < region.getWidth(); i++) {
+            for (int j = 0; j < region.getHeight(); j++) {
+                pending.put((byte) region.getTileType(i, j).ordinal());
+            }
+        }
+    }
+
+    /**
+     * Returns the tile the region is filled with, or null if it holds more than one type of tile.
+     */
+    private static TerrainTile uniformTile(TileRegion region) {
+        TerrainTile first = region.getTileType(0, 0);
+        for (int i = 0; i < region.getWidth(); i++) {
+            for (int j = 0; j < region.getHeight(); j++) {
+                if (region.getTileType(i, j) != first) {
+                    return null;
+                }
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Reads the given number of varints from a record.
+     */
+    private static int[] getVarints(ByteBuffer record, int count) throws IOException {
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = BinaryFormat.getVarint(record);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the tile with the given ordinal.
+     *
+     * @throws IOException if there is no such tile
+     */
+    private static TerrainTile toTile(int ordinal) throws IOException {
+        if (ordinal < 0 || ordinal >= TerrainTile.values().length) {
+            throw new IOException("Unknown tile " + ordinal);
+        }
+        return TerrainTile.values()[ordinal];
+    }
+
+    /**
+     * Maps a signed int to a non-negative one that is small when the signed int is close to zero.
+     */
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * Reverses zigzag.
+     */
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Writes all the bytes remaining in the buffer to the channel, starting at the given position.
+     *
+     * @return the position after the last byte written
+     */
+    private static long writeFully(FileChannel out, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += out.write(buffer, position);
+        }
+        return position;
+    }
+}
@@ -1,21 +1,25 @@
 package persistence;
 
 import model.*;
-import org.json.JSONArray;
-import org.json.JSONObject;
+import org.json.JSONException;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.stream.Stream;
+import java.util.logging.Logger;
 
 /**
- * Reader that interprets information stored in JSON files.
+ * Reader that interprets information stored in JSON files. Both the original schema and the compact version 2
+ * schema written by Terrain.toJson are understood.
  * Code modeled after methods from the JsonReader class in:
  * https://github.students.cs.ubc.ca/CPSC210/JsonSerializationDemo
  */
 public class JsonReader {
+    private static final Logger log = Logger.getLogger(JsonReader.class.getName());
     private String source;
 
     /**
@@ -28,103 +32,186 @@ public class JsonReader {
     }
 
     /**
-     * Parses Terrain from source
+     * Parses Terrain from source in a single streaming pass, filling the Terrain's tile storage and unit list
+     * directly without first building a JSONObject tree.
      *
      * @return parsed Terrain
      * @throws IOException if there is a read error
+     * @throws org.json.JSONException if the source is not valid JSON or is missing a field
+     * @throws IllegalArgumentException if the source holds an unknown tile or unit, or an invalid map
      */
     public Terrain readTerrain() throws IOException {
-        String jsonData = readFile(source);
-        JSONObject jsonObject = new JSONObject(jsonData);
-        return parseTerrain(jsonObject);
+        return readTerrain(ProgressListener.NONE);
     }
 
     /**
-     * Reads terrain from source, and returns it as a String
+     * Parses Terrain from source as readTerrain() does, reporting the number of bytes read to the listener.
      *
-     * @param source path of the file trying to be read, including filename and extension
-     * @return string representation of source file
+     * @param listener listener told how many bytes of the file have been read
+     * @return parsed Terrain
      * @throws IOException if there is a read error
+     * @throws java.io.InterruptedIOException if the thread is interrupted while reading
+     * @throws org.json.JSONException if the source is not valid JSON or is missing a field
+     * @throws IllegalArgumentException if the source holds an unknown tile or unit, or an invalid map
      */
-    private String readFile(String source) throws IOException {
-        StringBuilder contentBuilder = new StringBuilder();
-
-        try (Stream<String> stream = Files.lines(Paths.get(source), StandardCharsets.UTF_8)) {
-            stream.forEach(s -> contentBuilder.append(s));
+    public Terrain readTerrain(ProgressListener listener) throws IOException {
+        Path path = Paths.get(source);
+        try (Reader in = new InputStreamReader(new ProgressInputStream(Files.newInputStream(path), Files.size(path),
+                listener), StandardCharsets.UTF_8)) {
+            Terrain terrain = parseTerrain(in);
+            log.fine(() -> "Loaded terrain " + terrain.getName() + " from " + source + " with tile counts "
+                    + terrain.getTileCounts());
+            return terrain;
         }
+    }
 
-        return contentBuilder.toString();
+    /**
+     * Parses Terrain from the given JSON text in a single streaming pass. The Reader is not closed.
+     *
+     * @param in source of the JSON text
+     * @return parsed Terrain
+     * @throws IOException if there is a read error
+     * @throws org.json.JSONException if the text is not valid JSON or is missing a field
+     * @throws IllegalArgumentException if the text holds an unknown tile or unit, or an invalid map
+     */
+    public static Terrain parseTerrain(Reader in) throws IOException {
+        JsonTokenReader tokens = new JsonTokenReader(in);
+        Terrain terrain = parseTerrain(tokens);
+        tokens.endDocument();
+        return terrain;
     }
 
     /**
-     * Parses terrain from given JSONObject
+     * Parses a terrain object, in either the original schema, which lists every tile of every column under
+     * "terrainFull", or the version 2 schema, which lists run-length encoded rows under "rows". Members may appear
+     * in any order, and unknown members are skipped.
      *
-     * @param jsonObject terrain represented as a JSONObject
+     * @param tokens parser positioned at the start of the terrain object
      * @return parsed Terrain
      */
-    private Terrain parseTerrain(JSONObject jsonObject) {
-        String name = jsonObject.getString("name");
-        TerrainTile[][] terrainTile = parseTerrainMap(jsonObject.getJSONArray("terrainFull"));
-        UnitList units = parseUnits(jsonObject.getJSONArray("units"));
-        return new Terrain(name, terrainTile, units);
+    private static Terrain parseTerrain(JsonTokenReader tokens) throws IOException {
+        TerrainBuilder builder = new TerrainBuilder();
+        RowDecoder rows = new RowDecoder();
+        String name = null;
+        int version = 1;
+        tokens.beginObject();
+        while (tokens.hasNext()) {
+            switch (tokens.nextName()) {
+                case "name" -> name = tokens.nextString();
+                case "version" -> version = tokens.nextInt();
+                case "width" -> rows.setWidth(tokens.nextInt());
+                case "height" -> rows.setHeight(tokens.nextInt());
+                case "legend" -> rows.parseLegend(tokens);
+                case "rows" -> rows.parseRows(tokens);
+                case "terrainFull" -> parseTerrainMap(tokens, builder);
+                case "units" -> parseUnits(tokens, builder);
+                default -> tokens.skipValue();
+            }
+        }
+        tokens.endObject();
+        checkHeader(name, version);
+        if (rows.hasRows()) {
+            rows.decodeInto(builder);
+        }
+        return builder.setName(name).build();
     }
 
     /**
-     * Parses units from JSON array and returns a list of Units.
+     * Checks that a terrain object has a name and a version this reader understands.
      *
-     * @param unitsJson JSONArray of units
-     * @return parsed UnitList
+     * @param name    name of the terrain, or null if it had none
+     * @param version schema version of the terrain object
      */
-    private UnitList parseUnits(JSONArray unitsJson) {
-        UnitList result = new UnitList();
-        for (int i = 0; i < unitsJson.length(); i++) {
-            result.add(parseUnit(unitsJson.getJSONObject(i)));
+    private static void checkHeader(String name, int version) {
+        if (name == null) {
+            throw new JSONException("JSONObject[\"name\"] not found.");
+        }
+        if (version < 1 || version > Terrain.JSON_VERSION) {
+            throw new JSONException("Unsupported map version " + version);
         }
-        return result;
     }
 
     /**
-     * Parses a unit from JSON object and returns it.
+     * Parses units from a JSON array and adds them to the builder.
      *
-     * @param jsonObject JSONObject representation of a Unit
+     * @param tokens  parser positioned at the start of the units array
+     * @param builder builder receiving the units
+     */
+    private static void parseUnits(JsonTokenReader tokens, TerrainBuilder builder) throws IOException {
+        tokens.beginArray();
+        while (tokens.hasNext()) {
+            builder.addUnit(parseUnit(tokens));
+        }
+        tokens.endArray();
+    }
+
+    /**
+     * Parses a unit from a JSON object and returns it.
+     *
+     * @param tokens parser positioned at the start of the unit object
      * @return parsed Unit
      */
-    private Unit parseUnit(JSONObject jsonObject) {
-        int x = jsonObject.getInt("x");
-        int y = jsonObject.getInt("y");
-        Faction faction = Faction.valueOf(jsonObject.getString("faction"));
-        BattleClass battleClass = BattleClass.valueOf(jsonObject.getString("class"));
-        return new Unit(faction, battleClass, x, y);
+    private static Unit parseUnit(JsonTokenReader tokens) throws IOException {
+        Integer x = null;
+        Integer y = null;
+        String faction = null;
+        String battleClass = null;
+        tokens.beginObject();
+        while (tokens.hasNext()) {
+            switch (tokens.nextName()) {
+                case "x" -> x = tokens.nextInt();
+                case "y" -> y = tokens.nextInt();
+                case "faction" -> faction = tokens.nextString();
+                case "class" -> battleClass = tokens.nextString();
+                default -> tokens.skipValue();
+            }
+        }
+        tokens.endObject();
+        if (x == null || y == null || faction == null || battleClass == null) {
+            throw new JSONException("Unit is missing one of x, y, faction and class");
+        }
+        return new Unit(Faction.valueOf(faction), BattleClass.valueOf(battleClass), x, y);
     }
 
     /**
-     * Parses all TerrainTiles from JSON Array and returns it as a 2D TerrainTile array.
+     * Parses all TerrainTiles from a JSON array of columns and adds them to the builder.
      *
-     * @param terrainJson 2D Array of TerrainTiles represented as a 2D JSONArray
-     * @return parsed 2D TerrainTile array
+     * @param tokens  parser positioned at the start of the array of columns
+     * @param builder builder receiving the tiles
      */
-    private TerrainTile[][] parseTerrainMap(JSONArray terrainJson) {
-        int width = terrainJson.length();
-        int height = ((JSONArray) terrainJson.get(0)).length();
-        TerrainTile[][] terrainTileArray = new TerrainTile[width][height];
-        for (int i = 0; i < width; i++) {
-            terrainTileArray[i] = parseTerrainColumn((JSONArray) terrainJson.get(i), height);
+    private static void parseTerrainMap(JsonTokenReader tokens, TerrainBuilder builder) throws IOException {
+        tokens.beginArray();
+        while (tokens.hasNext()) {
+            parseTerrainColumn(tokens, builder);
         }
-        return terrainTileArray;
+        tokens.endArray();
     }
 
     /**
-     * Parses a column of terrain from JSON Array to TerrainTile array.
+     * Parses a column of terrain from a JSON array and adds its tiles to the builder.
      *
-     * @param terrainColumn column of TerrainTiles represented as a JSONArray
-     * @param height height of terrain column
-     * @return parsed TerrainTile column
+     * @param tokens  parser positioned at the start of the column
+     * @param builder builder receiving the tiles
      */
-    private TerrainTile[] parseTerrainColumn(JSONArray terrainColumn, int height) {
-        TerrainTile[] result = new TerrainTile[height];
-        for (int j = 0; j < height; j++) {
-            result[j] = TerrainTile.valueOf(terrainColumn.getJSONObject(j).getString("terrain"));
+    private static void parseTerrainColumn(JsonTokenReader tokens, TerrainBuilder builder) throws IOException {
+        tokens.beginArray();
+        while (tokens.hasNext()) {
+            TerrainTile tile = null;
+            tokens.beginObject();
+            while (tokens.hasNext()) {
+                if (tokens.nextName().equals("terrain")) {
+                    tile = TerrainTile.valueOf(tokens.nextString());
+                } else {
+                    tokens.skipValue();
+                }
+            }
+            tokens.endObject();
+            if (tile == null) {
+                throw new JSONException("JSONObject[\"terrain\"] not found.");
+            }
+            builder.addTile(tile);
         }
-        return result;
+        tokens.endArray();
+        builder.endColumn();
     }
 }
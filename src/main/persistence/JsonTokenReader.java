@@ -0,0 +1,307 @@
+package persistence;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Pull parser that reads a JSON document one token at a time from a Reader, without building a tree of
+ * JSONObjects. Callers walk the document with beginObject/nextName/nextString/endObject and similar calls, and skip
+ * values they do not need with skipValue. Malformed input is reported with a JSONException, as org.json does.
+ */
+final class JsonTokenReader {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder token = new StringBuilder();
+    private int pos;
+    private int limit;
+    private long offset;
+    private boolean afterValue;
+
+    /**
+     * Constructs a parser reading from the given Reader. The Reader is not closed by the parser.
+     *
+     * @param in source of the JSON document
+     */
+    JsonTokenReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Consumes the opening brace of an object.
+     */
+    void beginObject() throws IOException {
+        begin('{');
+    }
+
+    /**
+     * Consumes the closing brace of an object.
+     */
+    void endObject() throws IOException {
+        end('}');
+    }
+
+    /**
+     * Consumes the opening bracket of an array.
+     */
+    void beginArray() throws IOException {
+        begin('[');
+    }
+
+    /**
+     * Consumes the closing bracket of an array.
+     */
+    void endArray() throws IOException {
+        end(']');
+    }
+
+    /**
+     * Returns true if the current object or array has another member, consuming the comma before it.
+     */
+    boolean hasNext() throws IOException {
+        int c = peekToken();
+        if (c == '}' || c == ']') {
+            return false;
+        }
+        if (afterValue) {
+            expect(',');
+            afterValue = false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the name of the next member of an object, and the colon after it.
+     *
+     * @return the member name
+     */
+    String nextName() throws IOException {
+        String result = readString();
+        expect(':');
+        afterValue = false;
+        return result;
+    }
+
+    /**
+     * Reads a string value.
+     *
+     * @return the string
+     */
+    String nextString() throws IOException {
+        String result = readString();
+        afterValue = true;
+        return result;
+    }
+
+    /**
+     * Reads an integer value. Like org.json's getInt, a string holding an integer is also accepted.
+     *
+     * @return the integer
+     */
+    int nextInt() throws IOException {
+        String text = peekToken() == '"' ? readString() : readLiteral();
+        afterValue = true;
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw syntaxError("Expected an integer but found " + text);
+        }
+    }
+
+    /**
+     * Skips the next value, including any objects or arrays nested inside it.
+     */
+    void skipValue() throws IOException {
+        int c = peekToken();
+        if (c == '{' || c == '[') {
+            boolean object = c == '{';
+            begin((char) c);
+            while (hasNext()) {
+                if (object) {
+                    nextName();
+                }
+                skipValue();
+            }
+            end(object ? '}' : ']');
+        } else if (c == '"') {
+            readString();
+        } else {
+            readLiteral();
+        }
+        afterValue = true;
+    }
+
+    /**
+     * Checks that only whitespace remains in the document.
+     */
+    void endDocument() throws IOException {
+        if (peekToken() != -1) {
+            throw syntaxError("Unexpected content after the end of the document");
+        }
+    }
+
+    /**
+     * Consumes the given opening character.
+     */
+    private void begin(char open) throws IOException {
+        expect(open);
+        afterValue = false;
+    }
+
+    /**
+     * Consumes the given closing character.
+     */
+    private void end(char close) throws IOException {
+        expect(close);
+        afterValue = true;
+    }
+
+    /**
+     * Consumes the next non-whitespace character, which must be the given one.
+     */
+    private void expect(char expected) throws IOException {
+        int c = peekToken();
+        if (c != expected) {
+            throw syntaxError("Expected '" + expected + "' but found " + describe(c));
+        }
+        pos++;
+    }
+
+    /**
+     * Reads a quoted string, decoding escape sequences.
+     */
+    private String readString() throws IOException {
+        expect('"');
+        token.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return token.toString();
+            } else if (c == '\\') {
+                token.append(readEscape());
+            } else if (c == -1 || c < 0x20) {
+                throw syntaxError("Unterminated string");
+            } else {
+                token.append((char) c);
+            }
+        }
+    }
+
+    /**
+     * Reads the character of an escape sequence whose backslash has already been consumed.
+     */
+    private char readEscape() throws IOException {
+        int c = read();
+        switch (c) {
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                return readUnicodeEscape();
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            default:
+                throw syntaxError("Illegal escape sequence");
+        }
+    }
+
+    /**
+     * Reads the four hex digits of a unicode escape sequence.
+     */
+    private char readUnicodeEscape() throws IOException {
+        int result = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(read(), 16);
+            if (digit < 0) {
+                throw syntaxError("Illegal unicode escape");
+            }
+            result = (result << 4) | digit;
+        }
+        return (char) result;
+    }
+
+    /**
+     * Reads an unquoted value, such as a number, true, false or null.
+     */
+    private String readLiteral() throws IOException {
+        peekToken();
+        token.setLength(0);
+        while (true) {
+            int c = peek();
+            if (c == -1 || c == ',' || c == '}' || c == ']' || c == ':' || Character.isWhitespace(c)) {
+                break;
+            }
+            token.append((char) c);
+            pos++;
+        }
+        if (token.length() == 0) {
+            throw syntaxError("Expected a value but found " + describe(peek()));
+        }
+        return token.toString();
+    }
+
+    /**
+     * Skips whitespace and returns the next character without consuming it, or -1 at the end of the document.
+     */
+    private int peekToken() throws IOException {
+        int c = peek();
+        while (c != -1 && Character.isWhitespace(c)) {
+            pos++;
+            c = peek();
+        }
+        return c;
+    }
+
+    /**
+     * Returns the next character without consuming it, or -1 at the end of the document.
+     */
+    private int peek() throws IOException {
+        if (pos == limit) {
+            offset += limit;
+            limit = Math.max(in.read(buffer, 0, BUFFER_SIZE), 0);
+            pos = 0;
+            if (limit == 0) {
+                return -1;
+            }
+        }
+        return buffer[pos];
+    }
+
+    /**
+     * Consumes and returns the next character, or -1 at the end of the document.
+     */
+    private int read() throws IOException {
+        int c = peek();
+        if (c != -1) {
+            pos++;
+        }
+        return c;
+    }
+
+    /**
+     * Returns a readable description of a character for error messages.
+     */
+    private static String describe(int c) {
+        return c == -1 ? "end of input" : "'" + (char) c + "'";
+    }
+
+    /**
+     * Returns an exception describing a syntax error at the current position.
+     */
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " at character " + (offset + pos));
+    }
+}
@@ -1,21 +1,42 @@
 package persistence;
 
 import model.Terrain;
+import model.Unit;
 import org.json.JSONObject;
 
-import java.io.File;
+import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
 
 /**
- * Represents a writer that writes a JSON representation of a MapList object to file.
+ * Represents a writer that writes a JSON representation of a Terrain to file, in the version 2 schema read by
+ * JsonReader. The JSON is streamed straight to a buffered file channel rather than built up as a JSONObject first.
+ * It goes to a temporary file, which only replaces the destination once it has been written in full and forced to
+ * disk, so a failed save never leaves a truncated map behind.
  * Modeled after code from JsonWriter class in:
  * https://github.students.cs.ubc.ca/CPSC210/JsonSerializationDemo
  */
 public class JsonWriter {
-    private static final int TAB = 4;
-    private PrintWriter writer;
-    private String destination;
+    private static final Logger log = Logger.getLogger(JsonWriter.class.getName());
+    private static final String INDENT = "    ";
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final String destination;
+    private AtomicFile file;
+    private Writer writer;
+    private boolean complete;
+    private long startTime;
+    private long bytesWritten;
+    private long elapsedNanos;
 
     /**
      * Constructs a writer that writes to the given destination
@@ -30,10 +51,38 @@ public class JsonWriter {
      * Writes Terrain to file if this is open
      *
      * @param terrain Terrain to be written to file
+     * @throws UncheckedIOException if the file cannot be written. If writing fails for any reason, close discards
+     *                              the file and leaves the destination untouched
      */
     public void write(Terrain terrain) {
-        JSONObject json = terrain.toJson();
-        saveToFile(json.toString(TAB));
+        write(terrain, ProgressListener.NONE);
+    }
+
+    /**
+     * Writes Terrain to file if this is open, reporting the number of rows written to the listener
+     *
+     * @param terrain  Terrain to be written to file
+     * @param listener listener told how many rows of tiles have been written
+     * @throws UncheckedIOException if the file cannot be written, or wrapping an InterruptedIOException if the
+     *                              thread is interrupted. If writing fails for any reason, close discards the file
+     *                              and leaves the destination untouched
+     */
+    public void write(Terrain terrain, ProgressListener listener) {
+        complete = false;
+        try {
+            writer.write("{\n");
+            writeMember("version", Integer.toString(Terrain.JSON_VERSION));
+            writeMember("name", JSONObject.quote(terrain.getName()));
+            writeMember("width", Integer.toString(terrain.getWidth()));
+            writeMember("height", Integer.toString(terrain.getHeight()));
+            writeLegend();
+            writeRows(terrain, listener);
+            writeUnits(terrain.getUnits());
+            writer.write("}\n");
+            complete = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
@@ -42,23 +91,94 @@ public class JsonWriter {
      * @throws FileNotFoundException destination file cannot be opened for writing
      */
     public void open() throws FileNotFoundException {
-        writer = new PrintWriter(new File(destination));
+        try {
+            file = new AtomicFile(Paths.get(destination));
+        } catch (IOException | InvalidPathException e) {
+            FileNotFoundException notFound = new FileNotFoundException(destination + " cannot be opened for writing");
+            notFound.initCause(e);
+            throw notFound;
+        }
+        writer = new BufferedWriter(Channels.newWriter(file.getChannel(), StandardCharsets.UTF_8), BUFFER_SIZE);
+        complete = false;
+        startTime = System.nanoTime();
     }
 
     /**
-     * Closes writer
+     * Closes writer, replacing the destination with the written file if a Terrain was written in full. If nothing
+     * was written, or writing failed, the file is discarded and the destination left untouched
+     *
+     * @throws UncheckedIOException if the file cannot be flushed, forced to disk or moved into place
      */
     public void close() {
-        writer.close();
+        try {
+            if (!complete) {
+                file.abort();
+                return;
+            }
+            writer.flush();
+            bytesWritten = file.commit();
+            elapsedNanos = System.nanoTime() - startTime;
+            log.fine(() -> "Saved " + bytesWritten + " bytes to " + destination + " in " + getElapsedMillis() + " ms");
+        } catch (IOException e) {
+            file.abort();
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
-     * Writes string to file
-     *
-     * @param json string to be written to file
+     * Returns the number of bytes in the file written by the last successful close.
      */
-    private void saveToFile(String json) {
-        writer.print(json);
+    public long getBytesWritten() {
+        return bytesWritten;
     }
 
-}
\ No newline at end of file
+    /**
+     * Returns the number of milliseconds from open to the end of the last successful close.
+     */
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     * Writes a member of the top-level object whose value is already rendered as JSON.
+     */
+    private void writeMember(String name, String value) throws IOException {
+        writer.write(INDENT + JSONObject.quote(name) + ": " + value + ",\n");
+    }
+
+    /**
+     * Writes the legend mapping each tile symbol to its tile, as Terrain builds it.
+     */
+    private void writeLegend() throws IOException {
+        writeMember("legend", Terrain.legendToJson().toString());
+    }
+
+    /**
+     * Writes each row of tiles as a run-length encoded string on its own line.
+     */
+    private void writeRows(Terrain terrain, ProgressListener listener) throws IOException {
+        writer.write(INDENT + "\"rows\": [");
+        int height = terrain.getHeight();
+        for (int j = 0; j < height; j++) {
+            writer.write(j == 0 ? "\n" : ",\n");
+            writer.write(INDENT + INDENT + "\"" + terrain.encodeRow(j) + "\"");
+            ProgressListener.checkCancelled();
+            listener.progress(j + 1, height);
+        }
+        writer.write("\n" + INDENT + "],\n");
+    }
+
+    /**
+     * Writes each unit as an object on its own line.
+     */
+    private void writeUnits(List<Unit> units) throws IOException {
+        writer.write(INDENT + "\"units\": [");
+        for (int i = 0; i < units.size(); i++) {
+            Unit unit = units.get(i);
+            writer.write(i == 0 ? "\n" : ",\n");
+            writer.write(INDENT + INDENT + "{\"faction\": \"" + unit.getFaction().name() + "\", \"class\": \""
+                    + unit.getBattleClass().name() + "\", \"x\": " + unit.getX() + ", \"y\": " + unit.getY() + "}");
+        }
+        writer.write("\n" + INDENT + "]\n");
+    }
+}
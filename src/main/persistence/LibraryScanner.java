@@ -0,0 +1,227 @@
+package persistence;
+
+import org.json.JSONException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds where each map of a map library file starts and ends, without parsing the maps. A library file is a JSON
+ * object whose "maps" member is an array of terrain objects. The scanner works on the raw UTF-8 bytes, so the
+ * positions it reports are byte offsets, and it only looks at the structure of the document: quotes, escapes,
+ * brackets and commas. Elements of the array that are null are skipped, as they mark maps that have been moved.
+ */
+final class LibraryScanner {
+
+    private final ByteBuffer bytes;
+    private final List<int[]> spans = new ArrayList<>();
+    private int pos;
+    private int arrayEnd = -1;
+    private boolean emptyArray = true;
+
+    /**
+     * Constructs a scanner over the bytes between the buffer's start and its limit.
+     *
+     * @param bytes the library file's bytes
+     */
+    LibraryScanner(ByteBuffer bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Scans the library, recording the span of every map.
+     *
+     * @throws JSONException if the library is not a JSON object with a "maps" array
+     */
+    void scan() {
+        expect('{');
+        boolean first = true;
+        while (skipWhitespace() != '}') {
+            if (!first) {
+                expect(',');
+                skipWhitespace();
+            }
+            first = false;
+            String name = readKey();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            if (name.equals("maps")) {
+                scanMaps();
+            } else {
+                skipValue();
+            }
+        }
+        if (arrayEnd < 0) {
+            throw syntaxError("Map library has no maps array");
+        }
+    }
+
+    /**
+     * Returns the start and end offsets of each map, in file order.
+     */
+    List<int[]> getSpans() {
+        return spans;
+    }
+
+    /**
+     * Returns the offset of the bracket closing the maps array.
+     */
+    int getArrayEnd() {
+        return arrayEnd;
+    }
+
+    /**
+     * Returns true if the maps array has no elements at all, not even null ones.
+     */
+    boolean isEmptyArray() {
+        return emptyArray;
+    }
+
+    /**
+     * Records the span of each element of the maps array.
+     */
+    private void scanMaps() {
+        expect('[');
+        if (skipWhitespace() == ']') {
+            arrayEnd = pos++;
+            return;
+        }
+        emptyArray = false;
+        while (true) {
+            int start = pos;
+            boolean isNull = bytes.get(pos) == 'n';
+            skipValue();
+            if (!isNull) {
+                spans.add(new int[] {start, pos});
+            }
+            if (skipWhitespace() == ']') {
+                arrayEnd = pos++;
+                return;
+            }
+            expect(',');
+            skipWhitespace();
+        }
+    }
+
+    /**
+     * Reads an object member's name, which may not contain escapes.
+     */
+    private String readKey() {
+        int start = pos + 1;
+        skipString();
+        byte[] key = new byte[pos - start - 1];
+        bytes.get(start, key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Moves past the value starting at the current position.
+     */
+    private void skipValue() {
+        byte b = peek();
+        if (b == '"') {
+            skipString();
+        } else if (b == '{' || b == '[') {
+            skipContainer();
+        } else {
+            int start = pos;
+            while (pos < bytes.limit() && !isDelimiter(bytes.get(pos))) {
+                pos++;
+            }
+            if (pos == start) {
+                throw syntaxError("Expected a value");
+            }
+        }
+    }
+
+    /**
+     * Moves past the object or array starting at the current position, including everything nested in it.
+     */
+    private void skipContainer() {
+        int depth = 0;
+        do {
+            byte b = peek();
+            if (b == '"') {
+                skipString();
+                continue;
+            }
+            if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+            }
+            pos++;
+        } while (depth > 0);
+    }
+
+    /**
+     * Moves past the string starting at the current position.
+     */
+    private void skipString() {
+        expect('"');
+        while (true) {
+            byte b = peek();
+            pos++;
+            if (b == '\\') {
+                peek();
+                pos++;
+            } else if (b == '"') {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Moves past any whitespace and returns the next byte without consuming it.
+     */
+    private byte skipWhitespace() {
+        while (isWhitespace(peek())) {
+            pos++;
+        }
+        return peek();
+    }
+
+    /**
+     * Consumes the given byte.
+     */
+    private void expect(char expected) {
+        if (peek() != expected) {
+            throw syntaxError("Expected '" + expected + "'");
+        }
+        pos++;
+    }
+
+    /**
+     * Returns the byte at the current position without consuming it.
+     */
+    private byte peek() {
+        if (pos >= bytes.limit()) {
+            throw syntaxError("Unexpected end of map library");
+        }
+        return bytes.get(pos);
+    }
+
+    /**
+     * Returns true if the byte is JSON whitespace.
+     */
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    /**
+     * Returns true if the byte ends a number or literal.
+     */
+    private static boolean isDelimiter(byte b) {
+        return isWhitespace(b) || b == ',' || b == '}' || b == ']';
+    }
+
+    /**
+     * Returns an exception describing a syntax error at the current position.
+     */
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " at byte " + pos);
+    }
+}
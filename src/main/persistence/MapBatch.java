@@ -0,0 +1,220 @@
+package persistence;
+
+import model.Terrain;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Represents a batch job that reads many map files in parallel, validating each and optionally writing it back,
+ * either in its own format, which migrates old JSON saves to the current schema, or converted to another format.
+ * A written map is read back and compared with the one that was read, so a map that does not survive the round trip
+ * is reported as a failure. Each worker thread holds one map at a time, so memory use is bounded by the number of
+ * threads rather than the number of files.
+ */
+public class MapBatch {
+
+    private final MapFormat target;
+    private final boolean write;
+    private final int threads;
+
+    /**
+     * Represents the outcome of a batch job.
+     */
+    public static final class Report {
+        private final int processed;
+        private final long bytes;
+        private final long nanos;
+        private final List<String> failures;
+
+        /**
+         * Constructs a report of a job that processed the given number of maps and bytes in the given time.
+         */
+        Report(int processed, long bytes, long nanos, List<String> failures) {
+            this.processed = processed;
+            this.bytes = bytes;
+            this.nanos = nanos;
+            this.failures = Collections.unmodifiableList(failures);
+        }
+
+        /**
+         * Returns the number of map files processed, including those that failed.
+         */
+        public int getProcessed() {
+            return processed;
+        }
+
+        /**
+         * Returns the total size of the map files read, in bytes.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Returns one message per failed map file, naming the file and the error, in the order the files were given.
+         */
+        public List<String> getFailures() {
+            return failures;
+        }
+
+        /**
+         * Returns the number of maps processed per second of wall-clock time.
+         */
+        public double getMapsPerSecond() {
+            return nanos == 0 ? 0 : processed * 1e9 / nanos;
+        }
+
+        /**
+         * Returns the number of megabytes read per second of wall-clock time.
+         */
+        public double getMegabytesPerSecond() {
+            return nanos == 0 ? 0 : bytes * 1e9 / nanos / (1024 * 1024);
+        }
+    }
+
+    /**
+     * Constructs a batch job.
+     *
+     * @param target  format to write the maps in, or null to keep each map's own format
+     * @param write   true to write each map back, false to only validate it
+     * @param threads number of worker threads
+     * @throws IllegalArgumentException if threads is not positive
+     */
+    public MapBatch(MapFormat target, boolean write, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        this.target = target;
+        this.write = write;
+        this.threads = threads;
+    }
+
+    /**
+     * Finds the map files a command line argument refers to. A directory stands for every JSON and binary map file
+     * under it; anything else is taken as a glob, such as data/mapSaves/*.json, matched against the files under the
+     * deepest directory named before its first wildcard.
+     *
+     * @param pattern a directory or a glob
+     * @return the matching files, sorted by path
+     * @throws IOException if a directory cannot be listed
+     */
+    public static List<Path> findMaps(String pattern) throws IOException {
+        Path directory = Paths.get(pattern);
+        PathMatcher matcher = path -> MapFormat.fromFileName(path.toString()) != null;
+        if (!Files.isDirectory(directory)) {
+            int wildcard = firstWildcard(pattern);
+            int slash = Math.max(pattern.lastIndexOf('/', wildcard), pattern.lastIndexOf('\\', wildcard));
+            directory = Paths.get(slash < 0 ? "." : pattern.substring(0, slash + 1));
+            PathMatcher glob = FileSystems.getDefault().getPathMatcher("glob:" + pattern.substring(slash + 1));
+            Path base = directory;
+            matcher = path -> glob.matches(base.relativize(path));
+        }
+        PathMatcher filter = matcher;
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).filter(filter::matches).sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Processes the given files on the worker threads and waits for them all to finish.
+     *
+     * @param files the map files to process
+     * @return the report of the job
+     * @throws InterruptedException if interrupted while waiting, in which case unstarted files are skipped
+     */
+    public Report run(List<Path> files) throws InterruptedException {
+        long start = System.nanoTime();
+        AtomicLong bytes = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (Path file : files) {
+                results.add(pool.submit(() -> {
+                    bytes.addAndGet(Files.size(file));
+                    process(file);
+                    return null;
+                }));
+            }
+            List<String> failures = new ArrayList<>();
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    results.get(i).get();
+                } catch (ExecutionException e) {
+                    failures.add(files.get(i) + ": " + e.getCause());
+                }
+            }
+            return new Report(files.size(), bytes.get(), System.nanoTime() - start, failures);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads, validates and, if asked to, writes back and checks one map file. The map is written to a temporary
+     * file and read back from there, and only replaces its output file once it has survived the round trip, so a
+     * map that fails the check never overwrites its original.
+     *
+     * @param file the map file
+     * @throws IOException if the file cannot be read or written, or does not survive the round trip
+     */
+    void process(Path file) throws IOException {
+        MapFormat format = MapFormat.detect(file.toString());
+        Terrain terrain = format.read(file.toString());
+        if (!write) {
+            return;
+        }
+        MapFormat outputFormat = target == null ? format : target;
+        Path output = Paths.get(outputPath(file, outputFormat));
+        Path temp = AtomicFile.tempPath(output);
+        try {
+            outputFormat.write(terrain, temp.toString());
+            if (!terrain.equals(outputFormat.read(temp.toString()))) {
+                throw new IOException("Map written to " + output + " does not match the original");
+            }
+            AtomicFile.replace(temp, output);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Returns the path the given file is written back to in the given format: the file itself if it is already in
+     * that format, or a file of the same name with the format's extension otherwise.
+     */
+    private static String outputPath(Path file, MapFormat format) {
+        String path = file.toString();
+        if (format == MapFormat.fromFileName(path)) {
+            return path;
+        }
+        int dot = path.lastIndexOf('.');
+        int slash = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+        return (dot > slash ? path.substring(0, dot) : path) + "." + format.getExtension();
+    }
+
+    /**
+     * Returns the position of the first glob wildcard in the pattern, or its length if it has none.
+     */
+    private static int firstWildcard(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if ("*?[{".indexOf(pattern.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return pattern.length();
+    }
+}
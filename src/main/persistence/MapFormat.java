@@ -0,0 +1,166 @@
+package persistence;
+
+import model.Terrain;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Represents a file format that maps can be saved in, with the readers and writers for each.
+ */
+public enum MapFormat {
+    JSON("json", "JSON map files"),
+    BINARY("tmap", "Binary map files");
+
+    private final String extension;
+    private final String description;
+
+    MapFormat(String extension, String description) {
+        this.extension = extension;
+        this.description = description;
+    }
+
+    /**
+     * Returns the file extension of the format, without the leading dot.
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Returns a description of the format for file choosers.
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Returns the format whose extension the file name ends with, ignoring case.
+     *
+     * @param fileName name or path of a file
+     * @return the matching format, or null if the extension is not a map format's
+     */
+    public static MapFormat fromFileName(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        String fileExtension = dot < 0 ? "" : fileName.substring(dot + 1);
+        for (MapFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(fileExtension)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Detects the format of an existing file from its first bytes, regardless of its extension. Files that do not
+     * start with the binary magic bytes are taken to be JSON.
+     *
+     * @param path path of the file
+     * @return the format of the file
+     * @throws IOException if the file cannot be read
+     */
+    public static MapFormat detect(String path) throws IOException {
+        try (InputStream in = Files.newInputStream(Paths.get(path))) {
+            byte[] head = in.readNBytes(BinaryFormat.MAGIC.length);
+            return Arrays.equals(head, BinaryFormat.MAGIC) ? BINARY : JSON;
+        }
+    }
+
+    /**
+     * Reads a map from a file, detecting its format from its contents.
+     *
+     * @param path path of the file
+     * @return the map read from the file
+     * @throws IOException if there is a read error
+     * @throws org.json.JSONException if a JSON file is malformed
+     * @throws IllegalArgumentException if the file holds an invalid map
+     */
+    public static Terrain readTerrain(String path) throws IOException {
+        return detect(path).read(path);
+    }
+
+    /**
+     * Reads a map from a file as readTerrain(String) does, reporting the number of bytes read to the listener.
+     *
+     * @param path     path of the file
+     * @param listener listener told how many bytes of the file have been read
+     * @return the map read from the file
+     * @throws IOException if there is a read error
+     * @throws java.io.InterruptedIOException if the thread is interrupted while reading
+     * @throws org.json.JSONException if a JSON file is malformed
+     * @throws IllegalArgumentException if the file holds an invalid map
+     */
+    public static Terrain readTerrain(String path, ProgressListener listener) throws IOException {
+        return detect(path).read(path, listener);
+    }
+
+    /**
+     * Reads a map stored in this format.
+     *
+     * @param path path of the file
+     * @return the map read from the file
+     * @throws IOException if there is a read error
+     */
+    public Terrain read(String path) throws IOException {
+        return read(path, ProgressListener.NONE);
+    }
+
+    /**
+     * Reads a map stored in this format, reporting the number of bytes read to the listener.
+     *
+     * @param path     path of the file
+     * @param listener listener told how many bytes of the file have been read
+     * @return the map read from the file
+     * @throws IOException if there is a read error
+     * @throws java.io.InterruptedIOException if the thread is interrupted while reading
+     */
+    public Terrain read(String path, ProgressListener listener) throws IOException {
+        return switch (this) {
+            case BINARY -> new BinaryReader(path).readTerrain(listener);
+            default -> new JsonReader(path).readTerrain(listener);
+        };
+    }
+
+    /**
+     * Writes a map to a file in this format, replacing any existing file.
+     *
+     * @param terrain the map to write
+     * @param path    path of the file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Terrain terrain, String path) throws IOException {
+        write(terrain, path, ProgressListener.NONE);
+    }
+
+    /**
+     * Writes a map to a file in this format, replacing any existing file, and reporting progress to the listener.
+     *
+     * @param terrain  the map to write
+     * @param path     path of the file
+     * @param listener listener told how much of the map has been written
+     * @throws IOException if the file cannot be written
+     * @throws java.io.InterruptedIOException if the thread is interrupted while writing; the file is then left
+     *                                        untouched
+     */
+    public void write(Terrain terrain, String path, ProgressListener listener) throws IOException {
+        if (this == BINARY) {
+            new BinaryWriter(path).write(terrain, listener);
+        } else {
+            JsonWriter writer = new JsonWriter(path);
+            writer.open();
+            try {
+                try {
+                    writer.write(terrain, listener);
+                } finally {
+                    writer.close();
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
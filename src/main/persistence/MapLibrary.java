@@ -0,0 +1,337 @@
+package persistence;
+
+import model.Terrain;
+import org.json.JSONException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Represents a map library file, such as data/maplist.json, which holds many maps under a "maps" array. Opening a
+ * library only reads its index, which lists the name, dimensions and byte span of each map; a map is parsed when
+ * it is asked for. The index is built by scanning the library once and is kept in a sidecar file next to it, with
+ * ".index" added to its name, so later opens do not read the library at all. The sidecar records the library's
+ * size and modification time, and is rebuilt if the library has changed since.
+ * The sidecar holds the magic bytes "TIDX", a version byte, the library's size and modification time as longs, the
+ * offset of the bracket closing the maps array and whether the array is empty, then the number of maps and, for
+ * each, its name, width, height, offset and length. Numbers other than the longs are stored as varints.
+ */
+public class MapLibrary {
+    public static final String INDEX_EXTENSION = ".index";
+
+    static final byte[] INDEX_MAGIC = "TIDX".getBytes(StandardCharsets.US_ASCII);
+    static final byte INDEX_VERSION = 1;
+
+    private static final Logger log = Logger.getLogger(MapLibrary.class.getName());
+
+    private final Path path;
+    private final Path indexPath;
+    private final List<Entry> entries = new ArrayList<>();
+    private int arrayEnd;
+    private boolean emptyArray;
+
+    /**
+     * Represents the index entry of one map in a library.
+     */
+    public static final class Entry {
+        private final String name;
+        private final int width;
+        private final int height;
+        private final int offset;
+        private final int length;
+
+        /**
+         * Constructs an entry for a map stored in the given span of the library.
+         */
+        Entry(String name, int width, int height, int offset, int length) {
+            this.name = name;
+            this.width = width;
+            this.height = height;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /**
+         * Returns the name of the map.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the width of the map.
+         */
+        public int getWidth() {
+            return width;
+        }
+
+        /**
+         * Returns the height of the map.
+         */
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * Returns the offset of the map's first byte in the library.
+         */
+        int getOffset() {
+            return offset;
+        }
+
+        /**
+         * Returns the number of bytes the map takes up in the library.
+         */
+        int getLength() {
+            return length;
+        }
+    }
+
+    /**
+     * Constructs a library for the given file, without reading it.
+     */
+    private MapLibrary(String path) {
+        this.path = Paths.get(path);
+        this.indexPath = Paths.get(path + INDEX_EXTENSION);
+    }
+
+    /**
+     * Opens a library, reading its sidecar index if it is up to date, or scanning the library and writing a new
+     * sidecar otherwise.
+     *
+     * @param path path of the library file
+     * @return the open library
+     * @throws IOException if the library cannot be read
+     * @throws JSONException if the library has to be scanned and is malformed
+     * @throws IllegalArgumentException if the library has to be scanned and holds an invalid map
+     */
+    public static MapLibrary open(String path) throws IOException {
+        MapLibrary library = new MapLibrary(path);
+        if (!library.readIndex()) {
+            library.scan();
+            library.writeIndex();
+        }
+        return library;
+    }
+
+    /**
+     * Returns the number of maps in the library.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the index entries of the maps, in the order they are stored in the library.
+     */
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Returns the position of the first map with the given name, or -1 if there is none.
+     *
+     * @param name the map name
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).getName().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads and parses the map at the given position, without reading any other map.
+     *
+     * @param index position of the map in the library
+     * @return the parsed map
+     * @throws IOException if the library cannot be read
+     * @throws JSONException if the map is malformed
+     * @throws IllegalArgumentException if the map is invalid
+     * @throws IndexOutOfBoundsException if there is no map at the given position
+     */
+    public Terrain readMap(int index) throws IOException {
+        Entry entry = entries.get(index);
+        ByteBuffer bytes = ByteBuffer.allocate(entry.getLength());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes, entry.getOffset() + bytes.position()) < 0) {
+                    throw new IOException("Map library " + path + " is shorter than its index");
+                }
+            }
+        }
+        return parseMap(bytes.array(), 0, bytes.capacity());
+    }
+
+    /**
+     * Returns the path of the library file.
+     */
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the offset of the bracket closing the maps array.
+     */
+    int getArrayEnd() {
+        return arrayEnd;
+    }
+
+    /**
+     * Returns true if the maps array has no elements at all, not even null ones.
+     */
+    boolean isEmptyArray() {
+        return emptyArray;
+    }
+
+    /**
+     * Records that the library has been written to, updating its index entries and the sidecar.
+     *
+     * @param newEntries  the entries of the maps after the write
+     * @param newArrayEnd  offset of the bracket closing the maps array
+     * @throws IOException if the sidecar cannot be written
+     */
+    void update(List<Entry> newEntries, int newArrayEnd) throws IOException {
+        entries.clear();
+        entries.addAll(newEntries);
+        arrayEnd = newArrayEnd;
+        emptyArray = false;
+        writeIndex();
+    }
+
+    /**
+     * Parses the map held in the given bytes.
+     */
+    private static Terrain parseMap(byte[] bytes, int offset, int length) throws IOException {
+        try (Reader in = new InputStreamReader(new ByteArrayInputStream(bytes, offset, length),
+                StandardCharsets.UTF_8)) {
+            return JsonReader.parseTerrain(in);
+        }
+    }
+
+    /**
+     * Builds the index by scanning the whole library and parsing each map once.
+     */
+    private void scan() throws IOException {
+        long start = System.nanoTime();
+        byte[] bytes = Files.readAllBytes(path);
+        LibraryScanner scanner = new LibraryScanner(ByteBuffer.wrap(bytes));
+        scanner.scan();
+        entries.clear();
+        for (int[] span : scanner.getSpans()) {
+            Terrain terrain = parseMap(bytes, span[0], span[1] - span[0]);
+            entries.add(new Entry(terrain.getName(), terrain.getWidth(), terrain.getHeight(), span[0],
+                    span[1] - span[0]));
+        }
+        arrayEnd = scanner.getArrayEnd();
+        emptyArray = scanner.isEmptyArray();
+        log.fine(() -> "Indexed " + entries.size() + " maps in " + path + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Reads the sidecar index if it exists and matches the library's size and modification time.
+     *
+     * @return true if the index was read
+     */
+    private boolean readIndex() throws IOException {
+        if (!Files.exists(indexPath)) {
+            return false;
+        }
+        ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+        try {
+            return parseIndex(index);
+        } catch (IOException | BufferUnderflowException e) {
+            log.log(Level.WARNING, "Rebuilding corrupt index " + indexPath, e);
+            entries.clear();
+            return false;
+        }
+    }
+
+    /**
+     * Parses the sidecar index.
+     *
+     * @return true if the index is up to date, false if the library has changed since it was written
+     */
+    private boolean parseIndex(ByteBuffer index) throws IOException {
+        for (byte b : INDEX_MAGIC) {
+            if (index.get() != b) {
+                throw new IOException("Not a map library index");
+            }
+        }
+        if (index.get() != INDEX_VERSION || index.getLong() != Files.size(path)
+                || index.getLong() != Files.getLastModifiedTime(path).toMillis()) {
+            return false;
+        }
+        arrayEnd = BinaryFormat.getVarint(index);
+        emptyArray = index.get() != 0;
+        int count = BinaryFormat.getVarint(index);
+        for (int i = 0; i < count; i++) {
+            byte[] name = new byte[BinaryFormat.getVarint(index)];
+            index.get(name);
+            entries.add(new Entry(new String(name, StandardCharsets.UTF_8), BinaryFormat.getVarint(index),
+                    BinaryFormat.getVarint(index), BinaryFormat.getVarint(index), BinaryFormat.getVarint(index)));
+        }
+        return true;
+    }
+
+    /**
+     * Writes the sidecar index, stamped with the library's current size and modification time.
+     */
+    private void writeIndex() throws IOException {
+        ByteBuffer index = encodeIndex(Files.size(path), Files.getLastModifiedTime(path).toMillis());
+        AtomicFile file = new AtomicFile(indexPath);
+        try {
+            while (index.hasRemaining()) {
+                file.getChannel().write(index);
+            }
+            file.commit();
+        } catch (IOException | RuntimeException e) {
+            file.abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Encodes the index for the sidecar, stamped with the given size and modification time of the library.
+     */
+    private ByteBuffer encodeIndex(long size, long lastModified) {
+        List<byte[]> names = new ArrayList<>();
+        int capacity = INDEX_MAGIC.length + 2 + 2 * Long.BYTES + 2 * BinaryFormat.MAX_VARINT_SIZE;
+        for (Entry entry : entries) {
+            names.add(entry.getName().getBytes(StandardCharsets.UTF_8));
+            capacity += names.get(names.size() - 1).length + 5 * BinaryFormat.MAX_VARINT_SIZE;
+        }
+        ByteBuffer index = ByteBuffer.allocate(capacity).put(INDEX_MAGIC).put(INDEX_VERSION).putLong(size)
+                .putLong(lastModified);
+        BinaryFormat.putVarint(index, arrayEnd);
+        index.put((byte) (emptyArray ? 1 : 0));
+        BinaryFormat.putVarint(index, entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            BinaryFormat.putVarint(index, names.get(i).length);
+            index.put(names.get(i));
+            for (int value : new int[] {entry.getWidth(), entry.getHeight(), entry.getOffset(), entry.getLength()}) {
+                BinaryFormat.putVarint(index, value);
+            }
+        }
+        return index.flip();
+    }
+}
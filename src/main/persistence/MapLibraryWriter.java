@@ -0,0 +1,137 @@
+package persistence;
+
+import model.Terrain;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Represents a writer that adds maps to a MapLibrary, or replaces maps in it, without rewriting the other maps.
+ * An added map is written in place of the bracket closing the maps array, followed by whatever came after it. A
+ * replacement that fits in the space taken by the map it replaces is written over it, padded with spaces; one that
+ * does not is added at the end of the library, and the old map is then overwritten with null, which the library
+ * skips when it is scanned.
+ */
+public class MapLibraryWriter {
+    private static final String INDENT = "    ";
+
+    private final MapLibrary library;
+
+    /**
+     * Constructs a writer that writes to the given library
+     *
+     * @param library the library being written to
+     */
+    public MapLibraryWriter(MapLibrary library) {
+        this.library = library;
+    }
+
+    /**
+     * Adds a map to the end of the library.
+     *
+     * @param terrain the map to add
+     * @throws IOException if the library or its index cannot be written
+     */
+    public void append(Terrain terrain) throws IOException {
+        byte[] map = encode(terrain);
+        byte[] separator = (library.isEmptyArray() ? "\n" + INDENT : ",\n" + INDENT).getBytes(StandardCharsets.UTF_8);
+        int offset = library.getArrayEnd() + separator.length;
+        insertAtArrayEnd(separator, map);
+        List<MapLibrary.Entry> entries = new ArrayList<>(library.getEntries());
+        entries.add(new MapLibrary.Entry(terrain.getName(), terrain.getWidth(), terrain.getHeight(), offset,
+                map.length));
+        library.update(entries, offset + map.length + 1);
+    }
+
+    /**
+     * Replaces the map at the given position in the library. If the new map does not fit in the old one's space, it
+     * moves to the end of the library.
+     *
+     * @param index   position of the map to replace
+     * @param terrain the new map
+     * @throws IOException if the library or its index cannot be written
+     * @throws IndexOutOfBoundsException if there is no map at the given position
+     */
+    public void replace(int index, Terrain terrain) throws IOException {
+        MapLibrary.Entry old = library.getEntries().get(index);
+        byte[] map = encode(terrain);
+        List<MapLibrary.Entry> entries = new ArrayList<>(library.getEntries());
+        if (map.length <= old.getLength()) {
+            overwrite(old, map);
+            entries.set(index, new MapLibrary.Entry(terrain.getName(), terrain.getWidth(), terrain.getHeight(),
+                    old.getOffset(), map.length));
+            library.update(entries, library.getArrayEnd());
+            return;
+        }
+        append(terrain);
+        overwrite(old, "null".getBytes(StandardCharsets.US_ASCII));
+        entries = new ArrayList<>(library.getEntries());
+        entries.remove(index);
+        library.update(entries, library.getArrayEnd());
+    }
+
+    /**
+     * Writes the separator, the map and a newline in place of the bracket closing the maps array, followed by the
+     * bytes that came from the bracket on.
+     */
+    private void insertAtArrayEnd(byte[] separator, byte[] map) throws IOException {
+        int arrayEnd = library.getArrayEnd();
+        try (FileChannel channel = FileChannel.open(library.getPath(), StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer tail = ByteBuffer.allocate(Math.toIntExact(channel.size() - arrayEnd));
+            readFully(channel, tail, arrayEnd);
+            if (tail.capacity() == 0 || tail.get(0) != ']') {
+                throw new IOException("Map library has changed since it was indexed");
+            }
+            ByteBuffer out = ByteBuffer.allocate(separator.length + map.length + 1 + tail.capacity());
+            out.put(separator).put(map).put((byte) '\n').put(tail.flip()).flip();
+            writeFully(channel, out, arrayEnd);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Writes the given bytes over the span of the given entry, padding them with spaces to its length.
+     */
+    private void overwrite(MapLibrary.Entry entry, byte[] bytes) throws IOException {
+        byte[] padded = Arrays.copyOf(bytes, entry.getLength());
+        Arrays.fill(padded, bytes.length, padded.length, (byte) ' ');
+        try (FileChannel channel = FileChannel.open(library.getPath(), StandardOpenOption.WRITE)) {
+            writeFully(channel, ByteBuffer.wrap(padded), entry.getOffset());
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Returns the map as UTF-8 JSON, in the version 2 schema.
+     */
+    private static byte[] encode(Terrain terrain) {
+        return terrain.toJson().toString(INDENT.length()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Fills the buffer with bytes from the channel, starting at the given position.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Map library is shorter than its index");
+            }
+        }
+    }
+
+    /**
+     * Writes all the bytes remaining in the buffer to the channel, starting at the given position.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
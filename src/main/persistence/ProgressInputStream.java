@@ -0,0 +1,52 @@
+package persistence;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that counts the bytes read through it, reporting them to a ProgressListener, and stops with an
+ * InterruptedIOException once the reading thread is interrupted.
+ */
+final class ProgressInputStream extends FilterInputStream {
+
+    private static final long REPORT_INTERVAL = 1 << 16;
+
+    private final ProgressListener listener;
+    private final long total;
+    private long done;
+    private long lastReported;
+
+    /**
+     * Constructs a stream reading from the given stream.
+     *
+     * @param in       the stream to read from
+     * @param total    the number of bytes the stream is expected to hold
+     * @param listener listener told about the bytes read
+     */
+    ProgressInputStream(InputStream in, long total, ProgressListener listener) {
+        super(in);
+        this.total = total;
+        this.listener = listener;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        ProgressListener.checkCancelled();
+        int count = super.read(b, off, len);
+        if (count > 0) {
+            done += count;
+        }
+        if (count < 0 || done - lastReported >= REPORT_INTERVAL) {
+            lastReported = done;
+            listener.progress(done, total);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,37 @@
+package persistence;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Represents an observer of how far a map has been read or written. Reading and writing can be cancelled by
+ * interrupting the thread doing it, which then fails with an InterruptedIOException.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    /**
+     * Listener that ignores all progress.
+     */
+    ProgressListener NONE = (done, total) -> {
+    };
+
+    /**
+     * Called from the reading or writing thread as the work proceeds. When reading, done and total are bytes of
+     * the file; when writing, whose size is not known in advance, they are columns or rows of tiles.
+     *
+     * @param done  amount of work done so far
+     * @param total total amount of work
+     */
+    void progress(long done, long total);
+
+    /**
+     * Fails if the current thread has been interrupted, so that reading or writing stops.
+     *
+     * @throws InterruptedIOException if the current thread has been interrupted
+     */
+    static void checkCancelled() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Cancelled");
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package persistence;
+
+import model.TerrainBuilder;
+import model.TerrainTile;
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the tile rows of a version 2 JSON map and decodes them into a TerrainBuilder. Each row is a string in
+ * which a run of identical tiles is written as the tile's symbol followed by the length of the run, which is left
+ * out for runs of one. Rows are kept until the whole map object has been read, because the legend and dimensions
+ * may appear after them.
+ */
+final class RowDecoder {
+
+    private static final int SYMBOLS = 128;
+
+    private final List<String> rows = new ArrayList<>();
+    private TerrainTile[] legend;
+    private int width = -1;
+    private int height = -1;
+
+    /**
+     * Records the width declared by the map.
+     */
+    void setWidth(int width) {
+        this.width = width;
+    }
+
+    /**
+     * Records the height declared by the map.
+     */
+    void setHeight(int height) {
+        this.height = height;
+    }
+
+    /**
+     * Returns true if the map had any rows.
+     */
+    boolean hasRows() {
+        return !rows.isEmpty();
+    }
+
+    /**
+     * Parses a legend object mapping one-character symbols to tile names.
+     *
+     * @param tokens parser positioned at the start of the legend object
+     */
+    void parseLegend(JsonTokenReader tokens) throws IOException {
+        legend = new TerrainTile[SYMBOLS];
+        tokens.beginObject();
+        while (tokens.hasNext()) {
+            String symbol = tokens.nextName();
+            if (symbol.length() != 1 || symbol.charAt(0) >= SYMBOLS) {
+                throw new JSONException("Legend symbol must be a single ASCII character: " + symbol);
+            }
+            legend[symbol.charAt(0)] = TerrainTile.valueOf(tokens.nextString());
+        }
+        tokens.endObject();
+    }
+
+    /**
+     * Parses an array of row strings.
+     *
+     * @param tokens parser positioned at the start of the rows array
+     */
+    void parseRows(JsonTokenReader tokens) throws IOException {
+        tokens.beginArray();
+        while (tokens.hasNext()) {
+            rows.add(tokens.nextString());
+        }
+        tokens.endArray();
+    }
+
+    /**
+     * Decodes the rows into the builder, fixing its dimensions.
+     *
+     * @param builder builder receiving the tiles
+     * @throws JSONException if a row is malformed or the rows do not match the declared dimensions
+     */
+    void decodeInto(TerrainBuilder builder) {
+        TerrainTile[] symbols = legend == null ? defaultLegend() : legend;
+        if (height >= 0 && height != rows.size()) {
+            throw new JSONException("Map declares height " + height + " but has " + rows.size() + " rows");
+        }
+        int mapWidth = decodeRow(rows.get(0), 0, symbols, null, Integer.MAX_VALUE);
+        if (width >= 0 && width != mapWidth) {
+            throw new JSONException("Map declares width " + width + " but its first row has width " + mapWidth);
+        }
+        try {
+            builder.setSize(mapWidth, rows.size());
+        } catch (IllegalStateException e) {
+            throw new JSONException("Map has both terrainFull and rows");
+        }
+        for (int y = 0; y < rows.size(); y++) {
+            if (decodeRow(rows.get(y), y, symbols, builder, mapWidth) != mapWidth) {
+                throw new JSONException("Row " + y + " does not have the map's width " + mapWidth);
+            }
+        }
+        rows.clear();
+    }
+
+    /**
+     * Decodes one row, passing each run to the builder if there is one.
+     *
+     * @param row      the encoded row
+     * @param y        y coordinate of the row
+     * @param symbols  tiles indexed by their symbols
+     * @param builder  builder receiving the runs, or null to only measure the row
+     * @param maxWidth the widest the row may be
+     * @return the number of tiles in the row
+     */
+    private static int decodeRow(String row, int y, TerrainTile[] symbols, TerrainBuilder builder, int maxWidth) {
+        int x = 0;
+        int i = 0;
+        while (i < row.length()) {
+            char symbol = row.charAt(i++);
+            TerrainTile tile = symbol < SYMBOLS ? symbols[symbol] : null;
+            int start = i;
+            while (i < row.length() && row.charAt(i) >= '0' && row.charAt(i) <= '9') {
+                i++;
+            }
+            long length = start == i ? 1 : parseLength(row.substring(start, i));
+            if (tile == null || length > maxWidth - x) {
+                throw new JSONException("Malformed row " + y + " at character " + start);
+            }
+            if (builder != null) {
+                builder.setRun(tile, x, y, (int) length);
+            }
+            x += (int) length;
+        }
+        return x;
+    }
+
+    /**
+     * Parses the length of a run, which must be at least one.
+     *
+     * @param digits the decimal digits of the length
+     * @return the length, or Long.MAX_VALUE if it is too long to fit in a long
+     */
+    private static long parseLength(String digits) {
+        long length = digits.length() > 18 ? Long.MAX_VALUE : Long.parseLong(digits);
+        if (length < 1) {
+            throw new JSONException("Run length must be positive");
+        }
+        return length;
+    }
+
+    /**
+     * Returns the tiles indexed by their own symbols, for maps without a legend.
+     */
+    private static TerrainTile[] defaultLegend() {
+        TerrainTile[] result = new TerrainTile[SYMBOLS];
+        for (TerrainTile tile : TerrainTile.values()) {
+            result[tile.getSymbol()] = tile;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,168 @@
+package ui;
+
+import model.Terrain;
+import persistence.MapFormat;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Represents periodic autosaving of the map being edited to a rotating set of recovery files, so that a crash loses
+ * at most one interval of work. Each tick runs on the event dispatch thread and only takes a copy-on-write snapshot
+ * of the map, which costs little however large the map is; the snapshot is written in the background. A tick is
+ * skipped if the map has not changed since the last autosave, or since it was last loaded or saved, or if the
+ * previous autosave is still being written.
+ */
+class Autosaver {
+    public static final Path RECOVERY_DIRECTORY = Paths.get("./data/recovery");
+    public static final int DEFAULT_INTERVAL_SECONDS = 60;
+
+    static final int SLOTS = 3;
+    private static final String FILE_PREFIX = "autosave-";
+
+    private static final Logger log = Logger.getLogger(Autosaver.class.getName());
+
+    private final Supplier<Terrain> source;
+    private final Path directory;
+    private final Timer timer;
+    private final ExecutorService writer;
+    private long lastFingerprint;
+    private int nextSlot;
+    private volatile boolean writing;
+
+    /**
+     * Constructs an autosaver for the map handed out by the given source, which is called on the event dispatch
+     * thread. Nothing is saved until an interval is set.
+     *
+     * @param source    returns the map currently being edited
+     * @param directory directory the recovery files are written to
+     */
+    Autosaver(Supplier<Terrain> source, Path directory) {
+        this.source = source;
+        this.directory = directory;
+        this.timer = new Timer(0, e -> autosave());
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "Autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lastFingerprint = source.get().getFingerprint();
+    }
+
+    /**
+     * Sets how often the map is autosaved, starting the interval over. An interval of zero turns autosaving off.
+     *
+     * @param seconds seconds between autosaves, or zero
+     */
+    void setInterval(int seconds) {
+        timer.stop();
+        if (seconds > 0) {
+            timer.setDelay(seconds * 1000);
+            timer.setInitialDelay(seconds * 1000);
+            timer.start();
+        }
+    }
+
+    /**
+     * Records that the map with the given fingerprint is safely on disk, so it need not be autosaved.
+     *
+     * @param fingerprint fingerprint of the map that was loaded or saved
+     */
+    void markClean(long fingerprint) {
+        lastFingerprint = fingerprint;
+    }
+
+    /**
+     * Snapshots the current map and writes it to the next recovery file in the background, unless it is unchanged.
+     */
+    void autosave() {
+        Terrain terrain = source.get();
+        if (writing || terrain.getFingerprint() == lastFingerprint) {
+            return;
+        }
+        Terrain snapshot = new Terrain(terrain);
+        lastFingerprint = snapshot.getFingerprint();
+        Path file = directory.resolve(FILE_PREFIX + nextSlot + "." + MapFormat.BINARY.getExtension());
+        nextSlot = (nextSlot + 1) % SLOTS;
+        writing = true;
+        writer.execute(() -> {
+            try {
+                Files.createDirectories(directory);
+                MapFormat.BINARY.write(snapshot, file.toString());
+            } catch (IOException | RuntimeException e) {
+                log.log(Level.WARNING, "Failed to autosave to " + file, e);
+            } finally {
+                writing = false;
+            }
+        });
+    }
+
+    /**
+     * Stops autosaving, waits for any autosave being written, and deletes the recovery files. Called when the
+     * editor exits normally, as nothing then needs recovering.
+     */
+    void shutdown() {
+        timer.stop();
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        deleteRecoveryFiles(directory);
+    }
+
+    /**
+     * Returns the most recently written recovery file in the given directory, or null if there is none.
+     *
+     * @param directory directory holding the recovery files
+     * @throws IOException if the directory cannot be listed
+     */
+    static Path findNewest(Path directory) throws IOException {
+        Path newest = null;
+        for (Path file : listRecoveryFiles(directory)) {
+            if (newest == null
+                    || Files.getLastModifiedTime(file).compareTo(Files.getLastModifiedTime(newest)) > 0) {
+                newest = file;
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * Deletes every recovery file in the given directory, logging any that cannot be deleted.
+     *
+     * @param directory directory holding the recovery files
+     */
+    static void deleteRecoveryFiles(Path directory) {
+        try {
+            for (Path file : listRecoveryFiles(directory)) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to delete recovery files in " + directory, e);
+        }
+    }
+
+    /**
+     * Lists the recovery files in the given directory, which need not exist.
+     */
+    private static Path[] listRecoveryFiles(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new Path[0];
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(FILE_PREFIX)).toArray(Path[]::new);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package ui;
+
+import model.Faction;
+import model.TerrainTile;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Represents the images the editor draws with, loaded once from res/ and held in arrays indexed by the ordinal of
+ * their tile, faction or tool, so looking one up is an array read. Images decoded by ImageIO are usually not in the
+ * display's pixel format, which makes every copy of them go through a slow conversion, so each is converted once to
+ * an image compatible with the default screen. Without a display, they are converted to 32-bit ARGB instead.
+ * Tile images are named after their tile, such as Plain.png, and unit markers after their faction, such as
+ * PlayerSoldierIcon.png.
+ */
+class ImageRegistry {
+    public static final String RESOURCE_DIRECTORY = "./res";
+
+    /**
+     * Represents the icons of the tool buttons that are not tiles.
+     */
+    enum Tool {
+        ADD_UNIT("AddSoldierIcon"),
+        INSPECT_UNIT("ViewSoldierIcon"),
+        DELETE_UNIT("DeleteSoldierIcon");
+
+        private final String fileName;
+
+        Tool(String fileName) {
+            this.fileName = fileName;
+        }
+    }
+
+    private final BufferedImage[] tiles;
+    private final BufferedImage[] units;
+    private final BufferedImage[] tools;
+
+    /**
+     * Constructs a registry by loading every image from the given directory and converting it for the given
+     * display.
+     *
+     * @param directory directory holding the image files
+     * @param config    configuration of the display to match, or null to convert to 32-bit ARGB
+     * @throws IOException if an image cannot be read
+     */
+    ImageRegistry(String directory, GraphicsConfiguration config) throws IOException {
+        tiles = new BufferedImage[TerrainTile.values().length];
+        for (TerrainTile tile : TerrainTile.values()) {
+            tiles[tile.ordinal()] = load(directory, capitalize(tile.name()), config);
+        }
+        units = new BufferedImage[Faction.values().length];
+        for (Faction faction : Faction.values()) {
+            units[faction.ordinal()] = load(directory, capitalize(faction.name()) + "SoldierIcon", config);
+        }
+        tools = new BufferedImage[Tool.values().length];
+        for (Tool tool : Tool.values()) {
+            tools[tool.ordinal()] = load(directory, tool.fileName, config);
+        }
+    }
+
+    /**
+     * Loads the images from res/, converted for the default screen if there is one.
+     *
+     * @return the loaded registry
+     * @throws IOException if an image cannot be read
+     */
+    static ImageRegistry load() throws IOException {
+        GraphicsConfiguration config = GraphicsEnvironment.isHeadless() ? null
+                : GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        return new ImageRegistry(RESOURCE_DIRECTORY, config);
+    }
+
+    /**
+     * Returns the image of the given kind of tile.
+     */
+    BufferedImage getTile(TerrainTile tile) {
+        return tiles[tile.ordinal()];
+    }
+
+    /**
+     * Returns the unit marker of the given faction.
+     */
+    BufferedImage getUnit(Faction faction) {
+        return units[faction.ordinal()];
+    }
+
+    /**
+     * Returns the icon of the given tool.
+     */
+    BufferedImage getTool(Tool tool) {
+        return tools[tool.ordinal()];
+    }
+
+    /**
+     * Reads the named PNG from the directory and converts it for the display.
+     */
+    private static BufferedImage load(String directory, String name, GraphicsConfiguration config)
+            throws IOException {
+        File file = new File(directory, name + ".png");
+        BufferedImage image = ImageIO.read(file);
+        if (image == null) {
+            throw new IOException("Cannot decode " + file);
+        }
+        BufferedImage converted = config == null
+                ? new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB)
+                : config.createCompatibleImage(image.getWidth(), image.getHeight(), image.getTransparency());
+        Graphics2D g = converted.createGraphics();
+        try {
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return converted;
+    }
+
+    /**
+     * Returns an enum constant's name with only its first letter in upper case, such as Plain for PLAIN.
+     */
+    private static String capitalize(String name) {
+        return name.charAt(0) + name.substring(1).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,97 @@
+package ui;
+
+import persistence.ProgressListener;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Represents a map load or save running on a background thread, so that the window stays responsive. A progress
+ * monitor pops up if the work takes more than a moment, and cancelling it interrupts the work. The result or error
+ * is handed back on the event dispatch thread.
+ *
+ * @param <T> the type of the result
+ */
+class MapFileWorker<T> extends SwingWorker<T, Void> implements ProgressListener {
+
+    private static final int CANCEL_POLL_MILLIS = 100;
+
+    /**
+     * Represents the work done on the background thread.
+     *
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    interface Task<T> {
+        /**
+         * Does the work, reporting progress to the listener.
+         *
+         * @param listener listener told how far the work has got
+         * @return the result of the work
+         * @throws Exception if the work fails
+         */
+        T run(ProgressListener listener) throws Exception;
+    }
+
+    private final Task<T> task;
+    private final Consumer<T> onSuccess;
+    private final Consumer<Exception> onFailure;
+    private final ProgressMonitor monitor;
+    private final Timer cancelPoll;
+
+    /**
+     * Constructs a worker for the given task. Nothing runs until execute is called.
+     *
+     * @param parent    component the progress monitor is shown over
+     * @param message   message shown in the progress monitor
+     * @param task      the work to do on the background thread
+     * @param onSuccess called on the event dispatch thread with the result if the work succeeds
+     * @param onFailure called on the event dispatch thread with the error if the work fails
+     */
+    MapFileWorker(Component parent, String message, Task<T> task, Consumer<T> onSuccess,
+                  Consumer<Exception> onFailure) {
+        this.task = task;
+        this.onSuccess = onSuccess;
+        this.onFailure = onFailure;
+        this.monitor = new ProgressMonitor(parent, message, null, 0, 100);
+        this.cancelPoll = new Timer(CANCEL_POLL_MILLIS, e -> {
+            if (monitor.isCanceled()) {
+                cancel(true);
+            }
+        });
+        addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                monitor.setProgress((Integer) e.getNewValue());
+            }
+        });
+        cancelPoll.start();
+    }
+
+    @Override
+    public void progress(long done, long total) {
+        setProgress(total <= 0 ? 0 : (int) Math.min(100, done * 100 / total));
+    }
+
+    @Override
+    protected T doInBackground() throws Exception {
+        return task.run(this);
+    }
+
+    @Override
+    protected void done() {
+        cancelPoll.stop();
+        monitor.close();
+        try {
+            onSuccess.accept(get());
+        } catch (CancellationException e) {
+            // Cancelled by the user, who already knows.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            onFailure.accept(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package ui;
+
+import model.Terrain;
+import model.Unit;
+import persistence.MapFormat;
+import persistence.ProgressListener;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Represents a renderer that draws a whole map, with its unit markers, into an image and saves it as a PNG. It
+ * needs no display, so it also runs from the command line. The image is split into horizontal strips of
+ * STRIP_ROWS rows of tiles, which are drawn in parallel, each into its own region of the image. Usage:
+ * <pre>
+ * MapImageExporter [--tile PIXELS] MAP PNG
+ * </pre>
+ */
+public class MapImageExporter {
+    public static final int STRIP_ROWS = 16;
+
+    private static final long MAX_PIXELS = Integer.MAX_VALUE / 4;
+
+    private final ImageRegistry images;
+
+    /**
+     * Constructs an exporter, loading the tile and unit images from res/.
+     *
+     * @throws IOException if an image cannot be read
+     */
+    public MapImageExporter() throws IOException {
+        images = ImageRegistry.load();
+    }
+
+    /**
+     * Renders the map and writes it to the given PNG file.
+     *
+     * @param terrain  the map, which must not be edited while it is rendered
+     * @param tileSize width and height of each tile in the image, in pixels
+     * @param file     the PNG file to write
+     * @param listener listener told how many strips have been drawn
+     * @throws IOException if the file cannot be written, or the export is interrupted
+     * @throws IllegalArgumentException if the tile size is not positive or the image would be too large
+     */
+    public void export(Terrain terrain, int tileSize, File file, ProgressListener listener) throws IOException {
+        BufferedImage image = render(terrain, tileSize, listener);
+        if (!ImageIO.write(image, "png", file)) {
+            throw new IOException("No PNG writer available");
+        }
+    }
+
+    /**
+     * Renders the map into a new image, drawing its strips on one thread per processor.
+     *
+     * @param terrain  the map, which must not be edited while it is rendered
+     * @param tileSize width and height of each tile in the image, in pixels
+     * @param listener listener told how many strips have been drawn
+     * @return the rendered image
+     * @throws InterruptedIOException if interrupted before every strip is drawn
+     * @throws IllegalArgumentException if the tile size is not positive or the image would be too large
+     */
+    public BufferedImage render(Terrain terrain, int tileSize, ProgressListener listener)
+            throws InterruptedIOException {
+        if (tileSize <= 0 || (long) terrain.getWidth() * terrain.getHeight() * tileSize * tileSize > MAX_PIXELS) {
+            throw new IllegalArgumentException("Cannot render a " + terrain.getWidth() + "x" + terrain.getHeight()
+                    + " map at " + tileSize + " pixels per tile");
+        }
+        BufferedImage image = new BufferedImage(terrain.getWidth() * tileSize, terrain.getHeight() * tileSize,
+                BufferedImage.TYPE_INT_ARGB);
+        ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            drawStrips(terrain, image, tileSize, pool, listener);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Export cancelled");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to draw map", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return image;
+    }
+
+    /**
+     * Draws every strip of the map on the pool, waiting for them in order and reporting each as it finishes. Checks
+     * for cancellation before each strip, as waiting for a strip that is already drawn does not.
+     */
+    private void drawStrips(Terrain terrain, BufferedImage image, int tileSize, ExecutorService pool,
+                            ProgressListener listener)
+            throws InterruptedException, InterruptedIOException, ExecutionException {
+        TileAtlas atlas = new TileAtlas(tileSize, images, null);
+        int strips = (terrain.getHeight() + STRIP_ROWS - 1) / STRIP_ROWS;
+        List<Future<?>> drawn = new ArrayList<>();
+        for (int strip = 0; strip < strips; strip++) {
+            int firstRow = strip * STRIP_ROWS;
+            drawn.add(pool.submit(() -> drawStrip(terrain, image, atlas, firstRow)));
+        }
+        for (int i = 0; i < strips; i++) {
+            ProgressListener.checkCancelled();
+            drawn.get(i).get();
+            listener.progress(i + 1, strips);
+        }
+    }
+
+    /**
+     * Draws the rows of tiles starting at the given row, and the units on them, into their region of the image.
+     */
+    private static void drawStrip(Terrain terrain, BufferedImage image, TileAtlas atlas, int firstRow) {
+        int tileSize = atlas.getTileSize();
+        int rows = Math.min(STRIP_ROWS, terrain.getHeight() - firstRow);
+        Graphics2D g = image.getSubimage(0, firstRow * tileSize, image.getWidth(), rows * tileSize)
+                .createGraphics();
+        try {
+            g.translate(0, -firstRow * tileSize);
+            TerrainLayer.drawTiles(g, terrain, atlas, 0, firstRow, terrain.getWidth(), rows);
+            for (Unit unit : terrain.getUnitsInRect(0, firstRow, terrain.getWidth(), rows)) {
+                g.drawImage(atlas.getUnit(unit.getFaction()), unit.getX() * tileSize, unit.getY() * tileSize, null);
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Exports the map file named on the command line to a PNG.
+     *
+     * @param args [--tile PIXELS] MAP PNG
+     */
+    public static void main(String[] args) {
+        boolean sized = args.length == 4 && args[0].equals("--tile") && args[1].matches("\\d{1,4}");
+        if (args.length != 2 && !sized) {
+            System.err.println("Usage: MapImageExporter [--tile PIXELS] MAP PNG");
+            System.exit(2);
+        }
+        int tileSize = sized ? Integer.parseInt(args[1]) : TerrainEditorFrame.IMAGE_SIZE;
+        String map = args[args.length - 2];
+        String png = args[args.length - 1];
+        try {
+            long start = System.nanoTime();
+            new MapImageExporter().export(MapFormat.readTerrain(map), tileSize, new File(png), ProgressListener.NONE);
+            System.out.println("Exported " + png + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Export failed: " + e);
+            System.exit(1);
+        }
+    }
+}
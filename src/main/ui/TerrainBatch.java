@@ -0,0 +1,105 @@
+package ui;
+
+import persistence.MapBatch;
+import persistence.MapFormat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * This class handles the command line tool that validates, re-saves or converts many map files at once, without
+ * opening a window. Usage:
+ * <pre>
+ * TerrainBatch [--resave | --to json|tmap] [--threads N] DIRECTORY|GLOB
+ * </pre>
+ * Without options, each map is only read and validated. --resave writes each map back in its own format, which
+ * brings old JSON saves up to the current schema. --to writes each map in the given format, next to the original.
+ * The tool exits with status 1 if any map fails, and 2 if the arguments are invalid.
+ */
+public class TerrainBatch {
+
+    private static final String USAGE = "Usage: TerrainBatch [--resave | --to json|tmap] [--threads N] "
+            + "DIRECTORY|GLOB";
+
+    /**
+     * Runs the batch job described by the arguments and prints its throughput and failures.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        MapFormat target = null;
+        boolean write = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String pattern = null;
+        MapBatch batch = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--resave")) {
+                    write = true;
+                } else if (args[i].equals("--to")) {
+                    target = parseFormat(args[++i]);
+                    write = true;
+                } else if (args[i].equals("--threads")) {
+                    threads = Integer.parseInt(args[++i]);
+                } else {
+                    pattern = args[i];
+                }
+            }
+            batch = new MapBatch(target, write, threads);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            exitWithUsage();
+        }
+        if (pattern == null) {
+            exitWithUsage();
+        }
+        System.exit(run(batch, pattern));
+    }
+
+    /**
+     * Runs the job over the files matching the pattern and prints its report.
+     *
+     * @return the exit status
+     */
+    private static int run(MapBatch batch, String pattern) {
+        try {
+            List<Path> files = MapBatch.findMaps(pattern);
+            MapBatch.Report report = batch.run(files);
+            System.out.printf("Processed %d maps (%.1f MB): %.1f maps/s, %.2f MB/s%n", report.getProcessed(),
+                    report.getBytes() / (1024.0 * 1024.0), report.getMapsPerSecond(),
+                    report.getMegabytesPerSecond());
+            System.out.println(report.getFailures().size() + " failed");
+            for (String failure : report.getFailures()) {
+                System.out.println("  " + failure);
+            }
+            return report.getFailures().isEmpty() ? 0 : 1;
+        } catch (IOException e) {
+            System.err.println("Cannot list " + pattern + ": " + e.getMessage());
+            return 2;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
+    /**
+     * Returns the format with the given extension.
+     *
+     * @throws IllegalArgumentException if no format has that extension
+     */
+    private static MapFormat parseFormat(String extension) {
+        MapFormat format = MapFormat.fromFileName("." + extension);
+        if (format == null) {
+            throw new IllegalArgumentException("Unknown format " + extension);
+        }
+        return format;
+    }
+
+    /**
+     * Prints the usage and exits.
+     */
+    private static void exitWithUsage() {
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+}
@@ -1,16 +1,52 @@
 package ui;
 
+import model.Terrain;
+import persistence.MapFormat;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 /**
  * This class handles the initialization of the map application.
  */
 public class TerrainEditor {
 
     /**
-     * Initializes the graphical map application.
+     * Initializes the graphical map application, offering to recover the newest autosave if the editor did not exit
+     * normally last time.
      *
      * @param args ignored
      */
     public static void main(String[] args) {
-        new TerrainEditorFrame();
+        new TerrainEditorFrame(offerRecovery());
+    }
+
+    /**
+     * Asks the user whether to recover the newest autosave, if there is one. The recovery files are deleted if the
+     * user declines, and kept until the editor next exits normally otherwise.
+     *
+     * @return the recovered map, or null if there is none or the user declined
+     */
+    private static Terrain offerRecovery() {
+        try {
+            Path newest = Autosaver.findNewest(Autosaver.RECOVERY_DIRECTORY);
+            if (newest == null) {
+                return null;
+            }
+            if (JOptionPane.showConfirmDialog(null,
+                    "The editor did not exit normally. Recover the last autosaved map?", "Recover Map",
+                    JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE) == JOptionPane.YES_OPTION) {
+                return MapFormat.BINARY.read(newest.toString());
+            }
+        } catch (IOException | RuntimeException e) {
+            Logger.getLogger(TerrainEditor.class.getName()).log(Level.WARNING, "Failed to recover autosave", e);
+            JOptionPane.showMessageDialog(null, "Failed to recover the autosaved map", "Error",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+        Autosaver.deleteRecoveryFiles(Autosaver.RECOVERY_DIRECTORY);
+        return null;
     }
 }
@@ -1,21 +1,22 @@
 package ui;
 
 import model.*;
-import org.json.JSONException;
-import persistence.JsonReader;
-import persistence.JsonWriter;
+import persistence.EditJournal;
+import persistence.MapFormat;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Represents a graphical interface to edit Terrain objects
@@ -28,6 +29,13 @@ public class TerrainEditorFrame extends JFrame {
     public static final String APP_NAME = "Terrain Editor: ";
 
     private Terrain currentTerrain;
+    private long savedFingerprint;
+    private String currentPath;
+    private MapFormat currentFormat;
+    private EditJournal journal;
+    private JCheckBoxMenuItem journalMenuItem;
+    private MapFileWorker<?> fileWorker;
+    private Autosaver autosaver;
     private TerrainPanel terrainPanel;
     private JPanel toolPanel;
     EditMode currentEditMode;
@@ -35,33 +43,33 @@ public class TerrainEditorFrame extends JFrame {
     private Faction factionToAdd;
     private BattleClass battleClassToAdd;
 
-    private BufferedImage plainImg;
-    private BufferedImage forestImg;
-    private BufferedImage mountainImg;
-    private BufferedImage waterImg;
-    private BufferedImage wallImg;
-    private BufferedImage chestImg;
-    private BufferedImage gateImg;
-    private BufferedImage throneImg;
-    private BufferedImage addUnitImg;
-    private BufferedImage inspectUnitImg;
-    private BufferedImage deleteUnitImg;
-    private BufferedImage playerImg;
-    private BufferedImage enemyImg;
-    private BufferedImage allyImg;
+    private ImageRegistry images;
 
     static final int IMAGE_SIZE = 32;
 
-    private static final FileNameExtensionFilter FILE_FILTER =
-            new FileNameExtensionFilter(".json files", ".json");
+    private static final FileNameExtensionFilter FILE_FILTER = new FileNameExtensionFilter(
+            "Map files (.json, .tmap)", MapFormat.JSON.getExtension(), MapFormat.BINARY.getExtension());
+    private static final FileNameExtensionFilter JSON_FILTER = formatFilter(MapFormat.JSON);
+    private static final FileNameExtensionFilter BINARY_FILTER = formatFilter(MapFormat.BINARY);
+    private static final FileNameExtensionFilter PNG_FILTER = new FileNameExtensionFilter("PNG images (.png)",
+            "png");
 
     /**
      * Constructs a new TerrainBuilderFrame.
      */
     public TerrainEditorFrame() {
+        this(null);
+    }
+
+    /**
+     * Constructs a new TerrainBuilderFrame editing the given recovered map, which is treated as unsaved.
+     *
+     * @param recovered map recovered from an autosave, or null to start with a blank map
+     */
+    public TerrainEditorFrame(Terrain recovered) {
         super("");
         try {
-            loadImages();
+            images = ImageRegistry.load();
         } catch (IOException e) {
             throw new RuntimeException("Failed to initialize images.");
         }
@@ -74,6 +82,7 @@ public class TerrainEditorFrame extends JFrame {
         }
 
         initializeVariables();
+        initializeAutosave(recovered);
         initializeLayout();
         initializeMenuBar();
         initializeButtons();
@@ -83,37 +92,33 @@ public class TerrainEditorFrame extends JFrame {
         updateWindowTitle();
         setLocationRelativeTo(null);
         setVisible(true);
-        setResizable(false);
-
     }
 
     /**
-     * Updates the window title to be app name + name of current Terrain
+     * Updates the window title to be app name + name of current Terrain, followed by an asterisk if the Terrain has
+     * unsaved changes
      */
     private void updateWindowTitle() {
-        setTitle(APP_NAME + currentTerrain.getName());
+        setTitle(APP_NAME + currentTerrain.getName() + (hasUnsavedChanges() ? " *" : ""));
     }
 
     /**
-     * Loads all required images
+     * Returns whether the current Terrain differs from the last saved or loaded version. Compares content
+     * fingerprints, so this takes constant time.
      *
-     * @throws IOException if there is an issue loading images
-     */
-    private void loadImages() throws IOException {
-        plainImg = ImageIO.read(new File("./res/Plain.png"));
-        forestImg = ImageIO.read(new File("./res/Forest.png"));
-        mountainImg = ImageIO.read(new File("./res/Mountain.png"));
-        waterImg = ImageIO.read(new File("./res/Water.png"));
-        wallImg = ImageIO.read(new File("./res/Wall.png"));
-        chestImg = ImageIO.read(new File("./res/Chest.png"));
-        gateImg = ImageIO.read(new File("./res/Gate.png"));
-        throneImg = ImageIO.read(new File("./res/Throne.png"));
-        addUnitImg = ImageIO.read(new File("./res/AddSoldierIcon.png"));
-        inspectUnitImg = ImageIO.read(new File("./res/ViewSoldierIcon.png"));
-        deleteUnitImg = ImageIO.read(new File("./res/DeleteSoldierIcon.png"));
-        playerImg = ImageIO.read(new File("./res/PlayerSoldierIcon.png"));
-        enemyImg = ImageIO.read(new File("./res/EnemySoldierIcon.png"));
-        allyImg = ImageIO.read(new File("./res/AllySoldierIcon.png"));
+     * @return if there are unsaved changes
+     */
+    private boolean hasUnsavedChanges() {
+        return currentTerrain.getFingerprint() != savedFingerprint;
+    }
+
+    /**
+     * Records the current Terrain as matching what is on disk
+     */
+    private void markSaved() {
+        savedFingerprint = currentTerrain.getFingerprint();
+        autosaver.markClean(savedFingerprint);
+        updateWindowTitle();
     }
 
     /**
@@ -122,10 +127,27 @@ public class TerrainEditorFrame extends JFrame {
     private void initializeVariables() {
         currentEditMode = EditMode.PLACE_PLAIN;
         currentTerrain = new Terrain(STARTUP_MAP_NAME, STARTUP_MAP_WIDTH, STARTUP_MAP_HEIGHT);
+        savedFingerprint = currentTerrain.getFingerprint();
+        currentPath = null;
+        currentFormat = null;
         factionToAdd = Faction.PLAYER;
         battleClassToAdd = BattleClass.LORD;
     }
 
+    /**
+     * Starts autosaving, after swapping in the recovered map if there is one. A recovered map is left marked as
+     * unsaved, as it has not been saved anywhere but the recovery files.
+     *
+     * @param recovered map recovered from an autosave, or null
+     */
+    private void initializeAutosave(Terrain recovered) {
+        if (recovered != null) {
+            currentTerrain = recovered;
+        }
+        autosaver = new Autosaver(() -> currentTerrain, Autosaver.RECOVERY_DIRECTORY);
+        autosaver.setInterval(Autosaver.DEFAULT_INTERVAL_SECONDS);
+    }
+
     /**
      * Initializes the menu bar
      */
@@ -137,9 +159,11 @@ public class TerrainEditorFrame extends JFrame {
         JMenuBar menuBar = new JMenuBar();
         JMenu fileMenu = initializeFileMenu();
         JMenu editMenu = initializeEditMenu();
+        JMenu viewMenu = initializeViewMenu();
 
         menuBar.add(fileMenu);
         menuBar.add(editMenu);
+        menuBar.add(viewMenu);
 
         this.setJMenuBar(menuBar);
     }
@@ -156,6 +180,23 @@ public class TerrainEditorFrame extends JFrame {
         return editMenu;
     }
 
+    /**
+     * Initializes the View menu, whose zoom items can also be reached with Ctrl and plus, minus or zero
+     *
+     * @return the initialized View menu
+     */
+    private JMenu initializeViewMenu() {
+        JMenu viewMenu = new JMenu("View");
+        int ctrl = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        addMenuItem(viewMenu, "Zoom In", (e -> terrainPanel.zoom(1)));
+        viewMenu.getItem(0).setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_EQUALS, ctrl));
+        addMenuItem(viewMenu, "Zoom Out", (e -> terrainPanel.zoom(-1)));
+        viewMenu.getItem(1).setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_MINUS, ctrl));
+        addMenuItem(viewMenu, "Actual Size", (e -> terrainPanel.resetZoom()));
+        viewMenu.getItem(2).setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_0, ctrl));
+        return viewMenu;
+    }
+
     /**
      * Initializes the File menu
      *
@@ -167,12 +208,38 @@ public class TerrainEditorFrame extends JFrame {
         addMenuItem(fileMenu, "New", (e -> handleNewMap()));
         addMenuItem(fileMenu, "Load", (e -> handleLoadMap()));
         addMenuItem(fileMenu, "Save", (e -> handleSaveMap()));
+        addMenuItem(fileMenu, "Export PNG", (e -> handleExportImage()));
+        journalMenuItem = new JCheckBoxMenuItem("Keep Edit Journal");
+        journalMenuItem.addActionListener(e -> handleToggleJournal());
+        fileMenu.add(journalMenuItem);
+        fileMenu.add(initializeAutosaveMenu());
         fileMenu.addSeparator();
         // from https://stackoverflow.com/questions/1234912/how-to-programmatically-close-a-jframe
         addMenuItem(fileMenu, "Exit", (e -> this.dispatchEvent(new WindowEvent(this, WindowEvent.WINDOW_CLOSING))));
         return fileMenu;
     }
 
+    /**
+     * Initializes the Autosave submenu, which chooses how often the map is autosaved
+     *
+     * @return the initialized Autosave menu
+     */
+    private JMenu initializeAutosaveMenu() {
+        JMenu autosaveMenu = new JMenu("Autosave");
+        ButtonGroup group = new ButtonGroup();
+        String[] labels = {"Off", "Every 30 Seconds", "Every Minute", "Every 5 Minutes"};
+        int[] intervals = {0, 30, 60, 300};
+        for (int i = 0; i < labels.length; i++) {
+            int seconds = intervals[i];
+            JRadioButtonMenuItem item = new JRadioButtonMenuItem(labels[i],
+                    seconds == Autosaver.DEFAULT_INTERVAL_SECONDS);
+            item.addActionListener(e -> autosaver.setInterval(seconds));
+            group.add(item);
+            autosaveMenu.add(item);
+        }
+        return autosaveMenu;
+    }
+
     /**
      * Adds a menu item to the given menu
      *
@@ -191,11 +258,14 @@ public class TerrainEditorFrame extends JFrame {
      * Initializes the main layout.
      */
     private void initializeLayout() {
-        this.setLayout(new BoxLayout(getContentPane(), BoxLayout.Y_AXIS));
+        this.setLayout(new BorderLayout());
         toolPanel = new JPanel(new FlowLayout());
         terrainPanel = new TerrainPanel(this);
-        this.add(terrainPanel);
-        this.add(toolPanel);
+        terrainPanel.watch(currentTerrain);
+        JScrollPane scrollPane = new JScrollPane(terrainPanel);
+        scrollPane.setBorder(BorderFactory.createLineBorder(Color.BLACK, 2));
+        this.add(scrollPane, BorderLayout.CENTER);
+        this.add(toolPanel, BorderLayout.SOUTH);
         ((JPanel) getContentPane()).setBorder(new EmptyBorder(13, 13, 13, 13));
     }
 
@@ -203,17 +273,17 @@ public class TerrainEditorFrame extends JFrame {
      * Sets up all the buttons
      */
     private void initializeButtons() {
-        setUpButton(plainImg, (e -> currentEditMode = EditMode.PLACE_PLAIN));
-        setUpButton(mountainImg, (e -> currentEditMode = EditMode.PLACE_MOUNTAIN));
-        setUpButton(forestImg, (e -> currentEditMode = EditMode.PLACE_FOREST));
-        setUpButton(waterImg, (e -> currentEditMode = EditMode.PLACE_WATER));
-        setUpButton(wallImg, (e -> currentEditMode = EditMode.PLACE_WALL));
-        setUpButton(chestImg, (e -> currentEditMode = EditMode.PLACE_CHEST));
-        setUpButton(gateImg, (e -> currentEditMode = EditMode.PLACE_GATE));
-        setUpButton(throneImg, (e -> currentEditMode = EditMode.PLACE_THRONE));
-        setUpButton(addUnitImg, (e -> handlePlaceUnitButton()));
-        setUpButton(inspectUnitImg, (e -> currentEditMode = EditMode.INSPECT_UNIT));
-        setUpButton(deleteUnitImg, (e -> currentEditMode = EditMode.DELETE_UNIT));
+        setUpButton(images.getTile(TerrainTile.PLAIN), (e -> currentEditMode = EditMode.PLACE_PLAIN));
+        setUpButton(images.getTile(TerrainTile.MOUNTAIN), (e -> currentEditMode = EditMode.PLACE_MOUNTAIN));
+        setUpButton(images.getTile(TerrainTile.FOREST), (e -> currentEditMode = EditMode.PLACE_FOREST));
+        setUpButton(images.getTile(TerrainTile.WATER), (e -> currentEditMode = EditMode.PLACE_WATER));
+        setUpButton(images.getTile(TerrainTile.WALL), (e -> currentEditMode = EditMode.PLACE_WALL));
+        setUpButton(images.getTile(TerrainTile.CHEST), (e -> currentEditMode = EditMode.PLACE_CHEST));
+        setUpButton(images.getTile(TerrainTile.GATE), (e -> currentEditMode = EditMode.PLACE_GATE));
+        setUpButton(images.getTile(TerrainTile.THRONE), (e -> currentEditMode = EditMode.PLACE_THRONE));
+        setUpButton(images.getTool(ImageRegistry.Tool.ADD_UNIT), (e -> handlePlaceUnitButton()));
+        setUpButton(images.getTool(ImageRegistry.Tool.INSPECT_UNIT), (e -> currentEditMode = EditMode.INSPECT_UNIT));
+        setUpButton(images.getTool(ImageRegistry.Tool.DELETE_UNIT), (e -> currentEditMode = EditMode.DELETE_UNIT));
     }
 
     /**
@@ -221,13 +291,32 @@ public class TerrainEditorFrame extends JFrame {
      * Modeled after method from <a href="https://www.clear.rice.edu/comp310/JavaResources/frame_close.html">...</a>
      */
     private void setCloseOperation() {
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
         addWindowListener(new java.awt.event.WindowAdapter() {
             public void windowClosing(java.awt.event.WindowEvent e) {
-                System.exit(0);
+                if (confirmDiscardChanges()) {
+                    closeJournal();
+                    autosaver.shutdown();
+                    System.exit(0);
+                }
             }
         });
     }
 
+    /**
+     * Asks the user whether to discard unsaved changes, if there are any and no load or save is running
+     *
+     * @return true if no load or save is running, and there are no unsaved changes or the user chose to discard them
+     */
+    private boolean confirmDiscardChanges() {
+        if (isFileWorkerRunning()) {
+            return false;
+        }
+        return !hasUnsavedChanges() || JOptionPane.showConfirmDialog(this,
+                "The map has unsaved changes. Discard them?", "Unsaved Changes",
+                JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE) == JOptionPane.YES_OPTION;
+    }
+
     /**
      * Sets up a button with the given icon and action command
      *
@@ -245,7 +334,14 @@ public class TerrainEditorFrame extends JFrame {
      * Handles creation of a new map
      */
     private void handleNewMap() {
+        if (!confirmDiscardChanges()) {
+            return;
+        }
+        closeJournal();
         initializeVariables();
+        terrainPanel.watch(currentTerrain);
+        autosaver.markClean(savedFingerprint);
+        updateWindowTitle();
         terrainPanel.setSize(terrainPanel.getPreferredSize());
         pack();
     }
@@ -262,7 +358,7 @@ public class TerrainEditorFrame extends JFrame {
                     "Error", JOptionPane.ERROR_MESSAGE);
         } else if (newName != null) {
             currentTerrain.rename(newName);
-            this.setTitle(newName);
+            updateWindowTitle();
         }
     }
 
@@ -271,13 +367,15 @@ public class TerrainEditorFrame extends JFrame {
      * The following code is modeled after <a href="https://stackoverflow.com/questions/11211286/">...</a>
      */
     private void handleResizeMap() {
-        TerrainResizeDialog terrainResizeDialog = new TerrainResizeDialog(this);
+        TerrainResizeDialog terrainResizeDialog =
+                new TerrainResizeDialog(this, currentTerrain.getWidth(), currentTerrain.getHeight());
         terrainResizeDialog.setVisible(true);
         if (!terrainResizeDialog.isCancelled()) {
             try {
                 int newWidth = terrainResizeDialog.getNewWidth();
                 int newHeight = terrainResizeDialog.getNewHeight();
-                currentTerrain.resize(newWidth, newHeight);
+                currentTerrain.resize(newWidth, newHeight, terrainResizeDialog.getAnchor());
+                updateWindowTitle();
                 terrainPanel.setSize(terrainPanel.getPreferredSize());
                 pack();
             } catch (NumberFormatException e) {
@@ -293,44 +391,181 @@ public class TerrainEditorFrame extends JFrame {
     }
 
     /**
-     * Saves the terrain to json based on user input.
+     * Saves the terrain as JSON or in the binary map format, based on user input.
      * Code modeled after <a href="https://stackoverflow.com/questions/17010647/set-default-saving-extension-with-jfilechooser">...</a>
      * and <a href="https://stackoverflow.com/questions/3571223/how-do-i-get-the-file-extension-of-a-file-in-java">...</a>
      */
     private void handleSaveMap() {
+        if (isFileWorkerRunning()) {
+            return;
+        }
         JFileChooser fc = new JFileChooser("./data/mapSaves");
-        fc.setSelectedFile(new File(currentTerrain.getName() + ".json"));
+        fc.addChoosableFileFilter(JSON_FILTER);
+        fc.addChoosableFileFilter(BINARY_FILTER);
+        fc.setFileFilter(JSON_FILTER);
+        fc.setSelectedFile(new File(currentTerrain.getName() + "." + MapFormat.JSON.getExtension()));
         int response = fc.showSaveDialog(null);
         if (response == JFileChooser.APPROVE_OPTION) {
-            File f = fc.getSelectedFile();
-            String fileName = f.getName();
-            String path = f.getPath();
-            String extension = "";
-            int i = fileName.lastIndexOf('.');
-            if (i > 0) {
-                extension = fileName.substring(i + 1);
-            }
-            if (i == -1 || !extension.equalsIgnoreCase("json")) {
-                path += ".json";
+            String path = fc.getSelectedFile().getPath();
+            MapFormat format = MapFormat.fromFileName(path);
+            if (format == null) {
+                format = fc.getFileFilter() == BINARY_FILTER ? MapFormat.BINARY : MapFormat.JSON;
+                path += "." + format.getExtension();
             }
-            writeToJson(path);
+            writeToFile(path, format);
+        }
+    }
+
+    /**
+     * Exports the terrain as a PNG image in the background, at a tile size chosen by the user.
+     */
+    private void handleExportImage() {
+        if (isFileWorkerRunning()) {
+            return;
+        }
+        String size = JOptionPane.showInputDialog(this, "Pixels per tile:", IMAGE_SIZE);
+        if (size == null || !size.trim().matches("\\d{1,4}") || Integer.parseInt(size.trim()) == 0) {
+            return;
+        }
+        JFileChooser fc = new JFileChooser("./data/mapSaves");
+        fc.setFileFilter(PNG_FILTER);
+        fc.setSelectedFile(new File(currentTerrain.getName() + ".png"));
+        if (fc.showSaveDialog(null) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = fc.getSelectedFile().getName().toLowerCase().endsWith(".png") ? fc.getSelectedFile()
+                : new File(fc.getSelectedFile().getPath() + ".png");
+        Terrain snapshot = new Terrain(currentTerrain);
+        int tileSize = Integer.parseInt(size.trim());
+        startFileWorker(new MapFileWorker<>(this, "Exporting " + file.getName(), listener -> {
+            new MapImageExporter().export(snapshot, tileSize, file, listener);
+            return null;
+        }, done -> { }, e -> showFileError("Failed to export map", e)));
+    }
+
+    /**
+     * Writes the current terrain to the given path in the given format.
+     *
+     * @param path   The path to where the file is to be saved, including filename and extension
+     * @param format the format to save the file in
+     */
+    private void writeToFile(String path, MapFormat format) {
+        closeJournal();
+        Terrain snapshot = new Terrain(currentTerrain);
+        startFileWorker(new MapFileWorker<>(this, "Saving " + snapshot.getName(), listener -> {
+            format.write(snapshot, path, listener);
+            EditJournal.delete(path);
+            return snapshot;
+        }, saved -> finishSave(path, format, saved), e -> showFileError("Failed to save map", e)));
+    }
+
+    /**
+     * Records that a snapshot of the map has been saved. The edit journal only restarts if the map has not been
+     * edited while it was saving, as it must start from the saved file.
+     *
+     * @param path   the path the map was saved to
+     * @param format the format the map was saved in
+     * @param saved  the snapshot that was saved
+     */
+    private void finishSave(String path, MapFormat format, Terrain saved) {
+        currentPath = path;
+        currentFormat = format;
+        savedFingerprint = saved.getFingerprint();
+        autosaver.markClean(savedFingerprint);
+        updateWindowTitle();
+        if (!hasUnsavedChanges()) {
+            openJournal();
+        }
+    }
+
+    /**
+     * Runs a load or save in the background.
+     *
+     * @param worker the load or save
+     */
+    private void startFileWorker(MapFileWorker<?> worker) {
+        fileWorker = worker;
+        worker.execute();
+    }
+
+    /**
+     * Returns true if a load or save is running, telling the user to wait for it.
+     */
+    private boolean isFileWorkerRunning() {
+        if (fileWorker == null || fileWorker.isDone()) {
+            return false;
         }
+        JOptionPane.showMessageDialog(this, "Please wait for the map to finish loading or saving.",
+                "Busy", JOptionPane.INFORMATION_MESSAGE);
+        return true;
     }
 
     /**
-     * Writes the current terrain to json at the given path.
+     * Tells the user that a load or save failed.
      *
-     * @param path The path to where the file is to be saved, including filename and extension
+     * @param message the message to show
+     * @param cause   the error that caused the failure
+     */
+    private void showFileError(String message, Exception cause) {
+        Logger.getLogger(TerrainEditorFrame.class.getName()).log(Level.WARNING, message, cause);
+        JOptionPane.showMessageDialog(this, message, "Error", JOptionPane.ERROR_MESSAGE);
+    }
+
+    /**
+     * Starts or stops keeping an edit journal next to the current map's file. A journal started while there are
+     * unsaved changes would not match the file, so in that case it starts with the next save.
+     */
+    private void handleToggleJournal() {
+        if (!journalMenuItem.isSelected()) {
+            closeJournal();
+        } else if (!hasUnsavedChanges()) {
+            openJournal();
+        }
+    }
+
+    /**
+     * Opens the edit journal of the current map's file, replaying any edits it holds, if journaling is turned on
+     * and the map has a file.
      */
-    private void writeToJson(String path) {
-        JsonWriter jw = new JsonWriter(path);
+    private void openJournal() {
+        if (!journalMenuItem.isSelected() || currentPath == null || journal != null) {
+            return;
+        }
         try {
-            jw.open();
-            jw.write(currentTerrain);
-            jw.close();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+            journal = EditJournal.open(currentTerrain, currentPath, currentFormat);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Failed to open edit journal", "Error",
+                    JOptionPane.ERROR_MESSAGE);
         }
+        updateWindowTitle();
+    }
+
+    /**
+     * Flushes and closes the edit journal, if one is open.
+     */
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Failed to write edit journal", "Error",
+                    JOptionPane.ERROR_MESSAGE);
+        } finally {
+            journal = null;
+        }
+    }
+
+    /**
+     * Returns a file chooser filter for files of the given format.
+     *
+     * @param format the map format
+     * @return filter accepting files with the format's extension
+     */
+    private static FileNameExtensionFilter formatFilter(MapFormat format) {
+        return new FileNameExtensionFilter(format.getDescription() + " (." + format.getExtension() + ")",
+                format.getExtension());
     }
 
     /**
@@ -338,20 +573,54 @@ public class TerrainEditorFrame extends JFrame {
      * Code modeled after method from <a href="https://www.geeksforgeeks.org/java-swing-jfilechooser/">...</a>
      */
     private void handleLoadMap() {
+        if (!confirmDiscardChanges()) {
+            return;
+        }
         JFileChooser fc = new JFileChooser("./data/mapSaves");
         fc.addChoosableFileFilter(FILE_FILTER);
+        fc.addChoosableFileFilter(JSON_FILTER);
+        fc.addChoosableFileFilter(BINARY_FILTER);
+        fc.setFileFilter(FILE_FILTER);
         int response = fc.showOpenDialog(null);
         if (response == JFileChooser.APPROVE_OPTION) {
             String path = fc.getSelectedFile().getPath();
-            JsonReader reader = new JsonReader(path);
+            MapFormat format;
             try {
-                currentTerrain = reader.readTerrain();
-                updateWindowTitle();
-            } catch (IOException | JSONException e) {
-                JOptionPane.showMessageDialog(this, "Failed to read map", "Error",
-                        JOptionPane.ERROR_MESSAGE);
+                format = MapFormat.detect(path);
+            } catch (IOException e) {
+                showFileError("Failed to read map", e);
+                return;
             }
+            long startFingerprint = currentTerrain.getFingerprint();
+            startFileWorker(new MapFileWorker<>(this, "Loading " + fc.getSelectedFile().getName(),
+                    listener -> format.read(path, listener), loaded -> finishLoad(path, format, loaded,
+                    startFingerprint), e -> showFileError("Failed to read map", e)));
+        }
+    }
+
+    /**
+     * Replaces the current map with one that has finished loading. The map can still be edited while it loads, so if
+     * it has been, the user is asked first whether to discard those edits.
+     *
+     * @param path             the path the map was loaded from
+     * @param format           the format the map was loaded from
+     * @param loaded           the loaded map
+     * @param startFingerprint fingerprint of the current map when the load started
+     */
+    private void finishLoad(String path, MapFormat format, Terrain loaded, long startFingerprint) {
+        if (currentTerrain.getFingerprint() != startFingerprint && JOptionPane.showConfirmDialog(this,
+                "The map was edited while " + loaded.getName() + " was loading. Discard those edits?",
+                "Unsaved Changes", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE)
+                != JOptionPane.YES_OPTION) {
+            return;
         }
+        closeJournal();
+        currentTerrain = loaded;
+        terrainPanel.watch(currentTerrain);
+        currentPath = path;
+        currentFormat = format;
+        markSaved();
+        openJournal();
         terrainPanel.setSize(terrainPanel.getPreferredSize());
         repaint();
         pack();
@@ -457,6 +726,7 @@ public class TerrainEditorFrame extends JFrame {
                 }
                 break;
         }
+        updateWindowTitle();
     }
 
     /**
@@ -469,36 +739,11 @@ public class TerrainEditorFrame extends JFrame {
     }
 
     /**
-     * Returns the image of the given faction unit marker
+     * Returns the images the editor draws with
      *
-     * @param faction the faction of the desired image
-     * @return image of the unit marker
+     * @return the image registry
      */
-    BufferedImage getImageOfUnit(Faction faction) {
-        return switch (faction) {
-            case PLAYER -> playerImg;
-            case ENEMY -> enemyImg;
-            default -> allyImg;
-        };
+    ImageRegistry getImages() {
+        return images;
     }
-
-    /**
-     * Returns the image corresponding to the terrain tile type.
-     *
-     * @param tileType the TerrainTile corresponding to the desired image
-     * @return the desired image
-     */
-    BufferedImage getImageOfTerrain(TerrainTile tileType) {
-        return switch (tileType) {
-            case PLAIN -> plainImg;
-            case MOUNTAIN -> mountainImg;
-            case FOREST -> forestImg;
-            case WATER -> waterImg;
-            case WALL -> wallImg;
-            case CHEST -> chestImg;
-            case GATE -> gateImg;
-            default -> throneImg;
-        };
-    }
-
 }
\ No newline at end of file
@@ -0,0 +1,186 @@
+package ui;
+
+import model.Terrain;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Represents an offscreen image of a terrain's tiles at the current zoom, in a format compatible with the display,
+ * so that painting the terrain is one image copy however many tiles are showing. Only the tiles an edit changes are
+ * redrawn into it. The image is rebuilt from scratch when the terrain is switched, resized or zoomed; for large maps
+ * that happens on a background thread from a snapshot, and edits made meanwhile are redrawn into the new image once
+ * it is ready. Maps whose image would exceed MAX_PIXELS get no image, and are painted tile by tile instead.
+ */
+class TerrainLayer {
+    static final long MAX_PIXELS = 4096L * 4096L;
+    static final int BACKGROUND_BUILD_TILES = 128 * 128;
+
+    private static final Logger log = Logger.getLogger(TerrainLayer.class.getName());
+
+    private final JComponent component;
+    private final List<Rectangle> pendingCells = new ArrayList<>();
+    private Terrain terrain;
+    private TileAtlas atlas;
+    private BufferedImage image;
+    private Builder builder;
+
+    /**
+     * Represents a rebuild of the image running on a background thread.
+     */
+    private class Builder extends SwingWorker<BufferedImage, Void> {
+        private final Terrain snapshot;
+        private final TileAtlas images;
+        private final BufferedImage target;
+
+        Builder(Terrain snapshot, TileAtlas images, BufferedImage target) {
+            this.snapshot = snapshot;
+            this.images = images;
+            this.target = target;
+        }
+
+        @Override
+        protected BufferedImage doInBackground() {
+            drawInto(target, snapshot, images, 0, 0, snapshot.getWidth(), snapshot.getHeight());
+            return target;
+        }
+
+        @Override
+        protected void done() {
+            if (builder != this) {
+                return;
+            }
+            builder = null;
+            try {
+                image = get();
+            } catch (InterruptedException | ExecutionException e) {
+                log.log(Level.WARNING, "Failed to build terrain layer", e);
+                return;
+            }
+            for (Rectangle cells : pendingCells) {
+                drawInto(image, terrain, atlas, cells.x, cells.y, cells.width, cells.height);
+            }
+            pendingCells.clear();
+            component.repaint();
+        }
+    }
+
+    /**
+     * Constructs a layer with no terrain, for the given component.
+     *
+     * @param component component the layer is painted on, whose display the image is made compatible with
+     */
+    TerrainLayer(JComponent component) {
+        this.component = component;
+    }
+
+    /**
+     * Throws away the image and starts building a new one of the given terrain, which has just been switched to,
+     * resized or zoomed. Small maps are built straight away.
+     *
+     * @param terrain the terrain to draw
+     * @param atlas   the tile images at the current zoom
+     */
+    void rebuild(Terrain terrain, TileAtlas atlas) {
+        this.terrain = terrain;
+        this.atlas = atlas;
+        image = null;
+        builder = null;
+        pendingCells.clear();
+        long width = (long) terrain.getWidth() * atlas.getTileSize();
+        long height = (long) terrain.getHeight() * atlas.getTileSize();
+        if (width * height > MAX_PIXELS) {
+            return;
+        }
+        BufferedImage target = createImage((int) width, (int) height);
+        if (terrain.getWidth() * terrain.getHeight() <= BACKGROUND_BUILD_TILES) {
+            drawInto(target, terrain, atlas, 0, 0, terrain.getWidth(), terrain.getHeight());
+            image = target;
+        } else {
+            builder = new Builder(new Terrain(terrain), atlas, target);
+            builder.execute();
+        }
+    }
+
+    /**
+     * Redraws the given rectangle of cells, which an edit has changed, into the image.
+     *
+     * @param x      x coordinate of the top left cell
+     * @param y      y coordinate of the top left cell
+     * @param width  width of the rectangle in cells
+     * @param height height of the rectangle in cells
+     */
+    void invalidate(int x, int y, int width, int height) {
+        if (image != null) {
+            drawInto(image, terrain, atlas, x, y, width, height);
+        } else if (builder != null) {
+            pendingCells.add(new Rectangle(x, y, width, height));
+        }
+    }
+
+    /**
+     * Copies the image onto the given graphics, if it is ready.
+     *
+     * @param g graphics to paint on
+     * @return true if the image was painted, false if the tiles have to be drawn some other way
+     */
+    boolean paint(Graphics g) {
+        if (image == null) {
+            return false;
+        }
+        g.drawImage(image, 0, 0, null);
+        return true;
+    }
+
+    /**
+     * Draws the given rectangle of cells of the terrain with the atlas's images, clipped to the terrain.
+     *
+     * @param g       graphics to draw on, with cell (0, 0) at its origin
+     * @param terrain the terrain to draw
+     * @param atlas   the tile images at the size to draw them
+     * @param x       x coordinate of the top left cell
+     * @param y       y coordinate of the top left cell
+     * @param width   width of the rectangle in cells
+     * @param height  height of the rectangle in cells
+     */
+    static void drawTiles(Graphics g, Terrain terrain, TileAtlas atlas, int x, int y, int width, int height) {
+        int size = atlas.getTileSize();
+        int endX = Math.min(terrain.getWidth(), x + width);
+        int endY = Math.min(terrain.getHeight(), y + height);
+        for (int i = Math.max(0, x); i < endX; i++) {
+            for (int j = Math.max(0, y); j < endY; j++) {
+                g.drawImage(atlas.getTile(terrain.getTileType(i, j)), i * size, j * size, null);
+            }
+        }
+    }
+
+    /**
+     * Draws the given rectangle of cells of the terrain into the image.
+     */
+    private static void drawInto(BufferedImage target, Terrain source, TileAtlas images, int x, int y, int width,
+                                 int height) {
+        Graphics2D g = target.createGraphics();
+        try {
+            drawTiles(g, source, images, x, y, width, height);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Creates an opaque image in the format of the component's display, or a plain RGB image if it is not yet shown.
+     */
+    private BufferedImage createImage(int width, int height) {
+        GraphicsConfiguration config = component.getGraphicsConfiguration();
+        if (config == null) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+        return config.createCompatibleImage(width, height, Transparency.OPAQUE);
+    }
+}
@@ -1,22 +1,71 @@
 package ui;
 
 import model.Terrain;
+import model.TerrainListener;
 import model.Unit;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.List;
+import java.awt.event.MouseWheelEvent;
+import java.util.HashMap;
+import java.util.Map;
 
 import static ui.TerrainEditorFrame.IMAGE_SIZE;
 
 /**
- * Represents a panel that displays a Terrain object
+ * Represents a panel that displays a Terrain object, meant to be shown in a scroll pane. The panel listens to the
+ * terrain it displays and repaints only the cells an edit changed, and painting only draws the cells inside the
+ * clip, which is at most the visible part of the map, so painting costs the same however large the map is. The
+ * tiles are kept in a TerrainLayer, so painting copies them in one call and only draws the units on top.
+ * The map can be zoomed between ZOOM_LEVELS with the mouse wheel while holding Ctrl. Tiles are drawn from a TileAtlas
+ * scaled once per zoom level, so drawing never scales images.
  */
-class TerrainPanel extends JPanel {
+class TerrainPanel extends JPanel implements Scrollable {
+    static final int[] ZOOM_LEVELS = {4, 8, 16, 32, 64, 128};
+    private static final Dimension MAX_VIEWPORT_SIZE = new Dimension(40 * IMAGE_SIZE, 25 * IMAGE_SIZE);
 
     private TerrainEditorFrame owner;
+    private final Map<Integer, TileAtlas> atlases = new HashMap<>();
+    private int tileSize = IMAGE_SIZE;
+    private Terrain watched;
+    private final TerrainLayer layer;
+    private final TerrainListener repainter = new TerrainListener() {
+        @Override
+        public void tilesChanged(Terrain terrain, int x, int y, int width, int height) {
+            layer.invalidate(x, y, width, height);
+            repaintCells(x, y, width, height);
+        }
+
+        @Override
+        public void unitAdded(Terrain terrain, Unit unit) {
+            repaintCells(unit.getX(), unit.getY(), 1, 1);
+        }
+
+        @Override
+        public void unitRemoved(Terrain terrain, Unit unit) {
+            repaintCells(unit.getX(), unit.getY(), 1, 1);
+        }
+
+        @Override
+        public void unitMoved(Terrain terrain, Unit unit, int fromX, int fromY) {
+            repaintCells(fromX, fromY, 1, 1);
+            repaintCells(unit.getX(), unit.getY(), 1, 1);
+        }
+
+        @Override
+        public void unitEdited(Terrain terrain, Unit unit) {
+            repaintCells(unit.getX(), unit.getY(), 1, 1);
+        }
+
+        @Override
+        public void resized(Terrain terrain, int offsetX, int offsetY) {
+            layer.rebuild(terrain, getAtlas());
+            revalidate();
+            repaint();
+        }
+    };
 
     /**
      * Constructs a new TerrainPanel
@@ -25,8 +74,7 @@ class TerrainPanel extends JPanel {
      */
     public TerrainPanel(TerrainEditorFrame owner) {
         this.owner = owner;
-
-        setBorder(BorderFactory.createLineBorder(Color.BLACK, 2));
+        this.layer = new TerrainLayer(this);
 
         addMouseListener(new MouseAdapter() {
             public void mousePressed(MouseEvent e) {
@@ -36,32 +84,151 @@ class TerrainPanel extends JPanel {
 
         addMouseMotionListener(new MouseAdapter() {
             public void mouseDragged(MouseEvent e) {
+                scrollRectToVisible(new Rectangle(e.getX(), e.getY(), 1, 1));
                 handleClick(e.getX(), e.getY(), true);
             }
         });
+
+        addMouseWheelListener(this::handleWheel);
+    }
+
+    /**
+     * Returns the tile images at the current zoom, scaling them the first time the zoom level is used
+     */
+    private TileAtlas getAtlas() {
+        return atlases.computeIfAbsent(tileSize, size -> new TileAtlas(size, owner.getImages(),
+                getGraphicsConfiguration()));
+    }
+
+    /**
+     * Zooms in or out by the given number of levels, keeping the given point of the panel where it is on screen.
+     * Zooming past the first or last level stops there.
+     *
+     * @param levels number of levels to zoom in by, or out by if negative
+     * @param anchor the point to keep still, in panel coordinates
+     */
+    void zoom(int levels, Point anchor) {
+        int current = 0;
+        while (ZOOM_LEVELS[current] < tileSize) {
+            current++;
+        }
+        int next = ZOOM_LEVELS[Math.max(0, Math.min(ZOOM_LEVELS.length - 1, current + levels))];
+        setTileSize(next, anchor);
+    }
+
+    /**
+     * Zooms in or out by the given number of levels, keeping the centre of the visible area where it is
+     *
+     * @param levels number of levels to zoom in by, or out by if negative
+     */
+    void zoom(int levels) {
+        Rectangle visible = getVisibleRect();
+        zoom(levels, new Point(visible.x + visible.width / 2, visible.y + visible.height / 2));
+    }
+
+    /**
+     * Returns to the default zoom, keeping the centre of the visible area where it is
+     */
+    void resetZoom() {
+        Rectangle visible = getVisibleRect();
+        setTileSize(IMAGE_SIZE, new Point(visible.x + visible.width / 2, visible.y + visible.height / 2));
+    }
+
+    /**
+     * Changes the size tiles are drawn at, scrolling so that the given point stays at the same place in the view
+     */
+    private void setTileSize(int size, Point anchor) {
+        if (size == tileSize) {
+            return;
+        }
+        Point view = getParent() instanceof JViewport ? ((JViewport) getParent()).getViewPosition() : new Point();
+        int oldSize = tileSize;
+        tileSize = size;
+        layer.rebuild(watched, getAtlas());
+        setSize(getPreferredSize());
+        if (getParent() instanceof JViewport) {
+            JViewport viewport = (JViewport) getParent();
+            int x = (int) ((long) anchor.x * size / oldSize) - (anchor.x - view.x);
+            int y = (int) ((long) anchor.y * size / oldSize) - (anchor.y - view.y);
+            viewport.setViewPosition(new Point(Math.max(0, Math.min(x, getWidth() - viewport.getWidth())),
+                    Math.max(0, Math.min(y, getHeight() - viewport.getHeight()))));
+        }
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Zooms if Ctrl is held, and otherwise passes the wheel event on to the scroll pane so it scrolls as usual
+     */
+    private void handleWheel(MouseWheelEvent e) {
+        if (e.isControlDown()) {
+            zoom(e.getWheelRotation() < 0 ? 1 : -1, e.getPoint());
+            return;
+        }
+        Container scrollPane = SwingUtilities.getAncestorOfClass(JScrollPane.class, this);
+        if (scrollPane != null) {
+            scrollPane.dispatchEvent(SwingUtilities.convertMouseEvent(this, e, scrollPane));
+        }
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        atlases.clear();
+        if (watched != null) {
+            layer.rebuild(watched, getAtlas());
+        }
     }
 
     /**
-     * Draws the owner's terrain on the panel
+     * Starts displaying the given terrain, which the owner has just switched to, and repaints the whole panel
+     *
+     * @param terrain the terrain to display
+     */
+    void watch(Terrain terrain) {
+        if (watched != null) {
+            watched.removeListener(repainter);
+        }
+        watched = terrain;
+        terrain.addListener(repainter);
+        layer.rebuild(terrain, getAtlas());
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Marks the given rectangle of cells as needing to be repainted
+     *
+     * @param x      x coordinate of the top left cell
+     * @param y      y coordinate of the top left cell
+     * @param width  width of the rectangle in cells
+     * @param height height of the rectangle in cells
+     */
+    private void repaintCells(int x, int y, int width, int height) {
+        repaint(x * tileSize, y * tileSize, width * tileSize, height * tileSize);
+    }
+
+    /**
+     * Draws the cells of the owner's terrain that fall inside the clip, with their units, on the panel
      *
      * @param g graphics object that will draw the panel
      */
     private void drawMap(Graphics g) {
         Terrain currentTerrain = owner.getCurrentTerrain();
-        int width = currentTerrain.getWidth();
-        int height = currentTerrain.getHeight();
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
-                g.drawImage(owner.getImageOfTerrain(currentTerrain.getTileType(i, j)),
-                        i * IMAGE_SIZE, j * IMAGE_SIZE, IMAGE_SIZE, IMAGE_SIZE, null);
-            }
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(getWidth(), getHeight());
         }
-
-        List<Unit> units = currentTerrain.getUnits();
-
-        for (Unit unit : units) {
-            g.drawImage(owner.getImageOfUnit(unit.getFaction()), unit.getX() * IMAGE_SIZE,
-                    unit.getY() * IMAGE_SIZE, IMAGE_SIZE, IMAGE_SIZE, null);
+        int minX = Math.max(0, clip.x / tileSize);
+        int minY = Math.max(0, clip.y / tileSize);
+        int maxX = Math.min(currentTerrain.getWidth() - 1, (clip.x + clip.width - 1) / tileSize);
+        int maxY = Math.min(currentTerrain.getHeight() - 1, (clip.y + clip.height - 1) / tileSize);
+        TileAtlas atlas = getAtlas();
+        if (!layer.paint(g)) {
+            TerrainLayer.drawTiles(g, currentTerrain, atlas, minX, minY, maxX - minX + 1, maxY - minY + 1);
+        }
+        for (Unit unit : currentTerrain.getUnitsInRect(minX, minY, maxX - minX + 1, maxY - minY + 1)) {
+            g.drawImage(atlas.getUnit(unit.getFaction()), unit.getX() * tileSize, unit.getY() * tileSize, null);
         }
     }
 
@@ -73,26 +240,56 @@ class TerrainPanel extends JPanel {
      * @param dragged whether the click was dragged or not
      */
     private void handleClick(int x, int y, boolean dragged) {
-        int terrainX = x / IMAGE_SIZE;
-        int terrainY = y / IMAGE_SIZE;
+        if (!getVisibleRect().contains(x, y)) {
+            return;
+        }
+        int terrainX = x / tileSize;
+        int terrainY = y / tileSize;
         owner.handleClick(terrainX, terrainY, dragged);
-        repaint();
     }
 
     @Override
     public Dimension getPreferredSize() {
         Terrain currentTerrain = owner.getCurrentTerrain();
-        return new Dimension(currentTerrain.getWidth() * IMAGE_SIZE, currentTerrain.getHeight() * IMAGE_SIZE);
+        return new Dimension(currentTerrain.getWidth() * tileSize, currentTerrain.getHeight() * tileSize);
+    }
+
+    /**
+     * Returns the preferred size of the viewport, which fits the whole map unless it is larger than
+     * MAX_VIEWPORT_SIZE
+     */
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        Dimension size = getPreferredSize();
+        return new Dimension(Math.min(size.width, MAX_VIEWPORT_SIZE.width),
+                Math.min(size.height, MAX_VIEWPORT_SIZE.height));
+    }
+
+    /**
+     * Scrolls by one tile at the default zoom, or by one tile at the current zoom if that is larger
+     */
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return Math.max(IMAGE_SIZE, tileSize);
+    }
+
+    /**
+     * Scrolls by the visible width or height, less one tile so the user keeps their bearings
+     */
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        int visible = orientation == SwingConstants.HORIZONTAL ? visibleRect.width : visibleRect.height;
+        return Math.max(tileSize, visible - tileSize);
     }
 
     @Override
-    public Dimension getMaximumSize() {
-        return getPreferredSize();
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
     }
 
     @Override
-    public Dimension getMinimumSize() {
-        return getPreferredSize();
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
     }
 
     @Override
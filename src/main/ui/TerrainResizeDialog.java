@@ -1,5 +1,7 @@
 package ui;
 
+import model.Anchor;
+
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
@@ -14,6 +16,7 @@ public class TerrainResizeDialog extends JDialog implements ActionListener {
     public static final String OK = "OK";
     private JTextField newWidth;
     private JTextField newHeight;
+    private JComboBox<Anchor> anchorBox;
 
     private boolean cancelled = true;
 
@@ -21,11 +24,15 @@ public class TerrainResizeDialog extends JDialog implements ActionListener {
      * Constructs a new MapResizeDialog
      *
      * @param owner the owner of the dialog
+     * @param currentWidth the map's current width, shown as the initial width
+     * @param currentHeight the map's current height, shown as the initial height
      */
-    public TerrainResizeDialog(JFrame owner) {
+    public TerrainResizeDialog(JFrame owner, int currentWidth, int currentHeight) {
         super(owner, "Map Resize Tool");
         setModal(true);
         initializeComponents();
+        newWidth.setText(Integer.toString(currentWidth));
+        newHeight.setText(Integer.toString(currentHeight));
         ((JPanel) getContentPane()).setBorder(new EmptyBorder(13, 13, 0, 13));
         setLayout(new BoxLayout(getContentPane(), BoxLayout.Y_AXIS));
         pack();
@@ -37,13 +44,17 @@ public class TerrainResizeDialog extends JDialog implements ActionListener {
      * Initializes all the components of the dialog
      */
     private void initializeComponents() {
-        JPanel inputPanel = new JPanel(new GridLayout(2, 2));
+        JPanel inputPanel = new JPanel(new GridLayout(3, 2));
         newWidth = new JTextField();
         newHeight = new JTextField();
+        anchorBox = new JComboBox<>(Anchor.values());
+        anchorBox.setSelectedItem(Anchor.NORTH_WEST);
         inputPanel.add(new JLabel("Enter the new width: "));
         inputPanel.add(newWidth);
         inputPanel.add(new JLabel("Enter the new height: "));
         inputPanel.add(newHeight);
+        inputPanel.add(new JLabel("Keep fixed: "));
+        inputPanel.add(anchorBox);
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         JButton cancelButton = new JButton(CANCEL);
         cancelButton.setActionCommand(CANCEL);
@@ -90,6 +101,15 @@ public class TerrainResizeDialog extends JDialog implements ActionListener {
         return Integer.parseInt(newHeight.getText());
     }
 
+    /**
+     * Returns the anchor selected by the user, which stays in place when the map is resized.
+     *
+     * @return the selected Anchor
+     */
+    public Anchor getAnchor() {
+        return (Anchor) anchorBox.getSelectedItem();
+    }
+
     /**
      * Returns whether the user cancelled the dialog
      *
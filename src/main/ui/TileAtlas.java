@@ -0,0 +1,78 @@
+package ui;
+
+import model.Faction;
+import model.TerrainTile;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Represents the tile and unit images scaled once to one tile size, in a format compatible with the display, so
+ * that drawing a tile at that size is a plain copy with no scaling. Images are indexed by the ordinal of their tile
+ * or faction.
+ */
+class TileAtlas {
+
+    private final int tileSize;
+    private final BufferedImage[] tiles;
+    private final BufferedImage[] units;
+
+    /**
+     * Constructs an atlas by scaling every tile and unit image to the given size.
+     *
+     * @param tileSize width and height of each image, in pixels
+     * @param images   the full-size images
+     * @param config   configuration of the display to match, or null if the component is not yet shown
+     */
+    TileAtlas(int tileSize, ImageRegistry images, GraphicsConfiguration config) {
+        this.tileSize = tileSize;
+        TerrainTile[] tileTypes = TerrainTile.values();
+        tiles = new BufferedImage[tileTypes.length];
+        for (TerrainTile tile : tileTypes) {
+            tiles[tile.ordinal()] = scale(images.getTile(tile), tileSize, config, Transparency.OPAQUE);
+        }
+        Faction[] factions = Faction.values();
+        units = new BufferedImage[factions.length];
+        for (Faction faction : factions) {
+            units[faction.ordinal()] = scale(images.getUnit(faction), tileSize, config, Transparency.TRANSLUCENT);
+        }
+    }
+
+    /**
+     * Returns the width and height of each image, in pixels.
+     */
+    int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Returns the scaled image of the given kind of tile.
+     */
+    BufferedImage getTile(TerrainTile tile) {
+        return tiles[tile.ordinal()];
+    }
+
+    /**
+     * Returns the scaled unit marker of the given faction.
+     */
+    BufferedImage getUnit(Faction faction) {
+        return units[faction.ordinal()];
+    }
+
+    /**
+     * Returns a copy of the image scaled to a square of the given size, with bilinear filtering.
+     */
+    private static BufferedImage scale(Image image, int size, GraphicsConfiguration config, int transparency) {
+        BufferedImage scaled = config == null
+                ? new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB)
+                : config.createCompatibleImage(size, size, transparency);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(image, 0, 0, size, size, null);
+        } finally {
+            g.dispose();
+        }
+        return scaled;
+    }
+}
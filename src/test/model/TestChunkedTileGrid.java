@@ -0,0 +1,153 @@
+package model;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Tests chunked tile storage, both directly and through Terrain
+public class TestChunkedTileGrid {
+
+    ChunkedTileGrid grid;
+
+    @BeforeEach
+    void setup() {
+        grid = new ChunkedTileGrid(100, 70);
+    }
+
+    @Test
+    void testInitiallyPlainAndUnallocated() {
+        assertEquals(0, grid.getAllocatedChunkCount());
+        assertEquals(TerrainTile.PLAIN, grid.get(0, 0));
+        assertEquals(TerrainTile.PLAIN, grid.get(99, 69));
+    }
+
+    @Test
+    void testSetAllocatesOnlyOnChange() {
+        grid.set(TerrainTile.PLAIN, 40, 40);
+        assertEquals(0, grid.getAllocatedChunkCount());
+        grid.set(TerrainTile.WATER, 40, 40);
+        assertEquals(1, grid.getAllocatedChunkCount());
+        assertEquals(TerrainTile.WATER, grid.get(40, 40));
+        assertEquals(TerrainTile.PLAIN, grid.get(41, 40));
+        assertEquals(TerrainTile.PLAIN, grid.get(40, 41));
+    }
+
+    @Test
+    void testFill() {
+        grid.set(TerrainTile.WATER, 3, 3);
+        grid.fill(TerrainTile.FOREST);
+        assertEquals(0, grid.getAllocatedChunkCount());
+        assertEquals(TerrainTile.FOREST, grid.get(3, 3));
+    }
+
+    @Test
+    void testMatchesFlatGrid() {
+        FlatTileGrid flat = new FlatTileGrid(100, 70);
+        Random random = new Random(42);
+        for (int i = 0; i < 3000; i++) {
+            TerrainTile tile = TerrainTile.values()[random.nextInt(TerrainTile.values().length)];
+            int x = random.nextInt(100);
+            int y = random.nextInt(70);
+            grid.set(tile, x, y);
+            flat.set(tile, x, y);
+        }
+        assertEquals(flat, grid);
+        assertEquals(grid, flat);
+        assertEquals(flat.hashCode(), grid.hashCode());
+        assertEquals(flat.resized(45, 90, 0, 0), grid.resized(45, 90, 0, 0));
+        assertEquals(flat.resized(130, 33, 0, 0), grid.resized(130, 33, 0, 0));
+        assertEquals(flat.resized(130, 100, 32, 64), grid.resized(130, 100, 32, 64));
+        assertEquals(flat.resized(90, 60, -32, -32), grid.resized(90, 60, -32, -32));
+        assertEquals(flat.resized(120, 75, 7, -3), grid.resized(120, 75, 7, -3));
+    }
+
+    @Test
+    void testFillRectReleasesCoveredChunks() {
+        grid.set(TerrainTile.WATER, 40, 40);
+        grid.set(TerrainTile.WATER, 70, 5);
+        grid.fillRect((byte) TerrainTile.FOREST.ordinal(), 32, 32, 68, 38);
+        assertEquals(1, grid.getAllocatedChunkCount());
+        assertEquals(TerrainTile.FOREST, grid.get(40, 40));
+        assertEquals(TerrainTile.FOREST, grid.get(99, 69));
+        assertEquals(TerrainTile.PLAIN, grid.get(31, 69));
+        grid.fillRect((byte) TerrainTile.WALL.ordinal(), 10, 10, 5, 5);
+        FlatTileGrid flat = new FlatTileGrid(100, 70);
+        flat.set(TerrainTile.WATER, 70, 5);
+        flat.fillRect((byte) TerrainTile.FOREST.ordinal(), 32, 32, 68, 38);
+        flat.fillRect((byte) TerrainTile.WALL.ordinal(), 10, 10, 5, 5);
+        assertEquals(flat, grid);
+        int[] counts = new int[TerrainTile.values().length];
+        assertEquals(flat.tallyRect(0, 0, 50, 50, counts), grid.tallyRect(0, 0, 50, 50, new int[counts.length]));
+        assertEquals(18 * 18, counts[TerrainTile.FOREST.ordinal()]);
+    }
+
+    @Test
+    void testCountTiles() {
+        grid.fill(TerrainTile.WATER);
+        grid.set(TerrainTile.THRONE, 99, 69);
+        grid.set(TerrainTile.THRONE, 0, 0);
+        int[] counts = grid.countTiles();
+        assertEquals(2, counts[TerrainTile.THRONE.ordinal()]);
+        assertEquals(6998, counts[TerrainTile.WATER.ordinal()]);
+        assertEquals(0, counts[TerrainTile.PLAIN.ordinal()]);
+    }
+
+    @Test
+    void testResizeGrowClearsPartialChunks() {
+        grid.fill(TerrainTile.WATER);
+        TileGrid resized = grid.resized(140, 80, 0, 0);
+        assertEquals(TerrainTile.WATER, resized.get(99, 69));
+        assertEquals(TerrainTile.PLAIN, resized.get(100, 69));
+        assertEquals(TerrainTile.PLAIN, resized.get(99, 70));
+        assertEquals(TileStorage.CHUNKED, resized.getStorage());
+    }
+
+    @Test
+    void testSnapshotIsIndependent() {
+        grid.set(TerrainTile.WATER, 40, 40);
+        grid.set(TerrainTile.WALL, 80, 10);
+        TileGrid snapshot = grid.snapshot();
+        grid.set(TerrainTile.FOREST, 41, 40);
+        grid.fillRect((byte) TerrainTile.GATE.ordinal(), 64, 0, 36, 32);
+        snapshot.set(TerrainTile.CHEST, 0, 0);
+        assertEquals(TerrainTile.WATER, snapshot.get(40, 40));
+        assertEquals(TerrainTile.PLAIN, snapshot.get(41, 40));
+        assertEquals(TerrainTile.WALL, snapshot.get(80, 10));
+        assertEquals(TerrainTile.CHEST, snapshot.get(0, 0));
+        assertEquals(TerrainTile.FOREST, grid.get(41, 40));
+        assertEquals(TerrainTile.GATE, grid.get(80, 10));
+        assertEquals(TerrainTile.PLAIN, grid.get(0, 0));
+        grid.fill(TerrainTile.MOUNTAIN);
+        assertEquals(TerrainTile.WATER, snapshot.get(40, 40));
+    }
+
+    @Test
+    void testHugeBlankTerrain() {
+        Terrain huge = new Terrain("World", 8192, 8192, TileStorage.CHUNKED);
+        assertEquals(TileStorage.CHUNKED, huge.getStorage());
+        assertTrue(huge.setTile(TerrainTile.MOUNTAIN, 8000, 17));
+        huge.resize(16384, 12000);
+        assertEquals(TerrainTile.MOUNTAIN, huge.getTileType(8000, 17));
+        assertEquals(TerrainTile.PLAIN, huge.getTileType(16383, 11999));
+        assertEquals(1, huge.getTileCount(TerrainTile.MOUNTAIN));
+        assertEquals(16384 * 12000 - 1, huge.getTileCount(TerrainTile.PLAIN));
+        assertEquals(TileStorage.CHUNKED, huge.getStorage());
+    }
+
+    @Test
+    void testChunkedTerrainEqualsFlatTerrain() {
+        Terrain flat = new Terrain("Same", 40, 40);
+        Terrain chunked = new Terrain("Same", 40, 40, TileStorage.CHUNKED);
+        flat.setTile(TerrainTile.GATE, 33, 2);
+        chunked.setTile(TerrainTile.GATE, 33, 2);
+        assertEquals(flat, chunked);
+        assertEquals(flat.getFingerprint(), chunked.getFingerprint());
+        chunked.resize(41, 41);
+        chunked.resize(40, 40);
+        assertEquals(flat.getFingerprint(), chunked.getFingerprint());
+        chunked.setTile(TerrainTile.WALL, 0, 0);
+        assertNotEquals(flat, chunked);
+    }
+}
@@ -0,0 +1,90 @@
+package model;
+
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Tests recording and draining of model events
+public class TestEventLog {
+
+    @AfterEach
+    void tearDown() {
+        EventLog.stopRecording();
+    }
+
+    @Test
+    void testNotRecording() {
+        new Terrain("Quiet", 15, 10).setTile(TerrainTile.WATER, 1, 1);
+        assertFalse(EventLog.isRecording());
+        assertTrue(EventLog.drain().isEmpty());
+    }
+
+    @Test
+    void testRecordAndDrain() {
+        Terrain terrain = new Terrain("Chapter 1", 15, 10);
+        EventLog.startRecording(16);
+        assertTrue(EventLog.isRecording());
+        terrain.setTile(TerrainTile.WATER, 1, 2);
+        Unit unit = new Unit(Faction.ENEMY, BattleClass.MAGE, 3, 4);
+        terrain.addUnit(unit);
+        unit.setFaction(Faction.ALLY);
+        terrain.rename("Chapter 2");
+        List<String> messages = EventLog.drain();
+        assertEquals(5, messages.size());
+        assertEquals(EventUtility.getSetTileMessage(TerrainTile.WATER, 1, 2), messages.get(0));
+        assertEquals(EventUtility.getUnitInstantiationMessage(Faction.ENEMY, BattleClass.MAGE, 3, 4),
+                messages.get(1));
+        assertEquals(EventUtility.getAddUnitMessage(3, 4), messages.get(2));
+        assertEquals(EventUtility.getFactionChangeMessage(Faction.ALLY, 3, 4), messages.get(3));
+        assertEquals(EventUtility.getRenameMessage("Chapter 2"), messages.get(4));
+        assertTrue(EventLog.drain().isEmpty());
+    }
+
+    @Test
+    void testRingOverwritesOldest() {
+        Terrain terrain = new Terrain("Chapter 1", 15, 10);
+        EventLog.startRecording(3);
+        for (int i = 0; i < 5; i++) {
+            terrain.setTile(TerrainTile.FOREST, i, 0);
+        }
+        List<String> messages = EventLog.drain();
+        assertEquals(3, messages.size());
+        assertEquals(EventUtility.getSetTileMessage(TerrainTile.FOREST, 2, 0), messages.get(0));
+        assertEquals(EventUtility.getSetTileMessage(TerrainTile.FOREST, 4, 0), messages.get(2));
+    }
+
+    @Test
+    void testRecordRectEvents() {
+        Terrain terrain = new Terrain("Chapter 1", 15, 10);
+        terrain.addUnit(new Unit(Faction.ENEMY, BattleClass.MAGE, 13, 8));
+        EventLog.startRecording(8);
+        terrain.fillRect(TerrainTile.WALL, -2, 3, 5, 4);
+        terrain.pasteRegion(terrain.copyRegion(0, 0, 4, 4), 12, 8, null);
+        terrain.clearUnitsInRect(10, 5, 10, 10);
+        List<String> messages = EventLog.drain();
+        assertEquals(3, messages.size());
+        assertEquals(EventUtility.getFillRectMessage(TerrainTile.WALL, 0, 3, 3, 4), messages.get(0));
+        assertEquals(EventUtility.getPasteRegionMessage(12, 8, 3, 2), messages.get(1));
+        assertEquals(EventUtility.getClearUnitsMessage(1, 10, 5, 5, 5), messages.get(2));
+    }
+
+    @Test
+    void testBattleClassChange() {
+        Unit unit = new Unit(Faction.ENEMY, BattleClass.MAGE, 3, 4);
+        EventLog.startRecording(4);
+        unit.setBattleClass(BattleClass.ARCHER);
+        unit.setFaction(Faction.ALLY);
+        List<String> messages = EventLog.drain();
+        assertEquals(2, messages.size());
+        assertEquals(EventUtility.getBattleClassChangeMessage(BattleClass.ARCHER, 3, 4), messages.get(0));
+        assertEquals(EventUtility.getFactionChangeMessage(Faction.ALLY, 3, 4), messages.get(1));
+    }
+
+    @Test
+    void testIllegalCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> EventLog.startRecording(0));
+        assertFalse(EventLog.isRecording());
+    }
+}
@@ -1,9 +1,10 @@
 package model;
 
+import org.json.JSONObject;
 import org.junit.jupiter.api.*;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -93,6 +94,28 @@ public class TestTerrain {
         }
     }
 
+    @Test
+    void testSecondConstructorCopiesTiles() {
+        TerrainTile[][] newTerrainTile = new TerrainTile[15][10];
+        setAllMountain(newTerrainTile);
+        Terrain constructed = new Terrain("Copy", newTerrainTile, new UnitList());
+        newTerrainTile[3][4] = TerrainTile.WATER;
+        assertEquals(TerrainTile.MOUNTAIN, constructed.getTileType(3, 4));
+        assertTrue(constructed.setTile(TerrainTile.CHEST, 14, 9));
+        assertEquals(TerrainTile.CHEST, constructed.getTileType(14, 9));
+        assertEquals(TerrainTile.MOUNTAIN, newTerrainTile[14][9]);
+    }
+
+    @Test
+    void testEqualsAfterResize() {
+        testTerrain1.setTile(TerrainTile.WALL, 14, 9);
+        testTerrain2.resize(15, 10);
+        testTerrain2.rename(testTerrain1.getName());
+        assertNotEquals(testTerrain1, testTerrain2);
+        testTerrain2.setTile(TerrainTile.WALL, 14, 9);
+        assertEquals(testTerrain1, testTerrain2);
+    }
+
     private static void setAllMountain(TerrainTile[][] newTerrainTile) {
         int width = newTerrainTile.length;
         int height = newTerrainTile[0].length;
@@ -280,11 +303,170 @@ public class TestTerrain {
         }
     }
 
+    @Test
+    void testResizeAnchoredSouthEast() {
+        testTerrain1.setTile(TerrainTile.THRONE, 0, 0);
+        testTerrain1.setTile(TerrainTile.GATE, 14, 9);
+        testTerrain1.addUnit(mars);
+        testTerrain1.resize(20, 12, Anchor.SOUTH_EAST);
+        assertEquals(TerrainTile.THRONE, testTerrain1.getTileType(5, 2));
+        assertEquals(TerrainTile.GATE, testTerrain1.getTileType(19, 11));
+        assertEquals(TerrainTile.PLAIN, testTerrain1.getTileType(0, 0));
+        assertEquals(1, testTerrain1.getTileCount(TerrainTile.THRONE));
+        assertEquals(10, mars.getX());
+        assertEquals(4, mars.getY());
+        assertEquals(mars, testTerrain1.getUnit(10, 4));
+        assertNull(testTerrain1.getUnit(5, 2));
+    }
+
+    @Test
+    void testResizeAnchoredCenterShrink() {
+        testTerrain2.setTile(TerrainTile.WALL, 0, 0);
+        testTerrain2.setTile(TerrainTile.CHEST, 10, 15);
+        testTerrain2.addUnit(new Unit(Faction.ENEMY, BattleClass.MAGE, 1, 1));
+        testTerrain2.addUnit(new Unit(Faction.ENEMY, BattleClass.MAGE, 10, 15));
+        testTerrain2.resize(16, 20, Anchor.CENTER);
+        assertEquals(0, testTerrain2.getTileCount(TerrainTile.WALL));
+        assertEquals(TerrainTile.CHEST, testTerrain2.getTileType(8, 10));
+        assertEquals(1, testTerrain2.getUnits().size());
+        assertNotNull(testTerrain2.getUnit(8, 10));
+    }
+
+    @Test
+    void testResizeWithOffsets() {
+        testTerrain1.setTile(TerrainTile.FOREST, 3, 4);
+        testTerrain1.addUnit(alm);
+        testTerrain1.resize(15, 10, -2, 3);
+        assertEquals(TerrainTile.FOREST, testTerrain1.getTileType(1, 7));
+        assertEquals(1, testTerrain1.getTileCount(TerrainTile.FOREST));
+        assertTrue(testTerrain1.getUnits().isEmpty());
+        Terrain expected = new Terrain(testTerrain1.getName(), 15, 10);
+        expected.setTile(TerrainTile.FOREST, 1, 7);
+        assertEquals(expected, testTerrain1);
+    }
+
+    @Test
+    void testAnchorOffsets() {
+        assertEquals(0, Anchor.NORTH_WEST.offsetX(15, 25));
+        assertEquals(5, Anchor.NORTH.offsetX(15, 25));
+        assertEquals(10, Anchor.EAST.offsetX(15, 25));
+        assertEquals(-5, Anchor.SOUTH.offsetY(20, 15));
+        assertEquals(-2, Anchor.CENTER.offsetY(20, 15));
+        assertEquals("South East", Anchor.SOUTH_EAST.toString());
+    }
+
+    @Test
+    void testFillRect() {
+        assertTrue(testTerrain2.fillRect(TerrainTile.WATER, 2, 3, 4, 5));
+        assertEquals(20, testTerrain2.getTileCount(TerrainTile.WATER));
+        assertEquals(TerrainTile.WATER, testTerrain2.getTileType(5, 7));
+        assertEquals(TerrainTile.PLAIN, testTerrain2.getTileType(6, 7));
+        Terrain expected = new Terrain(testTerrain2.getName(), 20, 30);
+        for (int i = 2; i < 6; i++) {
+            for (int j = 3; j < 8; j++) {
+                expected.setTile(TerrainTile.WATER, i, j);
+            }
+        }
+        assertEquals(expected.getFingerprint(), testTerrain2.getFingerprint());
+        assertEquals(expected, testTerrain2);
+    }
+
+    @Test
+    void testFillRectClipped() {
+        assertTrue(testTerrain1.fillRect(TerrainTile.WALL, 12, -5, 10, 8));
+        assertEquals(9, testTerrain1.getTileCount(TerrainTile.WALL));
+        assertEquals(TerrainTile.WALL, testTerrain1.getTileType(14, 2));
+        assertFalse(testTerrain1.fillRect(TerrainTile.WALL, 15, 0, 3, 3));
+        assertFalse(testTerrain1.fillRect(TerrainTile.WALL, 0, 0, 0, 3));
+        assertEquals(9, testTerrain1.getTileCount(TerrainTile.WALL));
+    }
+
+    @Test
+    void testCopyAndPasteRegion() {
+        testTerrain1.setTile(TerrainTile.CHEST, 1, 1);
+        testTerrain1.setTile(TerrainTile.GATE, 2, 3);
+        TileRegion region = testTerrain1.copyRegion(1, 1, 3, 3);
+        assertEquals(TerrainTile.CHEST, region.getTileType(0, 0));
+        assertEquals(TerrainTile.GATE, region.getTileType(1, 2));
+        assertTrue(testTerrain2.pasteRegion(region, 10, 20, null));
+        assertEquals(TerrainTile.CHEST, testTerrain2.getTileType(10, 20));
+        assertEquals(TerrainTile.GATE, testTerrain2.getTileType(11, 22));
+        assertEquals(1, testTerrain2.getTileCount(TerrainTile.GATE));
+        assertEquals(region, testTerrain2.copyRegion(10, 20, 3, 3));
+        assertThrows(IllegalArgumentException.class, () -> testTerrain1.copyRegion(13, 0, 3, 3));
+        assertThrows(IllegalArgumentException.class, () -> testTerrain1.copyRegion(0, 0, 0, 3));
+    }
+
+    @Test
+    void testPasteRegionTransparentAndClipped() {
+        testTerrain1.fillRect(TerrainTile.FOREST, 0, 0, 15, 10);
+        TileRegion region = new TileRegion(4, 4);
+        region.setTile(TerrainTile.THRONE, 3, 3);
+        region.setTile(TerrainTile.WATER, 2, 0);
+        assertTrue(testTerrain1.pasteRegion(region, 12, 7, TerrainTile.PLAIN));
+        assertEquals(TerrainTile.WATER, testTerrain1.getTileType(14, 7));
+        assertEquals(TerrainTile.FOREST, testTerrain1.getTileType(13, 7));
+        assertEquals(0, testTerrain1.getTileCount(TerrainTile.THRONE));
+        assertEquals(149, testTerrain1.getTileCount(TerrainTile.FOREST));
+        assertFalse(testTerrain1.pasteRegion(region, -4, 0, null));
+        Terrain expected = new Terrain(testTerrain1.getName(), 15, 10);
+        expected.fillRect(TerrainTile.FOREST, 0, 0, 15, 10);
+        expected.setTile(TerrainTile.WATER, 14, 7);
+        assertEquals(expected.getFingerprint(), testTerrain1.getFingerprint());
+    }
+
+    @Test
+    void testClearUnitsInRect() {
+        testTerrain1.addUnit(mars);
+        testTerrain1.addUnit(alm);
+        testTerrain1.addUnit(celica);
+        long fingerprint = testTerrain1.getFingerprint();
+        assertEquals(2, testTerrain1.clearUnitsInRect(5, 2, 3, 4));
+        assertEquals(1, testTerrain1.getUnits().size());
+        assertEquals(alm, testTerrain1.getUnit(6, 7));
+        assertNull(testTerrain1.getUnit(5, 2));
+        assertEquals(0, testTerrain1.clearUnitsInRect(-10, -10, 5, 5));
+        testTerrain1.addUnit(mars);
+        testTerrain1.addUnit(celica);
+        assertEquals(fingerprint, testTerrain1.getFingerprint());
+        testTerrain1.clearUnitsInRect(0, 0, 15, 10);
+        assertTrue(testTerrain1.getUnits().isEmpty());
+        assertEquals(new Terrain(testTerrain1.getName(), 15, 10).getFingerprint(), testTerrain1.getFingerprint());
+    }
+
+    @Test
+    void testToJsonRows() {
+        testTerrain1.fillRect(TerrainTile.WATER, 3, 0, 4, 1);
+        testTerrain1.setTile(TerrainTile.GATE, 14, 0);
+        testTerrain1.setTile(TerrainTile.THRONE, 0, 9);
+        JSONObject json = testTerrain1.toJson();
+        assertEquals(Terrain.JSON_VERSION, json.getInt("version"));
+        assertEquals(15, json.getInt("width"));
+        assertEquals(10, json.getJSONArray("rows").length());
+        assertEquals("P3W4P7G", json.getJSONArray("rows").getString(0));
+        assertEquals("P15", json.getJSONArray("rows").getString(1));
+        assertEquals("TP14", json.getJSONArray("rows").getString(9));
+        assertEquals(TerrainTile.WALL, json.getJSONObject("legend").get("X"));
+    }
+
     @Test
     void testIllegalResizes() {
         testIllegalResize(10, 5);
         testIllegalResize(5, 20);
         testIllegalResize(20, 5);
+        testIllegalResize(70000, 70000);
+    }
+
+    @Test
+    void testTooManyCells() {
+        assertThrows(IllegalArgumentException.class, () -> new Terrain("Huge", 70000, 70000, TileStorage.CHUNKED));
+        assertThrows(IllegalArgumentException.class, () -> new Terrain("Huge", 46341, 46341, TileStorage.CHUNKED));
+        Terrain largest = new Terrain("Largest", 46340, 46341, TileStorage.CHUNKED);
+        Unit corner = new Unit(Faction.ENEMY, BattleClass.SOLDIER, 0, 0);
+        assertTrue(largest.addUnit(corner));
+        assertNull(largest.getUnit(46339, 46340));
+        assertTrue(largest.addUnit(new Unit(Faction.ALLY, BattleClass.SOLDIER, 46339, 46340)));
+        assertEquals(corner, largest.getUnit(0, 0));
     }
 
     private void testIllegalResize(int width, int height) {
@@ -309,6 +491,23 @@ public class TestTerrain {
         assertEquals(alm, units.get(1));
     }
 
+    @Test
+    void testAddUnitOnAnotherTerrain() {
+        assertTrue(testTerrain1.addUnit(mars));
+        long fingerprint = testTerrain1.getFingerprint();
+        assertFalse(testTerrain2.addUnit(mars));
+        assertTrue(testTerrain2.getUnits().isEmpty());
+        mars.setFaction(Faction.ENEMY);
+        assertNotEquals(fingerprint, testTerrain1.getFingerprint());
+        assertTrue(testTerrain1.deleteUnit(mars.getX(), mars.getY()));
+        assertTrue(testTerrain2.addUnit(mars));
+        UnitList owned = new UnitList();
+        owned.add(mars);
+        TerrainTile[][] tiles = new TerrainTile[15][10];
+        setAllMountain(tiles);
+        assertThrows(IllegalArgumentException.class, () -> new Terrain("Thief", tiles, owned));
+    }
+
     @Test
     void testAddUnitBlocked() {
         assertTrue(testTerrain1.addUnit(mars));
@@ -387,6 +586,78 @@ public class TestTerrain {
         assertNull(testTerrain1.getUnit(mars.getX() + 1, mars.getY()));
     }
 
+    @Test
+    void testGetUnitAfterResize() {
+        testTerrain2.addUnit(mars);
+        testTerrain2.addUnit(celica);
+        testTerrain2.resize(17, 12);
+        assertEquals(mars, testTerrain2.getUnit(mars.getX(), mars.getY()));
+        assertEquals(celica, testTerrain2.getUnit(celica.getX(), celica.getY()));
+        assertNull(testTerrain2.getUnit(mars.getX(), mars.getY() + 1));
+        assertTrue(testTerrain2.deleteUnit(celica.getX(), celica.getY()));
+        assertNull(testTerrain2.getUnit(celica.getX(), celica.getY()));
+        assertTrue(testTerrain2.addUnit(new Unit(Faction.ENEMY, BattleClass.MAGE, 16, 11)));
+        assertFalse(testTerrain2.addUnit(new Unit(Faction.ENEMY, BattleClass.MAGE, 16, 11)));
+    }
+
+    @Test
+    void testUnitLookupOutOfBounds() {
+        testTerrain1.addUnit(new Unit(Faction.PLAYER, BattleClass.LORD, 1, 0));
+        assertNull(testTerrain1.getUnit(0, testTerrain1.getHeight()));
+        assertNull(testTerrain1.getUnit(-1, 0));
+        assertFalse(testTerrain1.deleteUnit(0, testTerrain1.getHeight()));
+        assertEquals(1, testTerrain1.getUnits().size());
+    }
+
+    @Test
+    void testSecondConstructorIndexesUnits() {
+        UnitList units = new UnitList();
+        units.add(mars);
+        units.add(alm);
+        TerrainTile[][] terrainTiles = new TerrainTile[15][10];
+        setAllMountain(terrainTiles);
+        Terrain constructed = new Terrain("Indexed", terrainTiles, units);
+        assertEquals(alm, constructed.getUnit(alm.getX(), alm.getY()));
+        assertFalse(constructed.addUnit(new Unit(Faction.ALLY, BattleClass.MAGE, mars.getX(), mars.getY())));
+    }
+
+    @Test
+    void testSecondConstructorInvalidUnits() {
+        UnitList overlapping = new UnitList();
+        overlapping.add(mars);
+        overlapping.add(new Unit(Faction.ENEMY, BattleClass.MAGE, mars.getX(), mars.getY()));
+        UnitList outOfBounds = new UnitList();
+        outOfBounds.add(new Unit(Faction.ENEMY, BattleClass.MAGE, 15, 0));
+        TerrainTile[][] terrainTiles = new TerrainTile[15][10];
+        setAllMountain(terrainTiles);
+        assertThrows(IllegalArgumentException.class, () -> new Terrain("Test", terrainTiles, overlapping));
+        assertThrows(IllegalArgumentException.class, () -> new Terrain("Test", terrainTiles, outOfBounds));
+    }
+
+    @Test
+    void testMoveUnit() {
+        testTerrain1.addUnit(mars);
+        testTerrain1.addUnit(alm);
+        assertTrue(testTerrain1.moveUnit(5, 2, 9, 9));
+        assertEquals(9, mars.getX());
+        assertEquals(9, mars.getY());
+        assertEquals(mars, testTerrain1.getUnit(9, 9));
+        assertNull(testTerrain1.getUnit(5, 2));
+        assertTrue(testTerrain1.addUnit(new Unit(Faction.ALLY, BattleClass.MAGE, 5, 2)));
+        assertTrue(testTerrain1.deleteUnit(9, 9));
+        assertEquals(alm, testTerrain1.getUnit(alm.getX(), alm.getY()));
+    }
+
+    @Test
+    void testMoveUnitBlocked() {
+        testTerrain1.addUnit(mars);
+        testTerrain1.addUnit(alm);
+        assertFalse(testTerrain1.moveUnit(5, 2, alm.getX(), alm.getY()));
+        assertFalse(testTerrain1.moveUnit(5, 2, testTerrain1.getWidth(), 0));
+        assertFalse(testTerrain1.moveUnit(0, 0, 1, 1));
+        assertEquals(mars, testTerrain1.getUnit(5, 2));
+    }
+
     @Test
     void testAddUnitOutOfBounds() {
         Unit u1 = new Unit(Faction.PLAYER, BattleClass.CAVALIER, -1, 5);
@@ -408,6 +679,58 @@ public class TestTerrain {
 
     }
 
+    @Test
+    void testTileCountsInitial() {
+        assertEquals(150, testTerrain1.getTileCount(TerrainTile.PLAIN));
+        assertEquals(0, testTerrain1.getTileCount(TerrainTile.THRONE));
+        assertEquals(TerrainTile.values().length, testTerrain1.getTileCounts().size());
+    }
+
+    @Test
+    void testTileCountsAfterEdits() {
+        modifyTiles();
+        assertEquals(7, testTerrain1.getTileCount(TerrainTile.WATER));
+        assertEquals(143, testTerrain1.getTileCount(TerrainTile.PLAIN));
+        assertFalse(testTerrain1.setTile(TerrainTile.WATER, 0, 3));
+        assertFalse(testTerrain1.setTile(TerrainTile.THRONE, -1, 3));
+        assertTrue(testTerrain1.setTile(TerrainTile.THRONE, 0, 3));
+        assertEquals(6, testTerrain1.getTileCount(TerrainTile.WATER));
+        assertEquals(1, testTerrain1.getTileCount(TerrainTile.THRONE));
+        assertEquals(1, (int) testTerrain1.getTileCounts().get(TerrainTile.THRONE));
+    }
+
+    @Test
+    void testTileCountsAfterResize() {
+        testTerrain2.setTile(TerrainTile.CHEST, 18, 4);
+        testTerrain2.setTile(TerrainTile.CHEST, 10, 5);
+        testTerrain2.resize(15, 10);
+        assertEquals(1, testTerrain2.getTileCount(TerrainTile.CHEST));
+        assertEquals(149, testTerrain2.getTileCount(TerrainTile.PLAIN));
+        testTerrain2.resize(30, 20);
+        assertEquals(599, testTerrain2.getTileCount(TerrainTile.PLAIN));
+    }
+
+    @Test
+    void testTileCountsLargestMap() {
+        Terrain largest = new Terrain("Largest", 46340, 46341, TileStorage.CHUNKED);
+        assertEquals(46340 * 46341, largest.getTileCount(TerrainTile.PLAIN));
+        largest.setTile(TerrainTile.WATER, 46339, 46340);
+        assertEquals(46340 * 46341 - 1, largest.getTileCount(TerrainTile.PLAIN));
+        assertEquals(1, largest.getTileCount(TerrainTile.WATER));
+        assertThrows(IllegalArgumentException.class, () -> new TileRegion(70000, 70000));
+    }
+
+    @Test
+    void testTileCountsSecondConstructor() {
+        TerrainTile[][] terrainTiles = new TerrainTile[15][10];
+        setAllMountain(terrainTiles);
+        terrainTiles[0][0] = TerrainTile.THRONE;
+        Terrain constructed = new Terrain("Counted", terrainTiles, new UnitList());
+        assertEquals(149, constructed.getTileCount(TerrainTile.MOUNTAIN));
+        assertEquals(1, constructed.getTileCount(TerrainTile.THRONE));
+        assertEquals(0, constructed.getTileCount(TerrainTile.PLAIN));
+    }
+
     @Test
     void testEqualsSameObject() {
         assertEquals(testTerrain1, testTerrain1);
@@ -423,6 +746,33 @@ public class TestTerrain {
         assertEquals(testTerrain1, testTerrain2);
     }
 
+    @Test
+    void testEqualsAfterDeleteUnit() {
+        setTerrainsEqual();
+        for (int x = 0; x < 3; x++) {
+            testTerrain1.addUnit(new Unit(Faction.ENEMY, BattleClass.SOLDIER, x, 0));
+        }
+        testTerrain2.addUnit(new Unit(Faction.ENEMY, BattleClass.SOLDIER, 1, 0));
+        testTerrain2.addUnit(new Unit(Faction.ENEMY, BattleClass.SOLDIER, 2, 0));
+        assertTrue(testTerrain1.deleteUnit(0, 0));
+        assertEquals(testTerrain2, testTerrain1);
+        assertEquals(1, testTerrain1.getUnit(1, 0).getX());
+        assertEquals(2, testTerrain1.getUnit(2, 0).getX());
+        assertEquals(testTerrain2.hashCode(), testTerrain1.hashCode());
+    }
+
+    @Test
+    void testEqualsIgnoresUnitOrder() {
+        setTerrainsEqual();
+        testTerrain1.addUnit(mars);
+        testTerrain1.addUnit(alm);
+        testTerrain2.addUnit(new Unit(alm.getFaction(), alm.getBattleClass(), alm.getX(), alm.getY()));
+        testTerrain2.addUnit(new Unit(mars.getFaction(), mars.getBattleClass(), mars.getX(), mars.getY()));
+        assertEquals(testTerrain1, testTerrain2);
+        testTerrain2.getUnit(alm.getX(), alm.getY()).setFaction(Faction.ALLY);
+        assertNotEquals(testTerrain1, testTerrain2);
+    }
+
     @Test
     void testEqualsNonIdenticalObjectTypes() {
         assertNotEquals(testTerrain1, null);
@@ -449,7 +799,144 @@ public class TestTerrain {
 
     @Test
     void testHashCode() {
-        assertEquals(Objects.hash(testTerrain1.getName()), testTerrain1.hashCode());
+        assertEquals(Long.hashCode(testTerrain1.getFingerprint()), testTerrain1.hashCode());
+        setTerrainsEqual();
+        testTerrain1.addUnit(mars);
+        testTerrain2.addUnit(new Unit(mars.getFaction(), mars.getBattleClass(), mars.getX(), mars.getY()));
+        assertEquals(testTerrain1.hashCode(), testTerrain2.hashCode());
+    }
+
+    @Test
+    void testFingerprintIndependentOfEditOrder() {
+        setTerrainsEqual();
+        testTerrain1.setTile(TerrainTile.WATER, 1, 1);
+        testTerrain1.setTile(TerrainTile.FOREST, 2, 2);
+        testTerrain2.setTile(TerrainTile.FOREST, 2, 2);
+        testTerrain2.setTile(TerrainTile.MOUNTAIN, 1, 1);
+        assertNotEquals(testTerrain1.getFingerprint(), testTerrain2.getFingerprint());
+        testTerrain2.setTile(TerrainTile.WATER, 1, 1);
+        assertEquals(testTerrain1.getFingerprint(), testTerrain2.getFingerprint());
+        assertEquals(testTerrain1, testTerrain2);
+    }
+
+    @Test
+    void testFingerprintRevertsAfterUndo() {
+        long initial = testTerrain1.getFingerprint();
+        testTerrain1.setTile(TerrainTile.WALL, 3, 3);
+        testTerrain1.addUnit(mars);
+        testTerrain1.rename("Elsewhere");
+        assertNotEquals(initial, testTerrain1.getFingerprint());
+        testTerrain1.rename("Chapter 1");
+        testTerrain1.deleteUnit(mars.getX(), mars.getY());
+        testTerrain1.setTile(TerrainTile.PLAIN, 3, 3);
+        assertEquals(initial, testTerrain1.getFingerprint());
+    }
+
+    @Test
+    void testFingerprintTracksUnitEdits() {
+        testTerrain1.addUnit(mars);
+        long withThief = testTerrain1.getFingerprint();
+        mars.setBattleClass(BattleClass.MAGE);
+        assertNotEquals(withThief, testTerrain1.getFingerprint());
+        mars.setFaction(Faction.ENEMY);
+        mars.setFaction(Faction.PLAYER);
+        mars.setBattleClass(BattleClass.THIEF);
+        assertEquals(withThief, testTerrain1.getFingerprint());
+        assertTrue(testTerrain1.moveUnit(mars.getX(), mars.getY(), 0, 0));
+        assertNotEquals(withThief, testTerrain1.getFingerprint());
+        testTerrain1.deleteUnit(0, 0);
+        long withoutUnit = testTerrain1.getFingerprint();
+        mars.setFaction(Faction.ALLY);
+        assertEquals(withoutUnit, testTerrain1.getFingerprint());
+    }
+
+    @Test
+    void testFingerprintAfterResize() {
+        Terrain grown = new Terrain(testTerrain1.getName(), 20, 12);
+        testTerrain1.setTile(TerrainTile.GATE, 2, 2);
+        grown.setTile(TerrainTile.GATE, 2, 2);
+        testTerrain1.addUnit(mars);
+        grown.addUnit(new Unit(mars.getFaction(), mars.getBattleClass(), mars.getX(), mars.getY()));
+        testTerrain1.resize(20, 12);
+        assertEquals(grown.getFingerprint(), testTerrain1.getFingerprint());
+        assertEquals(grown, testTerrain1);
     }
 
-}
\ No newline at end of file
+    @Test
+    void testCopyIsIndependent() {
+        testTerrain1.setTile(TerrainTile.WALL, 1, 1);
+        testTerrain1.addUnit(mars);
+        Terrain copy = new Terrain(testTerrain1);
+        assertEquals(testTerrain1, copy);
+        assertEquals(testTerrain1.getFingerprint(), copy.getFingerprint());
+        copy.setTile(TerrainTile.WATER, 1, 1);
+        copy.getUnit(5, 2).setFaction(Faction.ENEMY);
+        assertEquals(TerrainTile.WALL, testTerrain1.getTileType(1, 1));
+        assertEquals(Faction.PLAYER, mars.getFaction());
+        assertEquals(1, testTerrain1.getTileCount(TerrainTile.WALL));
+        assertEquals(0, copy.getTileCount(TerrainTile.WALL));
+    }
+
+    @Test
+    void testCopySharesTilesUntilWritten() {
+        testTerrain1.setTile(TerrainTile.WALL, 1, 1);
+        Terrain copy = new Terrain(testTerrain1);
+        testTerrain1.setTile(TerrainTile.FOREST, 2, 2);
+        testTerrain1.fillRect(TerrainTile.WATER, 0, 0, 2, 2);
+        assertEquals(TerrainTile.WALL, copy.getTileType(1, 1));
+        assertEquals(TerrainTile.PLAIN, copy.getTileType(2, 2));
+        Terrain second = new Terrain(testTerrain1);
+        testTerrain1.rename("Renamed");
+        copy.setTile(TerrainTile.GATE, 3, 3);
+        assertEquals(TerrainTile.PLAIN, testTerrain1.getTileType(3, 3));
+        assertEquals(TerrainTile.PLAIN, second.getTileType(3, 3));
+        assertEquals(TerrainTile.WATER, second.getTileType(1, 1));
+        assertNotEquals(testTerrain1.getName(), second.getName());
+    }
+
+    @Test
+    void testGetUnitsInRect() {
+        Unit first = new Unit(Faction.ENEMY, BattleClass.MAGE, 1, 1);
+        Unit last = new Unit(Faction.ALLY, BattleClass.LORD, 14, 9);
+        testTerrain1.addUnit(last);
+        testTerrain1.addUnit(mars);
+        testTerrain1.addUnit(first);
+        assertEquals(List.of(first, mars), testTerrain1.getUnitsInRect(0, 0, 6, 3));
+        assertEquals(List.of(mars), testTerrain1.getUnitsInRect(5, 2, 1, 1));
+        assertEquals(List.of(first, mars, last), testTerrain1.getUnitsInRect(-5, -5, 100, 100));
+        assertEquals(List.of(last), testTerrain1.getUnitsInRect(14, 9, 5, 5));
+        assertTrue(testTerrain1.getUnitsInRect(2, 2, 2, 2).isEmpty());
+        assertTrue(testTerrain1.getUnitsInRect(20, 0, 3, 3).isEmpty());
+    }
+
+    @Test
+    void testListenerSeesEdits() {
+        List<String> edits = new ArrayList<>();
+        TerrainListener listener = new TerrainListener() {
+            @Override
+            public void tilesChanged(Terrain terrain, int x, int y, int width, int height) {
+                edits.add("tiles " + x + "," + y + " " + width + "x" + height);
+            }
+
+            @Override
+            public void unitMoved(Terrain terrain, Unit unit, int fromX, int fromY) {
+                edits.add("moved " + fromX + "," + fromY + " to " + unit.getX() + "," + unit.getY());
+            }
+
+            @Override
+            public void unitRemoved(Terrain terrain, Unit unit) {
+                edits.add("removed " + unit.getX() + "," + unit.getY());
+            }
+        };
+        testTerrain1.addListener(listener);
+        testTerrain1.setTile(TerrainTile.WALL, 1, 1);
+        testTerrain1.setTile(TerrainTile.WALL, 1, 1);
+        testTerrain1.fillRect(TerrainTile.WATER, 12, 8, 10, 10);
+        testTerrain1.addUnit(mars);
+        testTerrain1.moveUnit(5, 2, 6, 3);
+        testTerrain1.clearUnitsInRect(0, 0, 15, 10);
+        testTerrain1.removeListener(listener);
+        testTerrain1.setTile(TerrainTile.GATE, 2, 2);
+        assertEquals(List.of("tiles 1,1 1x1", "tiles 12,8 3x2", "moved 5,2 to 6,3", "removed 6,3"), edits);
+    }
+}
@@ -0,0 +1,85 @@
+package model;
+
+import org.junit.jupiter.api.*;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Tests building a Terrain one tile at a time
+public class TestTerrainBuilder {
+
+    TerrainBuilder builder;
+
+    @BeforeEach
+    void setup() {
+        builder = new TerrainBuilder().setName("Built");
+    }
+
+    private void addColumns(int width, int height) {
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                builder.addTile(i == j ? TerrainTile.FOREST : TerrainTile.PLAIN);
+            }
+            builder.endColumn();
+        }
+    }
+
+    @Test
+    void testBuild() {
+        addColumns(20, 12);
+        builder.addUnit(new Unit(Faction.ALLY, BattleClass.MAGE, 19, 11));
+        Terrain terrain = builder.build();
+        Terrain expected = new Terrain("Built", 20, 12);
+        for (int i = 0; i < 12; i++) {
+            expected.setTile(TerrainTile.FOREST, i, i);
+        }
+        expected.addUnit(new Unit(Faction.ALLY, BattleClass.MAGE, 19, 11));
+        assertEquals(expected, terrain);
+        assertEquals(12, terrain.getTileCount(TerrainTile.FOREST));
+        assertEquals(TileStorage.FLAT, terrain.getStorage());
+    }
+
+    @Test
+    void testUnevenColumns() {
+        addColumns(2, 12);
+        builder.addTile(TerrainTile.PLAIN);
+        assertThrows(IllegalArgumentException.class, () -> builder.endColumn());
+    }
+
+    @Test
+    void testInvalidTerrain() {
+        addColumns(14, 12);
+        assertThrows(IllegalArgumentException.class, () -> builder.build());
+        TerrainBuilder unnamed = new TerrainBuilder();
+        assertThrows(IllegalArgumentException.class, () -> unnamed.build());
+        TerrainBuilder unfinished = new TerrainBuilder().setName("Unfinished").addTile(TerrainTile.WALL);
+        assertThrows(IllegalArgumentException.class, () -> unfinished.build());
+    }
+
+    @Test
+    void testSetSizeTooManyCells() {
+        assertThrows(IllegalArgumentException.class, () -> builder.setSize(70000, 70000));
+    }
+
+    @Test
+    void testUnitOutOfBounds() {
+        addColumns(15, 10);
+        builder.addUnit(new Unit(Faction.ALLY, BattleClass.MAGE, 15, 0));
+        assertThrows(IllegalArgumentException.class, () -> builder.build());
+    }
+
+    @Test
+    void testAddTiles() {
+        byte[] column = new byte[10];
+        column[9] = (byte) TerrainTile.GATE.ordinal();
+        for (int i = 0; i < 15; i++) {
+            builder.addTiles(ByteBuffer.wrap(column), 10).endColumn();
+        }
+        Terrain terrain = builder.build();
+        assertEquals(15, terrain.getTileCount(TerrainTile.GATE));
+        assertEquals(TerrainTile.GATE, terrain.getTileType(14, 9));
+        column[0] = (byte) TerrainTile.values().length;
+        assertThrows(IllegalArgumentException.class, () -> new TerrainBuilder().addTiles(ByteBuffer.wrap(column), 10));
+    }
+}
@@ -70,6 +70,22 @@ public class TestUnit {
         assertEquals(BattleClass.PEGASUS_KNIGHT, allyUnit.getBattleClass());
     }
 
+    @Test
+    void testMoveTo() {
+        allyUnit.moveTo(2, 9);
+        assertEquals(2, allyUnit.getX());
+        assertEquals(9, allyUnit.getY());
+        assertEquals(new Unit(Faction.ALLY, BattleClass.CAVALIER, 2, 9), allyUnit);
+    }
+
+    @Test
+    void testJsonShape() {
+        assertEquals(1, enemyUnit.toJson().getInt("x"));
+        assertEquals(2, enemyUnit.toJson().getInt("y"));
+        assertEquals(Faction.ENEMY, enemyUnit.toJson().get("faction"));
+        assertEquals(BattleClass.SOLDIER, enemyUnit.toJson().get("class"));
+    }
+
     @Test
     void testEqualsBothEqualUnits() {
         assertEquals(playerUnit,
@@ -106,6 +122,10 @@ public class TestUnit {
                         new Point(playerUnit.getX(),
                                 playerUnit.getY())),
                 playerUnit.hashCode());
+        assertEquals(Objects.hash(allyUnit.getFaction(),
+                        allyUnit.getBattleClass(),
+                        new Point(allyUnit.getX(), allyUnit.getY())),
+                allyUnit.hashCode());
     }
 
 }
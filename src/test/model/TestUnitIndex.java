@@ -0,0 +1,78 @@
+package model;
+
+import org.junit.jupiter.api.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Tests the open-addressing unit index used by Terrain
+public class TestUnitIndex {
+
+    UnitIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = new UnitIndex();
+    }
+
+    @Test
+    void testPutAndGet() {
+        index.put(52, 0);
+        index.put(67, 1);
+        assertEquals(2, index.size());
+        assertEquals(0, index.get(52));
+        assertEquals(1, index.get(67));
+        assertEquals(UnitIndex.EMPTY, index.get(53));
+        assertTrue(index.contains(67));
+        assertFalse(index.contains(0));
+    }
+
+    @Test
+    void testPutReplaces() {
+        index.put(52, 0);
+        index.put(52, 4);
+        assertEquals(1, index.size());
+        assertEquals(4, index.get(52));
+    }
+
+    @Test
+    void testRemove() {
+        index.put(52, 3);
+        assertEquals(3, index.remove(52));
+        assertEquals(UnitIndex.EMPTY, index.remove(52));
+        assertEquals(0, index.size());
+        assertFalse(index.contains(52));
+    }
+
+    @Test
+    void testClear() {
+        index.put(1, 0);
+        index.put(2, 1);
+        index.clear();
+        assertEquals(0, index.size());
+        assertEquals(UnitIndex.EMPTY, index.get(1));
+    }
+
+    @Test
+    void testManyKeysMatchHashMap() {
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(210);
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(5000);
+            if (random.nextBoolean()) {
+                index.put(key, i);
+                expected.put(key, i);
+            } else {
+                assertEquals((int) expected.getOrDefault(key, UnitIndex.EMPTY), index.remove(key));
+                expected.remove(key);
+            }
+        }
+        assertEquals(expected.size(), index.size());
+        for (int key = 0; key < 5000; key++) {
+            assertEquals((int) expected.getOrDefault(key, UnitIndex.EMPTY), index.get(key));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package model;
+
+import org.json.JSONArray;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Tests the array-backed UnitList
+public class TestUnitList {
+
+    UnitList units;
+    Unit mars;
+    Unit alm;
+    Unit celica;
+
+    @BeforeEach
+    void setup() {
+        units = new UnitList();
+        mars = new Unit(Faction.PLAYER, BattleClass.THIEF, 5, 2);
+        alm = new Unit(Faction.ENEMY, BattleClass.LORD, 6, 7);
+        celica = new Unit(Faction.ALLY, BattleClass.CAVALIER, 7, 5);
+        units.add(mars);
+        units.add(alm);
+        units.add(celica);
+    }
+
+    @Test
+    void testAddAndGet() {
+        assertEquals(3, units.size());
+        assertEquals(mars, units.get(0));
+        assertEquals(alm, units.get(1));
+        assertEquals(celica, units.get(2));
+        units.add(1, celica);
+        assertEquals(4, units.size());
+        assertEquals(celica, units.get(1));
+        assertEquals(alm, units.get(2));
+    }
+
+    @Test
+    void testGetOutOfBounds() {
+        assertThrows(IndexOutOfBoundsException.class, () -> units.get(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> units.get(-1));
+    }
+
+    @Test
+    void testRemoveKeepsOrder() {
+        assertEquals(mars, units.remove(0));
+        assertEquals(2, units.size());
+        assertEquals(alm, units.get(0));
+        assertEquals(celica, units.get(1));
+        assertTrue(units.remove(celica));
+        assertEquals(1, units.size());
+    }
+
+    @Test
+    void testSwapRemove() {
+        assertEquals(mars, units.swapRemove(0));
+        assertEquals(2, units.size());
+        assertEquals(celica, units.get(0));
+        assertEquals(alm, units.get(1));
+        assertEquals(alm, units.swapRemove(1));
+        assertEquals(1, units.size());
+        assertEquals(celica, units.get(0));
+    }
+
+    @Test
+    void testRemoveIf() {
+        assertTrue(units.removeIf(unit -> unit.getX() >= 6));
+        assertEquals(1, units.size());
+        assertEquals(mars, units.get(0));
+        assertFalse(units.removeIf(unit -> unit.getX() >= 6));
+    }
+
+    @Test
+    void testManyUnits() {
+        units.clear();
+        for (int i = 0; i < 100000; i++) {
+            units.add(new Unit(Faction.ENEMY, BattleClass.SOLDIER, i % 1000, i / 1000));
+        }
+        assertEquals(100000, units.size());
+        units.removeIf(unit -> unit.getY() % 2 == 0);
+        assertEquals(50000, units.size());
+        assertEquals(1, units.get(0).getY());
+    }
+
+    @Test
+    void testEqualsAndJson() {
+        UnitList other = new UnitList();
+        other.add(mars);
+        other.add(alm);
+        other.add(celica);
+        assertEquals(units, other);
+        JSONArray json = units.toJson();
+        assertEquals(3, json.length());
+        assertEquals(5, json.getJSONObject(0).getInt("x"));
+    }
+}
@@ -0,0 +1,108 @@
+package persistence;
+
+import model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Tests writing and reading the binary map format
+public class BinaryReaderTest {
+
+    private Path file;
+    private Terrain terrain;
+
+    @BeforeEach
+    void setup() throws IOException {
+        file = Files.createTempFile("binaryReaderTest", ".tmap");
+        terrain = new Terrain("Bin\u00e4ry Map", 300, 200);
+        terrain.fillRect(TerrainTile.WATER, 10, 20, 100, 50);
+        terrain.setTile(TerrainTile.THRONE, 299, 199);
+        terrain.addUnit(new Unit(Faction.ENEMY, BattleClass.ARCHER, 299, 199));
+        terrain.addUnit(new Unit(Faction.ALLY, BattleClass.MAGE, 3, 150));
+    }
+
+    @AfterEach
+    void teardown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        new BinaryWriter(file.toString()).write(terrain);
+        Terrain read = new BinaryReader(file.toString()).readTerrain();
+        assertEquals(terrain, read);
+        assertEquals(terrain.getFingerprint(), read.getFingerprint());
+        assertEquals(5000, read.getTileCount(TerrainTile.WATER));
+        assertTrue(Files.size(file) < 300 * 200 + 100);
+    }
+
+    @Test
+    void testSaveOverJustReadFile() throws IOException {
+        new BinaryWriter(file.toString()).write(terrain);
+        Terrain read = new BinaryReader(file.toString()).readTerrain();
+        read.setTile(TerrainTile.WALL, 0, 0);
+        new BinaryWriter(file.toString()).write(read);
+        assertEquals(read, new BinaryReader(file.toString()).readTerrain());
+    }
+
+    @Test
+    void testDetectFormat() throws IOException {
+        MapFormat.BINARY.write(terrain, file.toString());
+        assertEquals(MapFormat.BINARY, MapFormat.detect(file.toString()));
+        assertEquals(terrain, MapFormat.readTerrain(file.toString()));
+        assertEquals(MapFormat.JSON, MapFormat.detect("./data/mapSaves/ConvoyAmbush.json"));
+        assertEquals(MapFormat.BINARY, MapFormat.fromFileName("maps/Big.TMAP"));
+        assertEquals(MapFormat.JSON, MapFormat.fromFileName("Small.json"));
+        assertNull(MapFormat.fromFileName("notes.txt"));
+    }
+
+    @Test
+    void testInterruptedWriteLeavesFileUntouched() throws IOException {
+        MapFormat.BINARY.write(terrain, file.toString());
+        byte[] before = Files.readAllBytes(file);
+        Terrain edited = new Terrain(terrain);
+        edited.setTile(TerrainTile.WALL, 0, 0);
+        for (MapFormat format : MapFormat.values()) {
+            Thread.currentThread().interrupt();
+            try {
+                format.write(edited, file.toString());
+                fail("InterruptedIOException expected");
+            } catch (InterruptedIOException e) {
+                // expected
+            } finally {
+                Thread.interrupted();
+            }
+            assertArrayEquals(before, Files.readAllBytes(file));
+        }
+        try (Stream<Path> siblings = Files.list(file.getParent())) {
+            assertEquals(1, siblings.filter(p -> p.getFileName().toString()
+                    .contains(file.getFileName().toString())).count());
+        }
+    }
+
+    @Test
+    void testCorruptFile() throws IOException {
+        new BinaryWriter(file.toString()).write(terrain);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        assertThrows(IOException.class, () -> BinaryReader.parseTerrain(ByteBuffer.wrap(bytes)));
+        byte[] truncated = new byte[bytes.length / 2];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        assertThrows(IOException.class, () -> BinaryReader.parseTerrain(ByteBuffer.wrap(truncated)));
+        assertThrows(IOException.class, () -> BinaryReader.parseTerrain(ByteBuffer.wrap(new byte[64])));
+    }
+
+    @Test
+    void testReaderNonExistentFile() {
+        assertThrows(IOException.class, () -> new BinaryReader("./data/nonexistentFile.tmap").readTerrain());
+    }
+}
@@ -0,0 +1,146 @@
+package persistence;
+
+import model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Tests recording edits to a journal and replaying them
+public class EditJournalTest {
+
+    private Path directory;
+    private String base;
+    private Path journalFile;
+    private Terrain terrain;
+
+    @BeforeEach
+    void setup() throws IOException {
+        directory = Files.createTempDirectory("editJournalTest");
+        base = directory.resolve("map.tmap").toString();
+        journalFile = directory.resolve("map.tmap" + EditJournal.EXTENSION);
+        terrain = new Terrain("Journal Map", 40, 30);
+        terrain.addUnit(new Unit(Faction.ENEMY, BattleClass.ARCHER, 5, 5));
+        MapFormat.BINARY.write(terrain, base);
+    }
+
+    @AfterEach
+    void teardown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    void testReplayEdits() throws IOException {
+        EditJournal journal = EditJournal.open(terrain, base, MapFormat.BINARY);
+        assertEquals(0, journal.getReplayedCount());
+        makeEdits();
+        journal.close();
+
+        Terrain reopened = MapFormat.readTerrain(base);
+        assertNotEquals(terrain, reopened);
+        EditJournal replayed = EditJournal.open(reopened, base, MapFormat.BINARY);
+        assertEquals(terrain, reopened);
+        assertEquals(terrain.getFingerprint(), reopened.getFingerprint());
+        assertEquals(10, replayed.getReplayedCount());
+
+        reopened.setTile(TerrainTile.GATE, 0, 0);
+        replayed.close();
+        Terrain again = MapFormat.readTerrain(base);
+        EditJournal.open(again, base, MapFormat.BINARY).close();
+        assertEquals(reopened, again);
+    }
+
+    @Test
+    void testTornTailIsDropped() throws IOException {
+        EditJournal journal = EditJournal.open(terrain, base, MapFormat.BINARY);
+        makeEdits();
+        journal.flush();
+        long intact = journal.getSize();
+        terrain.setTile(TerrainTile.CHEST, 1, 1);
+        journal.close();
+        byte[] bytes = Files.readAllBytes(journalFile);
+        Files.write(journalFile, Arrays.copyOf(bytes, bytes.length - 2));
+
+        Terrain reopened = MapFormat.readTerrain(base);
+        EditJournal replayed = EditJournal.open(reopened, base, MapFormat.BINARY);
+        replayed.close();
+        assertEquals(intact, Files.size(journalFile));
+        assertEquals(TerrainTile.PLAIN, reopened.getTileType(1, 1));
+        terrain.setTile(TerrainTile.PLAIN, 1, 1);
+        assertEquals(terrain, reopened);
+    }
+
+    @Test
+    void testStaleJournalIsReplaced() throws IOException {
+        EditJournal journal = EditJournal.open(terrain, base, MapFormat.BINARY);
+        makeEdits();
+        journal.close();
+        Terrain other = new Terrain("Other Map", 20, 15);
+        MapFormat.BINARY.write(other, base);
+
+        Terrain reopened = MapFormat.readTerrain(base);
+        EditJournal replayed = EditJournal.open(reopened, base, MapFormat.BINARY);
+        replayed.close();
+        assertEquals(0, replayed.getReplayedCount());
+        assertEquals(other, reopened);
+        assertEquals(EditJournal.HEADER_SIZE, Files.size(journalFile));
+    }
+
+    @Test
+    void testGarbageJournalIsReplaced() throws IOException {
+        Files.write(journalFile, new byte[] {1, 2, 3}, StandardOpenOption.CREATE);
+        EditJournal journal = EditJournal.open(terrain, base, MapFormat.BINARY);
+        journal.close();
+        assertEquals(0, journal.getReplayedCount());
+        assertEquals(EditJournal.HEADER_SIZE, Files.size(journalFile));
+    }
+
+    @Test
+    void testCompaction() throws IOException {
+        long original = terrain.getFingerprint();
+        EditJournal journal = EditJournal.open(terrain, base, MapFormat.BINARY, 256);
+        for (int i = 0; i < 40; i++) {
+            terrain.setTile(TerrainTile.values()[i % TerrainTile.values().length], i, i % 30);
+            journal.flush();
+        }
+        terrain.rename("Compacted Map");
+        journal.close();
+        assertTrue(Files.size(journalFile) < 400);
+        assertNotEquals(original, MapFormat.readTerrain(base).getFingerprint());
+
+        Terrain reopened = MapFormat.readTerrain(base);
+        EditJournal.open(reopened, base, MapFormat.BINARY).close();
+        assertEquals(terrain, reopened);
+    }
+
+    /**
+     * Makes one of each kind of edit to the terrain.
+     */
+    private void makeEdits() {
+        terrain.setTile(TerrainTile.WATER, 3, 4);
+        terrain.fillRect(TerrainTile.FOREST, 10, 10, 8, 6);
+        TileRegion region = new TileRegion(3, 2);
+        region.setTile(TerrainTile.THRONE, 1, 1);
+        terrain.pasteRegion(region, 20, 20, null);
+        terrain.addUnit(new Unit(Faction.PLAYER, BattleClass.LORD, 11, 11));
+        terrain.moveUnit(11, 11, 12, 13);
+        terrain.getUnit(12, 13).setBattleClass(BattleClass.MAGE);
+        terrain.addUnit(new Unit(Faction.ALLY, BattleClass.MAGE, 2, 2));
+        terrain.deleteUnit(5, 5);
+        terrain.rename("Edited Map");
+        terrain.resize(45, 35, Anchor.CENTER);
+    }
+}
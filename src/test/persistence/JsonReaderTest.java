@@ -2,9 +2,15 @@ package persistence;
 
 
 import model.*;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -32,9 +38,141 @@ public class JsonReaderTest {
             assertEquals("Convoy Ambush", testMap.getName());
             assertEquals(10, testMap.getUnits().size());
             assertEquals(TerrainTile.WATER, testMap.getTileType(10, 4));
+            int total = 0;
+            for (TerrainTile tile : TerrainTile.values()) {
+                total += testMap.getTileCount(tile);
+            }
+            assertEquals(testMap.getWidth() * testMap.getHeight(), total);
         } catch (IOException e) {
             fail("Unexpected Exception thrown");
         }
     }
 
+    @Test
+    void testReaderReportsProgress() throws IOException {
+        String path = "./data/mapSaves/ConvoyAmbush.json";
+        long[] last = new long[2];
+        Terrain terrain = MapFormat.readTerrain(path, (done, total) -> {
+            assertTrue(done >= last[0]);
+            last[0] = done;
+            last[1] = total;
+        });
+        assertEquals(new JsonReader(path).readTerrain(), terrain);
+        assertEquals(Files.size(Paths.get(path)), last[0]);
+        assertEquals(last[0], last[1]);
+    }
+
+    @Test
+    void testStreamingMatchesJsonObject() throws IOException {
+        String[] saves = {"ConvoyAmbush", "ExampleMap", "ExampleMapVeryCool", "GeneaologyMap"};
+        for (String save : saves) {
+            String path = "./data/mapSaves/" + save + ".json";
+            JSONObject json = new JSONObject(new String(Files.readAllBytes(Paths.get(path))));
+            Terrain streamed = new JsonReader(path).readTerrain();
+            assertEquals(fromJsonObject(json), streamed);
+        }
+    }
+
+    @Test
+    void testParseTerrainFromReader() throws IOException {
+        StringBuilder columns = new StringBuilder();
+        for (int i = 0; i < 15; i++) {
+            columns.append(i == 0 ? "" : ",").append("[");
+            for (int j = 0; j < 10; j++) {
+                columns.append(j == 0 ? "" : ", ").append("{\"terrain\": \"").append(i == j ? "WALL" : "PLAIN")
+                        .append("\"}");
+            }
+            columns.append("]");
+        }
+        String json = "{\"units\": [{\"faction\": \"PLAYER\", \"class\": \"LORD\", \"x\": \"10\", \"y\": 5, "
+                + "\"extra\": [1, {\"a\": null}]}], \"terrainFull\": [" + columns + "], "
+                + "\"name\": \"Pro\\\"logue\\u0021\", \"scale\": 1.5}";
+        Terrain terrain = JsonReader.parseTerrain(new StringReader(json));
+        assertEquals("Pro\"logue!", terrain.getName());
+        assertEquals(15, terrain.getWidth());
+        assertEquals(10, terrain.getHeight());
+        assertEquals(10, terrain.getTileCount(TerrainTile.WALL));
+        assertEquals(TerrainTile.WALL, terrain.getTileType(9, 9));
+        assertEquals(BattleClass.LORD, terrain.getUnit(10, 5).getBattleClass());
+    }
+
+    @Test
+    void testParseTerrainMalformed() {
+        assertThrows(JSONException.class, () -> JsonReader.parseTerrain(new StringReader("{\"name\": \"A\"")));
+        assertThrows(JSONException.class, () -> JsonReader.parseTerrain(new StringReader("{\"name\" \"A\"}")));
+        assertThrows(JSONException.class, () -> JsonReader.parseTerrain(new StringReader("{\"units\": []}")));
+        assertThrows(JSONException.class, () -> JsonReader.parseTerrain(new StringReader("{} {}")));
+        assertThrows(JSONException.class,
+                () -> JsonReader.parseTerrain(new StringReader("{\"units\": [{\"x\": 1.5}]}")));
+        assertThrows(IllegalArgumentException.class,
+                () -> JsonReader.parseTerrain(new StringReader("{\"name\": \"A\", \"terrainFull\": []}")));
+    }
+
+    @Test
+    void testVersion2RoundTrip() throws IOException {
+        Terrain original = new JsonReader("./data/mapSaves/GeneaologyMap.json").readTerrain();
+        original.fillRect(TerrainTile.THRONE, 3, 4, 5, 1);
+        JSONObject json = original.toJson();
+        assertEquals(2, json.getInt("version"));
+        assertFalse(json.has("terrainFull"));
+        Terrain read = JsonReader.parseTerrain(new StringReader(json.toString(4)));
+        assertEquals(original, read);
+        long oldSize = Files.size(Paths.get("./data/mapSaves/GeneaologyMap.json"));
+        assertTrue(json.toString(4).length() * 10 < oldSize);
+    }
+
+    @Test
+    void testVersion2Rows() throws IOException {
+        String rows = "[\"P14a\", \"b15\", \"P5T2P8\", \"P15\", \"P15\", \"P15\", \"P15\", \"P15\", \"P15\", \"P15\"]";
+        String json = "{\"rows\": " + rows + ", \"legend\": {\"P\": \"PLAIN\", \"a\": \"GATE\", \"b\": \"WATER\", "
+                + "\"T\": \"THRONE\"}, \"name\": \"Rows\", \"version\": 2, \"height\": 10, \"units\": []}";
+        Terrain terrain = JsonReader.parseTerrain(new StringReader(json));
+        assertEquals(15, terrain.getWidth());
+        assertEquals(10, terrain.getHeight());
+        assertEquals(TerrainTile.GATE, terrain.getTileType(14, 0));
+        assertEquals(15, terrain.getTileCount(TerrainTile.WATER));
+        assertEquals(TerrainTile.THRONE, terrain.getTileType(6, 2));
+        assertEquals(2, terrain.getTileCount(TerrainTile.THRONE));
+    }
+
+    @Test
+    void testVersion2Malformed() {
+        String tail = ", \"P15\", \"P15\", \"P15\", \"P15\", \"P15\", \"P15\", \"P15\", \"P15\", \"P15\"]}";
+        assertThrows(JSONException.class, () -> parseString("{\"name\": \"A\", \"rows\": [\"P14\"" + tail));
+        assertThrows(JSONException.class, () -> parseString("{\"name\": \"A\", \"rows\": [\"Q15\"" + tail));
+        assertThrows(JSONException.class, () -> parseString("{\"name\": \"A\", \"rows\": [\"P0P15\"" + tail));
+        assertThrows(JSONException.class,
+                () -> parseString("{\"name\": \"A\", \"rows\": [\"P99999999999999999999\"" + tail));
+        assertThrows(JSONException.class,
+                () -> parseString("{\"name\": \"A\", \"width\": 16, \"rows\": [\"P15\"" + tail));
+        assertThrows(JSONException.class,
+                () -> parseString("{\"name\": \"A\", \"version\": 3, \"rows\": [\"P15\"" + tail));
+    }
+
+    private static Terrain parseString(String json) throws IOException {
+        return JsonReader.parseTerrain(new StringReader(json));
+    }
+
+    /**
+     * Builds a Terrain from a JSONObject tree, the way saves were read before streaming.
+     */
+    private static Terrain fromJsonObject(JSONObject json) {
+        JSONArray columns = json.getJSONArray("terrainFull");
+        TerrainTile[][] tiles = new TerrainTile[columns.length()][];
+        for (int i = 0; i < tiles.length; i++) {
+            JSONArray column = columns.getJSONArray(i);
+            tiles[i] = new TerrainTile[column.length()];
+            for (int j = 0; j < tiles[i].length; j++) {
+                tiles[i][j] = TerrainTile.valueOf(column.getJSONObject(j).getString("terrain"));
+            }
+        }
+        UnitList units = new UnitList();
+        JSONArray unitsJson = json.getJSONArray("units");
+        for (int i = 0; i < unitsJson.length(); i++) {
+            JSONObject unit = unitsJson.getJSONObject(i);
+            units.add(new Unit(Faction.valueOf(unit.getString("faction")),
+                    BattleClass.valueOf(unit.getString("class")), unit.getInt("x"), unit.getInt("y")));
+        }
+        return new Terrain(json.getString("name"), tiles, units);
+    }
 }
@@ -1,11 +1,14 @@
 package persistence;
 
 import model.*;
+import org.json.JSONObject;
 
 import org.junit.jupiter.api.Test;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -17,7 +20,7 @@ public class JsonWriterTest {
     @Test
     void testWriterInvalidPath() {
         try {
-            JsonWriter writer = new JsonWriter("./data//?*<>IllegalName.json");
+            JsonWriter writer = new JsonWriter("./data/\0IllegalName.json");
             writer.open();
             fail("IOException expected.");
         } catch (FileNotFoundException e) {
@@ -45,4 +48,76 @@ public class JsonWriterTest {
             fail("Unexpected read error");
         }
     }
+
+    @Test
+    void testWriterReportsSizeAndLeavesNoTempFile() throws IOException {
+        Path dir = Files.createTempDirectory("jsonWriterTest");
+        Path destination = dir.resolve("map.json");
+        Terrain testMap = new Terrain("Streamed \"Map\"", 40, 30);
+        testMap.fillRect(TerrainTile.FOREST, 5, 5, 10, 10);
+        testMap.addUnit(new Unit(Faction.ENEMY, BattleClass.FIGHTER, 39, 29));
+        JsonWriter writer = new JsonWriter(destination.toString());
+        writer.open();
+        writer.write(testMap);
+        writer.close();
+        assertEquals(Files.size(destination), writer.getBytesWritten());
+        assertTrue(writer.getElapsedMillis() >= 0);
+        assertEquals(testMap, new JsonReader(destination.toString()).readTerrain());
+        String[] files = dir.toFile().list();
+        assertEquals(1, files.length);
+        Files.delete(destination);
+        Files.delete(dir);
+    }
+
+    @Test
+    void testFailedWriteKeepsDestination() throws IOException {
+        Path dir = Files.createTempDirectory("jsonWriterTest");
+        Path destination = dir.resolve("map.json");
+        Files.write(destination, "original".getBytes());
+        JsonWriter writer = new JsonWriter(destination.toString());
+        writer.open();
+        assertThrows(NullPointerException.class, () -> writer.write(null));
+        writer.close();
+        assertEquals("original", new String(Files.readAllBytes(destination)));
+        assertEquals(1, dir.toFile().list().length);
+        Files.delete(destination);
+        Files.delete(dir);
+    }
+
+    @Test
+    void testCloseWithoutWriteKeepsDestination() throws IOException {
+        Path dir = Files.createTempDirectory("jsonWriterTest");
+        Path destination = dir.resolve("map.json");
+        Files.write(destination, "original".getBytes());
+        JsonWriter writer = new JsonWriter(destination.toString());
+        writer.open();
+        writer.close();
+        assertEquals("original", new String(Files.readAllBytes(destination)));
+        assertEquals(1, dir.toFile().list().length);
+        Files.delete(destination);
+        Files.delete(dir);
+    }
+
+    @Test
+    void testWriterMatchesToJson() throws IOException {
+        Path dir = Files.createTempDirectory("jsonWriterTest");
+        Path destination = dir.resolve("map.json");
+        Terrain testMap = new Terrain("Schema", 20, 12);
+        testMap.fillRect(TerrainTile.WATER, 2, 3, 6, 4);
+        testMap.addUnit(new Unit(Faction.ALLY, BattleClass.MAGE, 4, 4));
+        JsonWriter writer = new JsonWriter(destination.toString());
+        writer.open();
+        writer.write(testMap);
+        writer.close();
+        JSONObject written = new JSONObject(Files.readString(destination));
+        assertTrue(new JSONObject(testMap.toJson().toString()).similar(written));
+        Files.delete(destination);
+        Files.delete(dir);
+    }
+
+    @Test
+    void testWriterMissingDirectory() {
+        JsonWriter writer = new JsonWriter("./data/noSuchDirectory/map.json");
+        assertThrows(FileNotFoundException.class, () -> writer.open());
+    }
 }
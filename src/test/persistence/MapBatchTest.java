@@ -0,0 +1,98 @@
+package persistence;
+
+import model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Tests validating and converting map files in bulk
+public class MapBatchTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void setup() throws IOException {
+        directory = Files.createTempDirectory("mapBatchTest");
+        Files.createDirectory(directory.resolve("nested"));
+        for (int i = 0; i < 6; i++) {
+            Terrain terrain = new Terrain("Map " + i, 20 + i, 15);
+            terrain.setTile(TerrainTile.FOREST, i, i);
+            terrain.addUnit(new Unit(Faction.ENEMY, BattleClass.ARCHER, 10, 10));
+            Path parent = i % 2 == 0 ? directory : directory.resolve("nested");
+            MapFormat.JSON.write(terrain, parent.resolve("map" + i + ".json").toString());
+        }
+        Files.writeString(directory.resolve("notes.txt"), "not a map");
+    }
+
+    @AfterEach
+    void teardown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    void testFindMaps() throws IOException {
+        assertEquals(6, MapBatch.findMaps(directory.toString()).size());
+        assertEquals(3, MapBatch.findMaps(directory + "/*.json").size());
+        assertEquals(List.of(directory.resolve("nested").resolve("map1.json")),
+                MapBatch.findMaps(directory + "/nested/map1.*"));
+        assertEquals(6, MapBatch.findMaps(directory + "/**.json").size());
+    }
+
+    @Test
+    void testValidateReportsFailures() throws IOException, InterruptedException {
+        Files.writeString(directory.resolve("broken.json"), "{\"name\": \"Broken\"");
+        List<Path> files = MapBatch.findMaps(directory.toString());
+        MapBatch.Report report = new MapBatch(null, false, 3).run(files);
+        assertEquals(7, report.getProcessed());
+        assertEquals(1, report.getFailures().size());
+        assertTrue(report.getFailures().get(0).startsWith(directory.resolve("broken.json").toString()));
+        assertTrue(report.getBytes() > 0);
+        assertTrue(report.getMapsPerSecond() > 0);
+    }
+
+    @Test
+    void testConvertToBinary() throws IOException, InterruptedException {
+        List<Path> files = MapBatch.findMaps(directory.toString());
+        MapBatch.Report report = new MapBatch(MapFormat.BINARY, true, 4).run(files);
+        assertTrue(report.getFailures().isEmpty());
+        for (Path file : files) {
+            String converted = file.toString().replace(".json", ".tmap");
+            assertEquals(MapFormat.BINARY, MapFormat.detect(converted));
+            assertEquals(MapFormat.readTerrain(file.toString()), MapFormat.readTerrain(converted));
+        }
+        assertEquals(12, MapBatch.findMaps(directory.toString()).size());
+    }
+
+    @Test
+    void testResaveMigratesLegacyJson() throws IOException, InterruptedException {
+        Path legacy = directory.resolve("legacy.json");
+        Files.copy(Paths.get("./data/mapSaves/ExampleMap.json"), legacy);
+        Terrain original = MapFormat.readTerrain(legacy.toString());
+        MapBatch.Report report = new MapBatch(null, true, 2).run(List.of(legacy));
+        assertTrue(report.getFailures().isEmpty());
+        assertEquals(original, MapFormat.readTerrain(legacy.toString()));
+        assertEquals(MapFormat.JSON, MapFormat.detect(legacy.toString()));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.noneMatch(path -> path.toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    void testThreadsMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new MapBatch(null, false, 0));
+    }
+}
@@ -0,0 +1,119 @@
+package persistence;
+
+import model.*;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Tests indexing, reading and writing map libraries
+public class MapLibraryTest {
+
+    private Path directory;
+    private Path file;
+    private Path index;
+
+    @BeforeEach
+    void setup() throws IOException {
+        directory = Files.createTempDirectory("mapLibraryTest");
+        file = directory.resolve("campaign.json");
+        index = directory.resolve("campaign.json" + MapLibrary.INDEX_EXTENSION);
+        Files.copy(Paths.get("./data/maplistMultipleMaps.json"), file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @AfterEach
+    void teardown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    void testOpenBuildsIndex() throws IOException {
+        MapLibrary library = MapLibrary.open(file.toString());
+        assertTrue(Files.exists(index));
+        assertEquals(2, library.size());
+        assertEquals("Chapter 1", library.getEntries().get(0).getName());
+        assertEquals(20, library.getEntries().get(0).getWidth());
+        assertEquals(13, library.getEntries().get(0).getHeight());
+        assertEquals(1, library.indexOf("Chapter 2"));
+        assertEquals(-1, library.indexOf("Chapter 3"));
+
+        Terrain chapter2 = library.readMap(1);
+        assertEquals("Chapter 2", chapter2.getName());
+        assertEquals(17, chapter2.getWidth());
+        assertEquals(12, chapter2.getHeight());
+        assertEquals(1, chapter2.getUnits().size());
+    }
+
+    @Test
+    void testStaleIndexIsRebuilt() throws IOException {
+        MapLibrary.open(file.toString());
+        String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        Files.write(file, text.replace("Chapter 1", "Chapter 9").getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+
+        MapLibrary library = MapLibrary.open(file.toString());
+        assertEquals("Chapter 9", library.getEntries().get(0).getName());
+        assertEquals("Chapter 9", library.readMap(0).getName());
+    }
+
+    @Test
+    void testEmptyLibrary() throws IOException {
+        Files.copy(Paths.get("./data/maplistEmpty.json"), file, StandardCopyOption.REPLACE_EXISTING);
+        MapLibrary library = MapLibrary.open(file.toString());
+        assertEquals(0, library.size());
+
+        Terrain terrain = new Terrain("First", 16, 11);
+        terrain.setTile(TerrainTile.GATE, 3, 3);
+        new MapLibraryWriter(library).append(terrain);
+        assertEquals(terrain, library.readMap(0));
+        Files.delete(index);
+        assertEquals(terrain, MapLibrary.open(file.toString()).readMap(0));
+    }
+
+    @Test
+    void testAppendAndReplace() throws IOException {
+        MapLibrary library = MapLibrary.open(file.toString());
+        MapLibraryWriter writer = new MapLibraryWriter(library);
+        Terrain added = new Terrain("Chapter 3", 30, 20);
+        added.addUnit(new Unit(Faction.ENEMY, BattleClass.MAGE, 29, 19));
+        writer.append(added);
+
+        Terrain smaller = new Terrain("Chapter 1", 15, 10);
+        writer.replace(0, smaller);
+        Terrain larger = new Terrain("Chapter 2", 120, 100);
+        for (int i = 0; i < 120; i++) {
+            for (int j = 0; j < 100; j++) {
+                larger.setTile(TerrainTile.values()[(i + j) % TerrainTile.values().length], i, j);
+            }
+        }
+        writer.replace(1, larger);
+
+        for (MapLibrary reopened : new MapLibrary[] {library, MapLibrary.open(file.toString())}) {
+            assertEquals(3, reopened.size());
+            assertEquals(smaller, reopened.readMap(0));
+            assertEquals(added, reopened.readMap(1));
+            assertEquals(larger, reopened.readMap(2));
+        }
+        assertEquals(4, new JSONObject(Files.readString(file)).getJSONArray("maps").length());
+        Files.delete(index);
+        MapLibrary rescanned = MapLibrary.open(file.toString());
+        assertEquals(3, rescanned.size());
+        assertEquals(larger, rescanned.readMap(rescanned.indexOf("Chapter 2")));
+    }
+}
@@ -0,0 +1,98 @@
+package ui;
+
+import model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import persistence.MapFormat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Tests autosaving snapshots of the edited map to rotating recovery files
+public class AutosaverTest {
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private Path directory;
+    private Terrain terrain;
+    private Autosaver autosaver;
+
+    @BeforeEach
+    void setup() throws IOException {
+        directory = Files.createTempDirectory("autosaverTest").resolve("recovery");
+        terrain = new Terrain("Autosaved", 30, 20);
+        autosaver = new Autosaver(() -> terrain, directory);
+    }
+
+    @AfterEach
+    void teardown() throws IOException {
+        autosaver.shutdown();
+        Files.deleteIfExists(directory);
+        Files.delete(directory.getParent());
+    }
+
+    @Test
+    void testUnchangedMapIsNotSaved() throws IOException {
+        autosaver.autosave();
+        terrain.setTile(TerrainTile.WALL, 1, 1);
+        autosaver.markClean(terrain.getFingerprint());
+        autosaver.autosave();
+        assertNull(Autosaver.findNewest(directory));
+    }
+
+    @Test
+    void testSlotsRotate() throws IOException, InterruptedException {
+        for (int i = 0; i < Autosaver.SLOTS + 1; i++) {
+            terrain.setTile(TerrainTile.FOREST, i, 0);
+            autosaveAndWait(directory.resolve("autosave-" + i % Autosaver.SLOTS + ".tmap"));
+        }
+        assertEquals(Autosaver.SLOTS, countFiles());
+        assertEquals(terrain, MapFormat.readTerrain(directory.resolve("autosave-0.tmap").toString()));
+        terrain.setTile(TerrainTile.WATER, 5, 5);
+        assertNotEquals(terrain, MapFormat.readTerrain(directory.resolve("autosave-0.tmap").toString()));
+    }
+
+    @Test
+    void testShutdownDeletesRecoveryFiles() throws IOException, InterruptedException {
+        terrain.addUnit(new Unit(Faction.ALLY, BattleClass.MAGE, 3, 3));
+        Path file = directory.resolve("autosave-0.tmap");
+        autosaveAndWait(file);
+        assertEquals(file, Autosaver.findNewest(directory));
+        autosaver.shutdown();
+        assertEquals(0, countFiles());
+        assertNull(Autosaver.findNewest(directory));
+    }
+
+    /**
+     * Autosaves until the given recovery file holds the current map, retrying while an earlier write is running.
+     */
+    private void autosaveAndWait(Path file) throws InterruptedException {
+        Terrain expected = new Terrain(terrain);
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            autosaver.autosave();
+            try {
+                if (expected.equals(MapFormat.readTerrain(file.toString()))) {
+                    return;
+                }
+            } catch (IOException e) {
+                // not written yet
+            }
+            Thread.sleep(10);
+        }
+        fail("Timed out waiting for " + file);
+    }
+
+    private long countFiles() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
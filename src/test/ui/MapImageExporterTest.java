@@ -0,0 +1,101 @@
+package ui;
+
+import model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import persistence.ProgressListener;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Tests rendering maps to images without a display
+public class MapImageExporterTest {
+    private static final int TILE_SIZE = 8;
+
+    private MapImageExporter exporter;
+    private Terrain terrain;
+    private TileAtlas atlas;
+
+    @BeforeEach
+    void setup() throws IOException {
+        exporter = new MapImageExporter();
+        atlas = new TileAtlas(TILE_SIZE, ImageRegistry.load(), null);
+        terrain = new Terrain("Exported", 20, MapImageExporter.STRIP_ROWS + 4);
+        terrain.fillRect(TerrainTile.WATER, 2, 3, 4, 5);
+        terrain.setTile(TerrainTile.THRONE, 19, MapImageExporter.STRIP_ROWS + 3);
+        terrain.addUnit(new Unit(Faction.ENEMY, BattleClass.ARCHER, 10, MapImageExporter.STRIP_ROWS));
+    }
+
+    @Test
+    void testRender() throws InterruptedIOException {
+        List<Long> progress = new ArrayList<>();
+        BufferedImage image = exporter.render(terrain, TILE_SIZE, (done, total) -> progress.add(done));
+        assertEquals(20 * TILE_SIZE, image.getWidth());
+        assertEquals((MapImageExporter.STRIP_ROWS + 4) * TILE_SIZE, image.getHeight());
+        assertEquals(List.of(1L, 2L), progress);
+        assertTileDrawn(image, TerrainTile.PLAIN, 0, 0);
+        assertTileDrawn(image, TerrainTile.WATER, 5, 7);
+        assertTileDrawn(image, TerrainTile.THRONE, 19, MapImageExporter.STRIP_ROWS + 3);
+        assertUnitDrawn(image, Faction.ENEMY, 10, MapImageExporter.STRIP_ROWS);
+    }
+
+    @Test
+    void testExportWritesPng() throws IOException {
+        Path file = Files.createTempFile("mapImageExporterTest", ".png");
+        try {
+            exporter.export(terrain, TILE_SIZE, file.toFile(), ProgressListener.NONE);
+            BufferedImage image = ImageIO.read(file.toFile());
+            assertEquals(20 * TILE_SIZE, image.getWidth());
+            assertTileDrawn(image, TerrainTile.WATER, 2, 3);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testCancelledRender() {
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(InterruptedIOException.class,
+                    () -> exporter.render(terrain, TILE_SIZE, ProgressListener.NONE));
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    void testInvalidTileSize() {
+        assertThrows(IllegalArgumentException.class, () -> exporter.render(terrain, 0, ProgressListener.NONE));
+    }
+
+    private void assertTileDrawn(BufferedImage image, TerrainTile tile, int x, int y) {
+        BufferedImage expected = atlas.getTile(tile);
+        for (int i = 0; i < TILE_SIZE; i += TILE_SIZE / 2) {
+            for (int j = 0; j < TILE_SIZE; j += TILE_SIZE / 2) {
+                assertEquals(expected.getRGB(i, j), image.getRGB(x * TILE_SIZE + i, y * TILE_SIZE + j));
+            }
+        }
+    }
+
+    private void assertUnitDrawn(BufferedImage image, Faction faction, int x, int y) {
+        BufferedImage marker = atlas.getUnit(faction);
+        int checked = 0;
+        for (int i = 0; i < TILE_SIZE; i++) {
+            for (int j = 0; j < TILE_SIZE; j++) {
+                if (marker.getRGB(i, j) >>> 24 == 0xFF) {
+                    assertEquals(marker.getRGB(i, j), image.getRGB(x * TILE_SIZE + i, y * TILE_SIZE + j));
+                    checked++;
+                }
+            }
+        }
+        assertTrue(checked > 0);
+    }
+}